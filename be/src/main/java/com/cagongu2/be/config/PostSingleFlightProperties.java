@@ -0,0 +1,18 @@
+package com.cagongu2.be.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * posts.single-flight.*: how long a request waits for a post load another request already
+ * started before giving up (PostDetailCache, PostServiceImpl).
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "posts.single-flight")
+public class PostSingleFlightProperties {
+    private long timeoutMs = 5000;
+}
@@ -33,6 +33,7 @@ public class SecurityConfig {
             "/api/categories/**",
             "/api/users/**",
             "/api/images/**",
+            "/api/site/**",
             "/api/upload/**"
     };
 
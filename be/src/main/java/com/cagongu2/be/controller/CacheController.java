@@ -0,0 +1,28 @@
+package com.cagongu2.be.controller;
+
+import com.cagongu2.be.dto.cache.response.CacheStatsResponse;
+import com.cagongu2.be.service.PostDetailCache;
+import com.cagongu2.be.service.SearchResultCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin/caches")
+@RequiredArgsConstructor
+public class CacheController {
+    private final PostDetailCache postDetailCache;
+    private final SearchResultCache searchResultCache;
+
+    @GetMapping
+    public ResponseEntity<List<CacheStatsResponse>> getCacheStats() {
+        List<CacheStatsResponse> stats = new ArrayList<>(postDetailCache.stats());
+        stats.addAll(searchResultCache.stats());
+        return ResponseEntity.ok(stats);
+    }
+}
@@ -2,61 +2,149 @@ package com.cagongu2.be.controller;
 
 import com.cagongu2.be.dto.CategoryDTO;
 import com.cagongu2.be.dto.CategoryFlatDTO;
-import com.cagongu2.be.model.Category;
+import com.cagongu2.be.dto.ChangeStamp;
+import com.cagongu2.be.dto.category.response.CategoryBreadcrumb;
+import com.cagongu2.be.dto.category.response.CategoryResponse;
 import com.cagongu2.be.service.CategoryService;
+import com.cagongu2.be.service.PostService;
+import com.cagongu2.be.util.ConditionalGet;
+import com.cagongu2.be.util.ETags;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.net.URI;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/categories")
 @RequiredArgsConstructor
 public class CategoryController {
+    private static final CacheControl CATEGORY_CACHE = CacheControl.maxAge(Duration.ofMinutes(5)).cachePublic();
+    private static final String INCLUDE_CHILDREN = "children";
+    private static final String INCLUDE_POSTS = "posts";
+
     private final CategoryService categoryService;
+    private final PostService postService;
 
+    // include=children,posts opts into the nested children and the post summaries of each category
     @GetMapping
-    public ResponseEntity<List<Category>> getAllCategories(@RequestParam int level) {
-        return ResponseEntity.ok(categoryService.getAllCategoriesByLevel(level));
+    public ResponseEntity<List<CategoryResponse>> getAllCategories(@RequestParam int level,
+                                                                   @RequestParam(required = false) Set<String> include,
+                                                                   WebRequest webRequest) {
+        boolean withChildren = includes(include, INCLUDE_CHILDREN);
+        boolean withPosts = includes(include, INCLUDE_POSTS);
+        return respond(webRequest, withPosts, "level", variant(level, withChildren, withPosts),
+                () -> categoryService.getAllCategoriesByLevel(level, withChildren, withPosts));
     }
 
     @GetMapping("/flat")
-    public ResponseEntity<List<CategoryFlatDTO>> getFlatCategories() {
-        return ResponseEntity.ok(categoryService.getAllCategoriesFlat());
+    public ResponseEntity<List<CategoryFlatDTO>> getFlatCategories(WebRequest webRequest) {
+        return respond(webRequest, false, "flat", null, categoryService::getAllCategoriesFlat);
     }
 
 
+    // mega-menu: every category with its post links, one query streamed straight to the response
+    @GetMapping("/navigation")
+    public ResponseEntity<StreamingResponseBody> getNavigation(WebRequest webRequest) {
+        return respond(webRequest, true, "navigation", null, MediaType.APPLICATION_JSON,
+                () -> categoryService::writeCategoriesWithPosts);
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<Category> getCategoryById(@PathVariable Long id) {
-        return categoryService.getCategoryById(id)
-                .map(ResponseEntity::ok)
+    public ResponseEntity<CategoryResponse> getCategoryById(@PathVariable Long id,
+                                                            @RequestParam(required = false) Set<String> include,
+                                                            WebRequest webRequest) {
+        boolean withChildren = includes(include, INCLUDE_CHILDREN);
+        boolean withPosts = includes(include, INCLUDE_POSTS);
+        // the tree alone (in memory) answers 404 and 304, the posts are only read for a 200
+        return categoryService.getCategoryById(id, withChildren, false)
+                .map(category -> respond(webRequest, withPosts, "id", variant(id, withChildren, withPosts),
+                        () -> withPosts ? categoryService.getCategoryById(id, withChildren, true).orElse(category) : category))
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/slug/{slug}")
-    public ResponseEntity<Category> getCategoryBySlug(@PathVariable String slug) {
-        return categoryService.getCategoryBySlug(slug)
-                .map(ResponseEntity::ok)
+    public ResponseEntity<CategoryResponse> getCategoryBySlug(@PathVariable String slug,
+                                                              @RequestParam(required = false) Set<String> include,
+                                                              WebRequest webRequest) {
+        boolean withChildren = includes(include, INCLUDE_CHILDREN);
+        boolean withPosts = includes(include, INCLUDE_POSTS);
+        // the tree alone (in memory) answers 404 and 304, the posts are only read for a 200
+        return categoryService.getCategoryBySlug(slug, withChildren, false)
+                .map(category -> respond(webRequest, withPosts, "slug", variant(slug, withChildren, withPosts),
+                        () -> withPosts ? categoryService.getCategoryBySlug(slug, withChildren, true).orElse(category) : category))
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/children/{parentId}")
-    public ResponseEntity<List<Category>> getChildren(@PathVariable Long parentId) {
-        return ResponseEntity.ok(categoryService.getChildren(parentId));
+    public ResponseEntity<List<CategoryResponse>> getChildren(@PathVariable Long parentId,
+                                                              @RequestParam(required = false) Set<String> include,
+                                                              WebRequest webRequest) {
+        boolean withChildren = includes(include, INCLUDE_CHILDREN);
+        boolean withPosts = includes(include, INCLUDE_POSTS);
+        return respond(webRequest, withPosts, "children", variant(parentId, withChildren, withPosts),
+                () -> categoryService.getChildren(parentId, withChildren, withPosts));
+    }
+
+    @GetMapping("/{id}/breadcrumbs")
+    public ResponseEntity<List<CategoryBreadcrumb>> getBreadcrumbs(@PathVariable Long id, WebRequest webRequest) {
+        List<CategoryBreadcrumb> breadcrumbs = categoryService.getBreadcrumbs(id);
+        if (breadcrumbs.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return respond(webRequest, false, "breadcrumbs", id, () -> breadcrumbs);
+    }
+
+    private static boolean includes(Set<String> include, String part) {
+        return include != null && include.contains(part);
+    }
+
+    // responses with and without the optional parts must not share an ETag
+    private static String variant(Object key, boolean withChildren, boolean withPosts) {
+        return key + (withChildren ? "+" + INCLUDE_CHILDREN : "") + (withPosts ? "+" + INCLUDE_POSTS : "");
+    }
+
+    // responses that embed post summaries also depend on the posts stamp
+    private <T> ResponseEntity<T> respond(WebRequest webRequest, boolean includesPosts, String kind, Object key, Supplier<T> body) {
+        return respond(webRequest, includesPosts, kind, key, MediaType.APPLICATION_JSON, body);
+    }
+
+    private <T> ResponseEntity<T> respond(WebRequest webRequest, boolean includesPosts, String kind, Object key,
+                                          MediaType contentType, Supplier<T> body) {
+        ChangeStamp categories = categoryService.getCategoriesStamp();
+        ChangeStamp posts = includesPosts ? postService.getPostsStamp() : null;
+
+        LocalDateTime postsModified = posts != null ? posts.getLastModified() : null;
+        Long postsTotal = posts != null ? posts.getTotal() : null;
+        Long postsGeneration = posts != null ? posts.getGeneration() : null;
+
+        return ConditionalGet.respond(webRequest,
+                ETags.of("categories", kind, key, categories.getLastModified(), categories.getTotal(), postsModified, postsTotal, postsGeneration),
+                ETags.lastModified(categories.getLastModified(), postsModified),
+                CATEGORY_CACHE,
+                contentType,
+                body);
     }
 
     @PostMapping
-    public ResponseEntity<Category> createCategory(@RequestBody CategoryDTO category) {
-        Category created = categoryService.createCategory(category);
+    public ResponseEntity<CategoryResponse> createCategory(@RequestBody CategoryDTO category) {
+        CategoryResponse created = categoryService.createCategory(category);
         return ResponseEntity.created(URI.create("/api/categories/" + created.getId())).body(created);
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<Category> updateCategory(@PathVariable Long id, @RequestBody CategoryDTO category) {
+    public ResponseEntity<CategoryResponse> updateCategory(@PathVariable Long id, @RequestBody CategoryDTO category) {
         try {
-            Category updated = categoryService.updateCategory(id, category);
+            CategoryResponse updated = categoryService.updateCategory(id, category);
             return ResponseEntity.ok(updated);
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
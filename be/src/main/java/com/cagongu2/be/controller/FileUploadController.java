@@ -1,6 +1,9 @@
 package com.cagongu2.be.controller;
 
+import com.cagongu2.be.dto.upload.request.ChunkedUploadRequest;
+import com.cagongu2.be.service.ChunkedUploadService;
 import com.cagongu2.be.service.FileUploadService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -8,13 +11,16 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 @RestController
 @RequestMapping("/api/upload")
 @RequiredArgsConstructor
 public class FileUploadController {
     private final FileUploadService fileUploadService;
+    private final ChunkedUploadService chunkedUploadService;
 
     @PostMapping("/{type}")
     public ResponseEntity<?> uploadFile(
@@ -26,12 +32,83 @@ public class FileUploadController {
         }
 
         try {
+            // editor images, referenced from the post body once it is saved
             String relativePath = fileUploadService.uploadFile(file, type);
             return ResponseEntity.ok(Map.of("relativePath", relativePath));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
         } catch (IOException e) {
             e.printStackTrace();
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body("Upload failed: " + e.getMessage());
         }
     }
+
+    // resumable upload for large files: start a session, PUT the chunks, then complete it
+    @PostMapping("/{type}/sessions")
+    public ResponseEntity<?> initiateChunkedUpload(@PathVariable String type, @RequestBody ChunkedUploadRequest request) {
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED).body(chunkedUploadService.initiate(
+                    type, request.getFileName(), request.getSize(), request.getChunkSize()));
+        } catch (IOException | RuntimeException e) {
+            return failure(e);
+        }
+    }
+
+    @GetMapping("/sessions/{uploadId}")
+    public ResponseEntity<?> getChunkedUpload(@PathVariable String uploadId) {
+        try {
+            return ResponseEntity.ok(chunkedUploadService.getStatus(uploadId));
+        } catch (RuntimeException e) {
+            return failure(e);
+        }
+    }
+
+    // the body is the raw chunk, read as a stream rather than parsed as multipart
+    @PutMapping("/sessions/{uploadId}/chunks/{index}")
+    public ResponseEntity<?> uploadChunk(@PathVariable String uploadId,
+                                         @PathVariable int index,
+                                         @RequestHeader(value = "X-Chunk-SHA256", required = false) String sha256,
+                                         HttpServletRequest request) {
+        try (InputStream body = request.getInputStream()) {
+            return ResponseEntity.ok(chunkedUploadService.writeChunk(uploadId, index, sha256, body));
+        } catch (IOException | RuntimeException e) {
+            return failure(e);
+        }
+    }
+
+    @PostMapping("/sessions/{uploadId}/complete")
+    public ResponseEntity<?> completeChunkedUpload(@PathVariable String uploadId) {
+        try {
+            return ResponseEntity.ok(Map.of("relativePath", chunkedUploadService.complete(uploadId)));
+        } catch (IOException | RuntimeException e) {
+            return failure(e);
+        }
+    }
+
+    @DeleteMapping("/sessions/{uploadId}")
+    public ResponseEntity<?> abortChunkedUpload(@PathVariable String uploadId) {
+        try {
+            chunkedUploadService.abort(uploadId);
+            return ResponseEntity.noContent().build();
+        } catch (IOException | RuntimeException e) {
+            return failure(e);
+        }
+    }
+
+    private static ResponseEntity<?> failure(Exception e) {
+        if (e instanceof NoSuchElementException) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        }
+        if (e instanceof IllegalArgumentException) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        if (e instanceof IllegalStateException) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
+        if (e instanceof RuntimeException runtime) {
+            throw runtime;
+        }
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Upload failed: " + e.getMessage());
+    }
 }
@@ -1,20 +1,31 @@
 package com.cagongu2.be.controller;
 
+import com.cagongu2.be.dto.ChangeStamp;
 import com.cagongu2.be.dto.footer.request.FooterRequest;
 import com.cagongu2.be.dto.footer.response.FooterResponse;
 import com.cagongu2.be.service.FooterService;
+import com.cagongu2.be.service.PostService;
+import com.cagongu2.be.util.ConditionalGet;
+import com.cagongu2.be.util.ETags;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/footers")
 @RequiredArgsConstructor
 public class FooterController {
+    private static final CacheControl FOOTER_CACHE = CacheControl.maxAge(Duration.ofMinutes(5)).cachePublic();
+
     private final FooterService footerService;
+    private final PostService postService;
 
     @PostMapping
     public ResponseEntity<FooterResponse> createFooter(@RequestBody FooterRequest request) {
@@ -31,31 +42,39 @@ public class FooterController {
     }
 
     @GetMapping
-    public ResponseEntity<List<FooterResponse>> getAllFooters() {
-        List<FooterResponse> responses = footerService.getAllFooter();
-        return ResponseEntity.ok(responses);
+    public ResponseEntity<List<FooterResponse>> getAllFooters(WebRequest webRequest) {
+        return respond(webRequest, "all", footerService::getAllFooter);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<FooterResponse> getFooterById(@PathVariable Long id) {
-        FooterResponse response = footerService.getFooterById(id);
-        return ResponseEntity.ok(response);
+    public ResponseEntity<FooterResponse> getFooterById(@PathVariable Long id, WebRequest webRequest) {
+        return respond(webRequest, id, () -> footerService.getFooterById(id));
     }
 
     @GetMapping("/status")
     public ResponseEntity<List<FooterResponse>> getFootersByStatus(
-            @RequestParam Boolean isActive) {
-        List<FooterResponse> responses = footerService.getFooterByStatus(isActive);
-        return ResponseEntity.ok(responses);
+            @RequestParam Boolean isActive, WebRequest webRequest) {
+        return respond(webRequest, "status-" + isActive, () -> footerService.getFooterByStatus(isActive));
     }
 
     @GetMapping("/active")
-    public ResponseEntity<List<FooterResponse>> getActiveFooter() {
-        List<FooterResponse> activeFooters = footerService.getFooterByStatus(true);
-        if (activeFooters.isEmpty()) {
+    public ResponseEntity<List<FooterResponse>> getActiveFooter(WebRequest webRequest) {
+        ResponseEntity<List<FooterResponse>> response = respond(webRequest, "active", () -> footerService.getFooterByStatus(true));
+        if (response.getBody() != null && response.getBody().isEmpty()) {
             return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.ok(activeFooters);
+        return response;
+    }
+
+    // footers list post names and slugs, so a renamed post changes them too
+    private <T> ResponseEntity<T> respond(WebRequest webRequest, Object key, Supplier<T> body) {
+        ChangeStamp footers = footerService.getFootersStamp();
+        ChangeStamp posts = postService.getPostsStamp();
+        return ConditionalGet.respond(webRequest,
+                ETags.of("footers", key, footers.getLastModified(), footers.getTotal(), posts.getLastModified(), posts.getTotal(), posts.getGeneration()),
+                ETags.lastModified(footers.getLastModified(), posts.getLastModified()),
+                FOOTER_CACHE,
+                body);
     }
 
     @DeleteMapping("/{id}")
@@ -2,26 +2,38 @@ package com.cagongu2.be.controller;
 
 import com.cagongu2.be.model.Image;
 import com.cagongu2.be.service.ImageService;
+import com.cagongu2.be.util.ConditionalGet;
+import com.cagongu2.be.util.ETags;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.time.Duration;
 
 @RestController
 @RequestMapping("/api/images")
 @RequiredArgsConstructor
 public class ImageController {
+    private static final CacheControl IMAGE_CACHE = CacheControl.maxAge(Duration.ofMinutes(5)).cachePublic();
+
     private final ImageService imageService;
 
     @GetMapping("/{type}")
-    public ResponseEntity<Image> getCurrentImage(@PathVariable String type) {
+    public ResponseEntity<Image> getCurrentImage(@PathVariable String type, WebRequest webRequest) {
         Image image = imageService.getCurrentImageByType(type);
         if (image == null) {
             return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.ok(image);
+        // replacing an image inserts a new row, so id and url identify the representation
+        return ConditionalGet.respond(webRequest,
+                ETags.of("image", type, image.getId(), image.getUrl()),
+                -1,
+                IMAGE_CACHE,
+                () -> image);
     }
 
     @PostMapping("/{type}")
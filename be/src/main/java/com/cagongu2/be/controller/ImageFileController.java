@@ -0,0 +1,184 @@
+package com.cagongu2.be.controller;
+
+import com.cagongu2.be.service.ImageVariantService;
+import com.cagongu2.be.util.FileSender;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.IntStream;
+
+/**
+ * Serves uploaded files under upload.base-path at /images/**, the relative urls
+ * FileUploadService hands out. Uploads are named by their SHA-256 (older ones by a random UUID)
+ * and never rewritten, so those are cached for a year as immutable; anything else is revalidated.
+ * <p>
+ * With w and/or h (and optionally fit and q) the same url returns a resized variant from
+ * ImageVariantService. Sizes are rounded up to the next of upload.variants.sizes and the
+ * quality to the nearest of upload.variants.qualities, so an image has a few hundred possible
+ * variants at most, whatever the query strings.
+ */
+@Slf4j
+@RestController
+public class ImageFileController {
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable();
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePublic();
+
+    private static final Map<String, MediaType> CONTENT_TYPES = Map.ofEntries(
+            Map.entry("jpg", MediaType.IMAGE_JPEG),
+            Map.entry("jpeg", MediaType.IMAGE_JPEG),
+            Map.entry("png", MediaType.IMAGE_PNG),
+            Map.entry("gif", MediaType.IMAGE_GIF),
+            Map.entry("webp", MediaType.parseMediaType("image/webp")),
+            Map.entry("avif", MediaType.parseMediaType("image/avif")),
+            Map.entry("svg", MediaType.parseMediaType("image/svg+xml")),
+            Map.entry("ico", MediaType.parseMediaType("image/x-icon")),
+            Map.entry("bmp", MediaType.parseMediaType("image/bmp")),
+            Map.entry("pdf", MediaType.APPLICATION_PDF));
+
+    private final Path root;
+    private final ImageVariantService imageVariantService;
+    private final int[] sizes;
+    private final int[] qualities;
+
+    public ImageFileController(@Value("${upload.base-path}") String basePath,
+                               ImageVariantService imageVariantService,
+                               @Value("${upload.variants.sizes:80,160,240,320,480,640,800,1024,1280,1600,1920}") int[] sizes,
+                               @Value("${upload.variants.qualities:50,65,80,90}") int[] qualities) {
+        this.root = Paths.get(basePath).toAbsolutePath().normalize();
+        this.imageVariantService = imageVariantService;
+        this.sizes = IntStream.of(sizes).filter(size -> size > 0).sorted().distinct().toArray();
+        this.qualities = IntStream.of(qualities).filter(quality -> quality > 0 && quality <= 100).sorted().distinct().toArray();
+        if (this.sizes.length == 0 || this.qualities.length == 0) {
+            throw new IllegalArgumentException("upload.variants.sizes and upload.variants.qualities must not be empty");
+        }
+    }
+
+    @GetMapping("/images/{*path}")
+    public void getFile(@PathVariable String path,
+                        @RequestParam(required = false) Integer w,
+                        @RequestParam(required = false) Integer h,
+                        @RequestParam(defaultValue = "contain") String fit,
+                        @RequestParam(defaultValue = "80") int q,
+                        HttpServletRequest request,
+                        HttpServletResponse response) throws IOException {
+        Path original = resolve(path);
+        if (original == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        Path file = original;
+        if (w != null || h != null) {
+            ImageVariantService.Fit fitMode;
+            try {
+                fitMode = ImageVariantService.Fit.valueOf(fit.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, "fit must be contain, cover or fill");
+                return;
+            }
+            if ((w != null && w <= 0) || (h != null && h <= 0)) {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, "w and h must be positive");
+                return;
+            }
+
+            ImageVariantService.Spec spec = new ImageVariantService.Spec(dimension(w), dimension(h), fitMode, quality(q));
+            try {
+                file = imageVariantService.getVariant(original, spec);
+            } catch (RejectedExecutionException e) {
+                response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+                response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                return;
+            } catch (IOException | RuntimeException e) {
+                if (e.getCause() instanceof TimeoutException) {
+                    // the render keeps going and lands in the cache, a retry shortly after finds it
+                    response.setHeader(HttpHeaders.RETRY_AFTER, "2");
+                    response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                    return;
+                }
+                // a file ImageIO cannot decode (CMYK JPEG, truncated upload) is still served as is
+                log.warn("Serving original {} instead of a variant: {}", original.getFileName(), e.getMessage());
+            }
+        }
+
+        String name = file.getFileName().toString();
+        if (name.toLowerCase(Locale.ROOT).endsWith(".svg")) {
+            // an svg opened directly must not run scripts in our origin
+            response.setHeader("Content-Security-Policy", "default-src 'none'; style-src 'unsafe-inline'; sandbox");
+        }
+        // a variant is derived from the original, so it is exactly as immutable; its name is the spec
+        if (ImageVariantService.isImmutable(original)) {
+            String key = file.equals(original) ? path : path + "#" + name;
+            FileSender.send(request, response, file, contentType(name), IMMUTABLE, key);
+        } else {
+            FileSender.send(request, response, file, contentType(name), REVALIDATE);
+        }
+    }
+
+    // the next allowed size up, or the largest
+    private Integer dimension(Integer size) {
+        if (size == null) {
+            return null;
+        }
+        for (int allowed : sizes) {
+            if (allowed >= size) {
+                return allowed;
+            }
+        }
+        return sizes[sizes.length - 1];
+    }
+
+    private int quality(int quality) {
+        int nearest = qualities[0];
+        for (int allowed : qualities) {
+            if (Math.abs(allowed - quality) < Math.abs(nearest - quality)) {
+                nearest = allowed;
+            }
+        }
+        return nearest;
+    }
+
+    // null for anything outside the upload root, hidden entries (dot files, quarantine) and directories
+    private Path resolve(String path) {
+        String relative = path.startsWith("/") ? path.substring(1) : path;
+        if (relative.isEmpty()) {
+            return null;
+        }
+        for (String segment : relative.split("/")) {
+            if (segment.isEmpty() || segment.startsWith(".")) {
+                return null;
+            }
+        }
+
+        Path file = root.resolve(relative).normalize();
+        if (!file.startsWith(root) || !Files.isRegularFile(file) || !Files.isReadable(file)) {
+            return null;
+        }
+        return file;
+    }
+
+    private static MediaType contentType(String name) {
+        int dot = name.lastIndexOf('.');
+        if (dot < 0) {
+            return MediaType.APPLICATION_OCTET_STREAM;
+        }
+        return CONTENT_TYPES.getOrDefault(name.substring(dot + 1).toLowerCase(Locale.ROOT), MediaType.APPLICATION_OCTET_STREAM);
+    }
+}
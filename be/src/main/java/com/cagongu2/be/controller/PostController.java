@@ -1,24 +1,48 @@
 package com.cagongu2.be.controller;
 
+import com.cagongu2.be.dto.ChangeStamp;
+import com.cagongu2.be.dto.CursorPage;
+import com.cagongu2.be.dto.post.request.PostCursor;
+import com.cagongu2.be.dto.post.response.PostCountResponse;
 import com.cagongu2.be.dto.post.response.PostResponse;
+import com.cagongu2.be.dto.post.response.PostSummary;
 import com.cagongu2.be.dto.post.request.PostRequest;
+import com.cagongu2.be.dto.search.request.SearchCursor;
+import com.cagongu2.be.dto.search.response.PostSearchHit;
+import com.cagongu2.be.dto.search.response.PostSuggestion;
 import com.cagongu2.be.model.Post;
 import com.cagongu2.be.model.elasticsearch.PostDocument;
 import com.cagongu2.be.service.PostService;
+import com.cagongu2.be.util.ConditionalGet;
+import com.cagongu2.be.util.ETags;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.List;
+import java.util.function.Function;
 
 @RestController
 @RequestMapping("/api/posts")
 @RequiredArgsConstructor
 public class PostController {
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+    private static final int MAX_SUGGESTIONS = 10;
+
+    private static final CacheControl DETAIL_CACHE = CacheControl.maxAge(Duration.ofMinutes(1)).cachePublic();
+    private static final CacheControl LIST_CACHE = CacheControl.noCache().cachePublic();
+    private static final CacheControl ADMIN_LIST_CACHE = CacheControl.noCache().cachePrivate();
+    // typeahead repeats the same short prefixes, a slightly stale list is fine
+    private static final CacheControl SUGGEST_CACHE = CacheControl.maxAge(Duration.ofSeconds(30)).cachePublic();
+
     private final PostService postService;
 
     @PostMapping(consumes = {"multipart/form-data"})
@@ -31,47 +55,153 @@ public class PostController {
         return ResponseEntity.ok(postService.searchPosts(query));
     }
 
+    @GetMapping("/search-post/page")
+    public ResponseEntity<CursorPage<PostSearchHit>> searchPostPage(
+            @RequestParam String query,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size) {
+        if (StringUtils.hasText(cursor) && !isValid(cursor, SearchCursor::decode)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(postService.searchPostsPage(query, cursor, clampSize(size)));
+    }
+
+    @GetMapping("/suggest")
+    public ResponseEntity<List<PostSuggestion>> suggestPosts(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "5") int size) {
+        if (!StringUtils.hasText(prefix)) {
+            return ResponseEntity.ok(List.of());
+        }
+        return ResponseEntity.ok()
+                .cacheControl(SUGGEST_CACHE)
+                .body(postService.suggestPosts(prefix.trim(), Math.max(1, Math.min(size, MAX_SUGGESTIONS))));
+    }
+
     @GetMapping
-    public ResponseEntity<Page<PostResponse>> getAllPosts(
+    public ResponseEntity<Page<PostSummary>> getAllPosts(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            WebRequest webRequest) {
         Pageable pageable = PageRequest.of(page, size);
-        return ResponseEntity.ok(postService.getAllPosts(pageable));
+        ChangeStamp stamp = postService.getPostsStamp();
+        return ConditionalGet.respond(webRequest,
+                ETags.of("posts", stamp.getLastModified(), stamp.getTotal(), stamp.getGeneration(), page, size),
+                ETags.lastModified(stamp.getLastModified()),
+                LIST_CACHE,
+                () -> postService.getAllPosts(pageable));
     }
 
     @GetMapping("/search")
-    public ResponseEntity<Page<PostResponse>> searchPostResponsesByTitle(
+    public ResponseEntity<Page<PostSummary>> searchPostResponsesByTitle(
             @RequestParam String keyword,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            WebRequest webRequest) {
 
         Pageable pageable = PageRequest.of(page, size);
-        return ResponseEntity.ok(postService.searchPostResponsesByTitle(keyword, pageable));
+        ChangeStamp stamp = postService.getPostsStamp();
+        return ConditionalGet.respond(webRequest,
+                ETags.of("posts-search", stamp.getLastModified(), stamp.getTotal(), stamp.getGeneration(), keyword, page, size),
+                ETags.lastModified(stamp.getLastModified()),
+                LIST_CACHE,
+                () -> postService.searchPostResponsesByTitle(keyword, pageable));
+    }
+
+    @GetMapping("/cursor")
+    public ResponseEntity<CursorPage<PostSummary>> getPostsByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean withTotal,
+            WebRequest webRequest) {
+        if (StringUtils.hasText(cursor) && !isValid(cursor, PostCursor::decode)) {
+            return ResponseEntity.badRequest().build();
+        }
+        ChangeStamp stamp = postService.getPostsStamp();
+        return ConditionalGet.respond(webRequest,
+                ETags.of("posts-cursor", stamp.getLastModified(), stamp.getTotal(), stamp.getGeneration(), cursor, size, withTotal),
+                ETags.lastModified(stamp.getLastModified()),
+                LIST_CACHE,
+                () -> postService.getPostsByCursor(cursor, clampSize(size), withTotal));
+    }
+
+    @GetMapping("/search/cursor")
+    public ResponseEntity<CursorPage<PostSummary>> searchPostResponsesByTitleCursor(
+            @RequestParam String keyword,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean withTotal,
+            WebRequest webRequest) {
+        if (StringUtils.hasText(cursor) && !isValid(cursor, PostCursor::decode)) {
+            return ResponseEntity.badRequest().build();
+        }
+        ChangeStamp stamp = postService.getPostsStamp();
+        return ConditionalGet.respond(webRequest,
+                ETags.of("posts-search-cursor", stamp.getLastModified(), stamp.getTotal(), stamp.getGeneration(), keyword, cursor, size, withTotal),
+                ETags.lastModified(stamp.getLastModified()),
+                LIST_CACHE,
+                () -> postService.searchPostResponsesByTitleCursor(keyword, cursor, clampSize(size), withTotal));
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<PostResponse> getPostById(@PathVariable Long id) {
-        return ResponseEntity.ok(postService.getPostById(id));
+    public ResponseEntity<PostResponse> getPostById(@PathVariable Long id, WebRequest webRequest) {
+        return respondWithPost(postService.getPostById(id), webRequest);
     }
 
     @GetMapping("/slug/{slug}")
-    public ResponseEntity<PostResponse> getPostBySlug(@PathVariable String slug) {
-        return ResponseEntity.ok(postService.getPostBySlug(slug));
+    public ResponseEntity<PostResponse> getPostBySlug(@PathVariable String slug, WebRequest webRequest) {
+        return respondWithPost(postService.getPostBySlug(slug), webRequest);
+    }
+
+    // constant-time lookups in post_counters, for dashboards that only need the numbers
+    @GetMapping("/count")
+    public ResponseEntity<PostCountResponse> countPosts() {
+        return ResponseEntity.ok(postService.countPosts());
+    }
+
+    @GetMapping("/category/{categoryId}/count")
+    public ResponseEntity<PostCountResponse> countPostsByCategory(@PathVariable Long categoryId) {
+        return ResponseEntity.ok(postService.countPostsByCategory(categoryId));
+    }
+
+    @GetMapping("/author/{authorId}/count")
+    public ResponseEntity<PostCountResponse> countPostsByAuthor(@PathVariable Long authorId) {
+        return ResponseEntity.ok(postService.countPostsByAuthor(authorId));
+    }
+
+    @GetMapping("/status/{status}/count")
+    public ResponseEntity<PostCountResponse> countPostsByStatus(@PathVariable String status) {
+        return ResponseEntity.ok(postService.countPostsByStatus(status));
     }
 
     @GetMapping("/category/{categoryId}")
-    public ResponseEntity<List<PostResponse>> getPostsByCategory(@PathVariable Long categoryId) {
-        return ResponseEntity.ok(postService.getPostsByCategory(categoryId));
+    public ResponseEntity<List<PostSummary>> getPostsByCategory(@PathVariable Long categoryId, WebRequest webRequest) {
+        ChangeStamp stamp = postService.getPostsStampByCategory(categoryId);
+        return ConditionalGet.respond(webRequest,
+                ETags.of("posts-category", categoryId, stamp.getLastModified(), stamp.getTotal(), stamp.getGeneration()),
+                ETags.lastModified(stamp.getLastModified()),
+                LIST_CACHE,
+                () -> postService.getPostsByCategory(categoryId));
     }
 
     @GetMapping("/author/{authorId}")
-    public ResponseEntity<List<PostResponse>> getPostsByAuthor(@PathVariable Long authorId) {
-        return ResponseEntity.ok(postService.getPostsByAuthor(authorId));
+    public ResponseEntity<List<PostSummary>> getPostsByAuthor(@PathVariable Long authorId, WebRequest webRequest) {
+        ChangeStamp stamp = postService.getPostsStampByAuthor(authorId);
+        return ConditionalGet.respond(webRequest,
+                ETags.of("posts-author", authorId, stamp.getLastModified(), stamp.getTotal(), stamp.getGeneration()),
+                ETags.lastModified(stamp.getLastModified()),
+                ADMIN_LIST_CACHE,
+                () -> postService.getPostsByAuthor(authorId));
     }
 
     @GetMapping("/status/{status}")
-    public ResponseEntity<List<PostResponse>> getPostsByStatus(@PathVariable String status) {
-        return ResponseEntity.ok(postService.getPostsByStatus(status));
+    public ResponseEntity<List<PostSummary>> getPostsByStatus(@PathVariable String status, WebRequest webRequest) {
+        ChangeStamp stamp = postService.getPostsStampByStatus(status);
+        return ConditionalGet.respond(webRequest,
+                ETags.of("posts-status", status, stamp.getLastModified(), stamp.getTotal(), stamp.getGeneration()),
+                ETags.lastModified(stamp.getLastModified()),
+                ADMIN_LIST_CACHE,
+                () -> postService.getPostsByStatus(status));
     }
 
     @PutMapping(value = "/{id}", consumes = {"multipart/form-data"})
@@ -85,4 +215,30 @@ public class PostController {
         return ResponseEntity.noContent().build();
     }
 
+    // the detail comes from PostDetailCache, so on a 304 only the validators are computed;
+    // it embeds the category and author names and the thumbnail url, so their update times are part of the tag
+    private static ResponseEntity<PostResponse> respondWithPost(PostResponse post, WebRequest webRequest) {
+        return ConditionalGet.respond(webRequest,
+                ETags.of("post", post.getId(), post.getUpdatedAt(), post.getCategoryUpdatedAt(), post.getAuthorUpdatedAt(),
+                        post.getMediaUpdatedAt()),
+                ETags.lastModified(post.getUpdatedAt(), post.getCategoryUpdatedAt(), post.getAuthorUpdatedAt(),
+                        post.getMediaUpdatedAt()),
+                DETAIL_CACHE,
+                () -> post);
+    }
+
+    // a cursor that does not decode is the client's mistake, not a server error
+    private static boolean isValid(String cursor, Function<String, ?> decoder) {
+        try {
+            decoder.apply(cursor);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static int clampSize(int size) {
+        return Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+    }
+
 }
@@ -0,0 +1,41 @@
+package com.cagongu2.be.controller;
+
+import com.cagongu2.be.dto.search.response.ReindexStatusResponse;
+import com.cagongu2.be.service.PostReindexService;
+import com.cagongu2.be.service.PostSearchEngine;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/admin/search-index")
+@RequiredArgsConstructor
+public class SearchIndexController {
+    private final PostReindexService postReindexService;
+    private final PostSearchEngine postSearchEngine;
+
+    @PostMapping("/reindex")
+    public ResponseEntity<ReindexStatusResponse> reindex(
+            @RequestParam(defaultValue = "true") boolean resume,
+            @RequestParam(defaultValue = "false") boolean recreate) {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(postReindexService.start(resume, recreate));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(postReindexService.getStatus());
+        }
+    }
+
+    @PostMapping("/lucene/rebuild")
+    public ResponseEntity<Void> rebuildLucene() {
+        // refused when the embedded index is disabled or a rebuild is already running
+        return postSearchEngine.startLuceneRebuild()
+                ? ResponseEntity.status(HttpStatus.ACCEPTED).build()
+                : ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
+
+    @GetMapping("/reindex")
+    public ResponseEntity<ReindexStatusResponse> getReindexStatus() {
+        return ResponseEntity.ok(postReindexService.getStatus());
+    }
+}
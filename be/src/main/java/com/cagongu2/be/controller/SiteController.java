@@ -0,0 +1,34 @@
+package com.cagongu2.be.controller;
+
+import com.cagongu2.be.service.SiteBootstrapCache;
+import com.cagongu2.be.service.SiteBootstrapService;
+import com.cagongu2.be.util.ConditionalGet;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+@RestController
+@RequestMapping("/api/site")
+@RequiredArgsConstructor
+public class SiteController {
+    // revalidated on every page load, a 304 costs one digest comparison
+    private static final CacheControl BOOTSTRAP_CACHE = CacheControl.noCache().cachePublic();
+
+    private final SiteBootstrapService siteBootstrapService;
+
+    @GetMapping("/bootstrap")
+    public ResponseEntity<byte[]> getBootstrap(WebRequest webRequest) {
+        SiteBootstrapCache.Payload payload = siteBootstrapService.getBootstrap();
+        return ConditionalGet.respond(webRequest,
+                payload.etag(),
+                -1,
+                BOOTSTRAP_CACHE,
+                MediaType.APPLICATION_JSON,
+                payload::body);
+    }
+}
@@ -0,0 +1,22 @@
+package com.cagongu2.be.controller;
+
+import com.cagongu2.be.dto.upload.response.UploadGcReport;
+import com.cagongu2.be.service.UploadGarbageCollector;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/admin/uploads")
+@RequiredArgsConstructor
+public class UploadAdminController {
+    private final UploadGarbageCollector uploadGarbageCollector;
+
+    @GetMapping("/gc")
+    public ResponseEntity<UploadGcReport> getGcReport() {
+        UploadGcReport report = uploadGarbageCollector.getLastReport();
+        return report != null ? ResponseEntity.ok(report) : ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,21 @@
+package com.cagongu2.be.dto;
+
+/**
+ * One (category, post) pair of the navigation query. A category without posts appears once
+ * with null post columns.
+ */
+public interface CategoryPostRow {
+    Long getCategoryId();
+
+    String getCategoryName();
+
+    Boolean getIsActive();
+
+    Long getParentId();
+
+    Long getPostId();
+
+    String getPostName();
+
+    String getPostSlug();
+}
@@ -0,0 +1,24 @@
+package com.cagongu2.be.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * One category row without any association, what the in-memory category tree is built from.
+ */
+public interface CategoryRow {
+    Long getId();
+
+    String getName();
+
+    String getSlug();
+
+    String getDescription();
+
+    Integer getLevel();
+
+    Boolean getIsActive();
+
+    Long getParentId();
+
+    LocalDateTime getUpdatedAt();
+}
@@ -0,0 +1,19 @@
+package com.cagongu2.be.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Latest update time and row count of a set of rows. Together they change whenever a row
+ * in the set is inserted, updated or deleted, which is what list ETags are built from.
+ * Stamps read from a counter row also carry its generation, which changes on every write
+ * even within the same second.
+ */
+public interface ChangeStamp {
+    LocalDateTime getLastModified();
+
+    Long getTotal();
+
+    default Long getGeneration() {
+        return null;
+    }
+}
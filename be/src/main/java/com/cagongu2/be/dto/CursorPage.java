@@ -0,0 +1,28 @@
+package com.cagongu2.be.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CursorPage<T> {
+    @Builder.Default
+    private List<T> content = new ArrayList<>();
+    private int size;
+    private boolean hasNext;
+    // opaque, pass back as ?cursor= to fetch the next page
+    private String nextCursor;
+    // only filled when the caller asks for it, counting is what makes offset paging slow
+    private Long totalElements;
+    // false when totalElements is only a lower bound (search stops counting past a limit)
+    private Boolean totalExact;
+}
@@ -0,0 +1,44 @@
+package com.cagongu2.be.dto.cache.response;
+
+import com.cagongu2.be.util.SingleFlight;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CacheStatsResponse {
+    private String name;
+    private long size;
+    private long hitCount;
+    private long missCount;
+    private double hitRate;
+    private long evictionCount;
+    private long evictionWeight;
+    // database loads behind the misses, and misses that waited for a load already running
+    private long loadCount;
+    private long coalescedCount;
+
+    public static CacheStatsResponse of(String name, long size, CacheStats stats) {
+        return CacheStatsResponse.builder()
+                .name(name)
+                .size(size)
+                .hitCount(stats.hitCount())
+                .missCount(stats.missCount())
+                .hitRate(stats.hitRate())
+                .evictionCount(stats.evictionCount())
+                .evictionWeight(stats.evictionWeight())
+                .build();
+    }
+
+    public static CacheStatsResponse of(String name, long size, CacheStats stats, SingleFlight<?, ?> loads) {
+        CacheStatsResponse response = of(name, size, stats);
+        response.setLoadCount(loads.getLoadCount());
+        response.setCoalescedCount(loads.getCoalescedCount());
+        return response;
+    }
+}
@@ -0,0 +1,16 @@
+package com.cagongu2.be.dto.category.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CategoryBreadcrumb {
+    private Long id;
+    private String name;
+    private String slug;
+}
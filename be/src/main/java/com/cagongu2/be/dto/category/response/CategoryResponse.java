@@ -0,0 +1,34 @@
+package com.cagongu2.be.dto.category.response;
+
+import com.cagongu2.be.dto.post.response.PostSummary;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * A category as the API returns it. children and postList are only present when the request
+ * asked for them with include=children / include=posts.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CategoryResponse {
+    private Long id;
+    private String name;
+    private String slug;
+    private String description;
+    private Integer level;
+    private Boolean isActive;
+    private Long parentId;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<CategoryResponse> children;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<PostSummary> postList;
+}
@@ -0,0 +1,16 @@
+package com.cagongu2.be.dto.post.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PostCountResponse {
+    private String dimension;
+    private String key;
+    private Long count;
+}
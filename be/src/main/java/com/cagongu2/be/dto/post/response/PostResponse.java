@@ -1,5 +1,6 @@
 package com.cagongu2.be.dto.post.response;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.*;
 
 import java.time.LocalDateTime;
@@ -26,4 +27,15 @@ public class PostResponse {
 
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+
+    // validators of the embedded names, for the detail ETag
+    @JsonIgnore
+    private LocalDateTime categoryUpdatedAt;
+
+    @JsonIgnore
+    private LocalDateTime authorUpdatedAt;
+
+    // a moved thumbnail changes thumbnail_url without changing updatedAt
+    @JsonIgnore
+    private LocalDateTime mediaUpdatedAt;
 }
\ No newline at end of file
@@ -0,0 +1,36 @@
+package com.cagongu2.be.dto.post.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.LocalDateTime;
+
+/**
+ * List view of a post, selected column by column in PostRepository so the
+ * content column is never read. Same JSON shape as PostResponse minus content.
+ */
+public interface PostSummary {
+    Long getId();
+
+    String getName();
+
+    String getTitle();
+
+    String getSlug();
+
+    String getStatus();
+
+    Long getCategoryId();
+
+    String getCategoryName();
+
+    Long getAuthorId();
+
+    String getAuthorName();
+
+    @JsonProperty("thumbnail_url")
+    String getThumbnailUrl();
+
+    LocalDateTime getCreatedAt();
+
+    LocalDateTime getUpdatedAt();
+}
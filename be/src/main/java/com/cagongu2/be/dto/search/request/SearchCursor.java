@@ -0,0 +1,43 @@
+package com.cagongu2.be.dto.search.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Sort values of the last hit of a search page in the (_score DESC, id ASC) ordering,
+ * passed back to Elasticsearch as search_after. Clients only see the encoded form.
+ */
+@Getter
+@AllArgsConstructor
+public class SearchCursor {
+    private static final String SEPARATOR = "|";
+
+    private double score;
+    private long id;
+
+    public List<Object> toSearchAfter() {
+        return List.of(score, id);
+    }
+
+    public String encode() {
+        String raw = score + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static SearchCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int idx = raw.lastIndexOf(SEPARATOR);
+            if (idx <= 0) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            return new SearchCursor(Double.parseDouble(raw.substring(0, idx)), Long.parseLong(raw.substring(idx + 1)));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.cagongu2.be.dto.search.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One search result without the article body. highlights holds escaped HTML fragments
+ * per field ("title", "content") with matches wrapped in &lt;em&gt;.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class PostSearchHit {
+    private Long id;
+    private String name;
+    private String title;
+    private String slug;
+    private String authorName;
+    private String thumbnail_url;
+    private float score;
+    private Map<String, List<String>> highlights;
+}
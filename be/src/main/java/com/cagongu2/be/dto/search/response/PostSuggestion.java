@@ -0,0 +1,18 @@
+package com.cagongu2.be.dto.search.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PostSuggestion {
+    private Long id;
+    private String title;
+    private String slug;
+    // the title suffix or name that matched the typed prefix
+    private String text;
+}
@@ -0,0 +1,28 @@
+package com.cagongu2.be.dto.search.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReindexStatusResponse {
+    private String status;
+    private boolean running;
+    private Long lastCompletedId;
+    private Long maxId;
+    private double progressPercent;
+    private long indexedCount;
+    private long completedBatches;
+    private long failedBatches;
+    private int inFlightBatches;
+    private double docsPerSecond;
+    private LocalDateTime startedAt;
+    private LocalDateTime updatedAt;
+    private String lastError;
+}
@@ -0,0 +1,26 @@
+package com.cagongu2.be.dto.site.response;
+
+import com.cagongu2.be.dto.category.response.CategoryResponse;
+import com.cagongu2.be.dto.footer.response.FooterResponse;
+import com.cagongu2.be.model.Image;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything the site chrome needs on every page: the active footer, the branding images by
+ * type and the root categories with their children and each one's newest post links.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SiteBootstrapResponse {
+    private List<FooterResponse> footers;
+    private Map<String, Image> images;
+    private List<CategoryResponse> categories;
+}
@@ -0,0 +1,15 @@
+package com.cagongu2.be.dto.upload.request;
+
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ChunkedUploadRequest {
+    private String fileName;
+    private Long size;
+    // optional, the server default is used when missing
+    private Integer chunkSize;
+}
@@ -0,0 +1,25 @@
+package com.cagongu2.be.dto.upload.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ChunkedUploadResponse {
+    private String uploadId;
+    private String type;
+    private String fileName;
+    private long size;
+    private int chunkSize;
+    private int chunkCount;
+    // what a resuming client can skip
+    private List<Integer> receivedChunks;
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,25 @@
+package com.cagongu2.be.dto.upload.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UploadGcReport {
+    private LocalDateTime startedAt;
+    private long durationMs;
+    private long scannedFiles;
+    private long quarantinedFiles;
+    private long quarantinedBytes;
+    private long purgedFiles;
+    private long purgedBytes;
+    // true when the run reached the end of the upload tree, the next one starts over
+    private boolean passCompleted;
+    private long purgedBytesTotal;
+}
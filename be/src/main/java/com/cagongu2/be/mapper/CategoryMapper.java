@@ -0,0 +1,17 @@
+package com.cagongu2.be.mapper;
+
+import com.cagongu2.be.dto.category.response.CategoryResponse;
+import com.cagongu2.be.model.Category;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.factory.Mappers;
+
+@Mapper(componentModel = "spring")
+public interface CategoryMapper {
+    CategoryMapper INSTANCE = Mappers.getMapper(CategoryMapper.class);
+
+    @Mapping(source = "parent.id", target = "parentId")
+    @Mapping(target = "children", ignore = true)
+    @Mapping(target = "postList", ignore = true)
+    CategoryResponse toResponse(Category category);
+}
@@ -20,6 +20,7 @@ public interface FooterMapper {
 
     @Mapping(target = "postList", ignore = true)
     @Mapping(target = "id", ignore = true)
+    @Mapping(target = "updatedAt", ignore = true)
     Footer toEntity(FooterRequest request);
 
     @Mapping(source = "postList", target = "postList")
@@ -27,6 +28,7 @@ public interface FooterMapper {
 
     @Mapping(target = "postList", ignore = true)
     @Mapping(target = "id", ignore = true)
+    @Mapping(target = "updatedAt", ignore = true)
     void updateEntityFromRequest(FooterRequest request, @MappingTarget Footer footer);
 
     default List<PostDTO> mapPostList(List<Post> posts) {
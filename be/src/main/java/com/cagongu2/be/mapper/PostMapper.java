@@ -2,19 +2,64 @@ package com.cagongu2.be.mapper;
 
 import com.cagongu2.be.dto.post.response.PostResponse;
 import com.cagongu2.be.model.Post;
+import com.cagongu2.be.model.elasticsearch.PostDocument;
+import com.cagongu2.be.util.HtmlText;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.factory.Mappers;
+import org.springframework.data.elasticsearch.core.suggest.Completion;
 
-@Mapper(componentModel = "spring")
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+@Mapper(componentModel = "spring", imports = HtmlText.class)
 public interface PostMapper {
 
     PostMapper INSTANCE = Mappers.getMapper(PostMapper.class);
 
+    int MAX_SUGGEST_SUFFIXES = 6;
+
     @Mapping(source = "category.id", target = "categoryId")
     @Mapping(source = "category.name", target = "categoryName")
+    @Mapping(source = "category.updatedAt", target = "categoryUpdatedAt")
     @Mapping(source = "author.id", target = "authorId")
     @Mapping(source = "author.username", target = "authorName")
+    @Mapping(source = "author.updatedAt", target = "authorUpdatedAt")
     @Mapping(source = "thumbnail.url", target = "thumbnail_url")
     PostResponse toPostResponse(Post post);
+
+    @Mapping(source = "thumbnail.url", target = "thumbnail_url")
+    @Mapping(source = "author.username", target = "authorName")
+    @Mapping(target = "content", expression = "java(HtmlText.toPlainText(post.getContent()))")
+    @Mapping(target = "suggest", expression = "java(toSuggest(post))")
+    @Mapping(target = "version", expression = "java(toIndexVersion(post))")
+    PostDocument toPostDocument(Post post);
+
+    // every write of an indexed field sets updatedAt or mediaUpdatedAt, so the later one orders the states of a post
+    default Long toIndexVersion(Post post) {
+        LocalDateTime changedAt = post.getUpdatedAt() != null ? post.getUpdatedAt() : post.getCreatedAt();
+        if (post.getMediaUpdatedAt() != null && (changedAt == null || post.getMediaUpdatedAt().isAfter(changedAt))) {
+            changedAt = post.getMediaUpdatedAt();
+        }
+        return changedAt != null ? changedAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : 0L;
+    }
+
+    // completion only matches from the start of an input, so later words of the title get their own inputs
+    default Completion toSuggest(Post post) {
+        Set<String> inputs = new LinkedHashSet<>();
+        if (post.getTitle() != null) {
+            String[] words = post.getTitle().trim().split("\\s+");
+            for (int i = 0; i < Math.min(words.length, MAX_SUGGEST_SUFFIXES); i++) {
+                inputs.add(String.join(" ", Arrays.asList(words).subList(i, words.length)));
+            }
+        }
+        if (post.getName() != null && !post.getName().isBlank()) {
+            inputs.add(post.getName().trim());
+        }
+        inputs.removeIf(String::isBlank);
+        return inputs.isEmpty() ? null : new Completion(inputs.toArray(String[]::new));
+    }
 }
@@ -3,8 +3,11 @@ package com.cagongu2.be.model;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.UpdateTimestamp;
 import org.w3c.dom.stylesheets.LinkStyle;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -40,6 +43,7 @@ public class Footer {
     @Builder.Default
     @OneToMany(mappedBy = "footer", cascade = CascadeType.ALL)
     @JsonManagedReference
+    @BatchSize(size = 50)
     private List<Post> postList = new ArrayList<>();
 
     private String facebookUrl;
@@ -50,4 +54,8 @@ public class Footer {
 
     @Builder.Default
     private Boolean isActive = true;
+
+    @Column(name = "updated_at")
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
 }
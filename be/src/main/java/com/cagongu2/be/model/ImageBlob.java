@@ -0,0 +1,36 @@
+package com.cagongu2.be.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * An uploaded file, stored once under its SHA-256 name however often the same bytes are
+ * uploaded. The row is what uploads and UploadGarbageCollector lock on; whether the file is
+ * still used is decided by the collector from the image rows and post bodies, not stored here.
+ */
+@Entity
+@Table(name = "image_blobs", indexes = {
+        @Index(name = "idx_image_blobs_sha256", columnList = "sha256")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ImageBlob {
+    /** The relative url, images/&lt;type&gt;/&lt;sha256&gt;.&lt;ext&gt;. */
+    @Id
+    @Column(length = 255)
+    private String path;
+
+    @Column(nullable = false, length = 64)
+    private String sha256;
+
+    @Column(name = "size_bytes", nullable = false)
+    private Long sizeBytes;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+}
@@ -2,7 +2,6 @@ package com.cagongu2.be.model;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import com.fasterxml.jackson.annotation.JsonIgnore;
-import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -11,6 +10,10 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "posts", uniqueConstraints = {
         @UniqueConstraint(columnNames = "slug")
+}, indexes = {
+        @Index(name = "idx_posts_created_at_id", columnList = "created_at, id"),
+        @Index(name = "idx_posts_updated_at", columnList = "updated_at"),
+        @Index(name = "idx_posts_category_updated_at", columnList = "category_id, updated_at")
 })
 @Getter
 @Setter
@@ -29,8 +32,10 @@ public class Post {
 
     private String slug;
 
-    @Column(columnDefinition = "TEXT")
-    private String content;
+    @OneToOne(cascade = CascadeType.ALL, fetch = FetchType.LAZY, orphanRemoval = true)
+    @JoinColumn(name = "content_id")
+    @JsonIgnore
+    private PostContent body;
 
     private String status;
 
@@ -49,9 +54,8 @@ public class Post {
     @JsonBackReference
     private User author;
 
-    @OneToOne(cascade = CascadeType.ALL)
+    @OneToOne(cascade = CascadeType.ALL, fetch = FetchType.LAZY, orphanRemoval = true)
     @JoinColumn(name = "thumbnail_id")
-    @JsonManagedReference
     private Image thumbnail;
 
     @Column(name = "created_at")
@@ -59,4 +63,38 @@ public class Post {
 
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
+
+    // the body as stored before post_contents, read until PostContentMigration has moved it;
+    // drop the mapping together with the column once the migration has run everywhere
+    @Column(name = "content", columnDefinition = "TEXT")
+    @JsonIgnore
+    private String legacyContent;
+
+    // set when something outside the editor changes what the post renders (a thumbnail moved to a
+    // new url), so caches and post-index pick it up without touching the editorial updatedAt
+    @Column(name = "media_updated_at")
+    private LocalDateTime mediaUpdatedAt;
+
+    // only detail and indexing reads fetch the body, touching it elsewhere costs an extra select
+    @JsonIgnore
+    public String getContent() {
+        return body != null ? body.getText() : legacyContent;
+    }
+
+    public void setContent(String content) {
+        if (body == null) {
+            if (content == null) {
+                return;
+            }
+            body = new PostContent();
+        }
+        body.setText(content);
+        legacyContent = null;
+    }
+
+    public static class PostBuilder {
+        public PostBuilder content(String content) {
+            return body(content != null ? PostContent.builder().text(content).build() : null);
+        }
+    }
 }
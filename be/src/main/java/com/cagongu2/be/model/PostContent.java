@@ -0,0 +1,27 @@
+package com.cagongu2.be.model;
+
+import com.cagongu2.be.util.CompressedTextConverter;
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Article body, kept out of the posts row so list, count and index scans never read it.
+ * Stored compressed and inflated only when a detail or indexing read loads this entity.
+ */
+@Entity
+@Table(name = "post_contents")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PostContent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Convert(converter = CompressedTextConverter.class)
+    @Column(name = "body", columnDefinition = "MEDIUMBLOB")
+    private String text;
+}
@@ -0,0 +1,56 @@
+package com.cagongu2.be.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Number of posts per category, author and status, plus the overall total under ALL. Kept
+ * up to date by PostCounterService in the transaction that writes the post, and repaired by
+ * PostCounterReconciler. The generation goes up on every write to a post in the row's set, so
+ * together with the count it stamps list responses without scanning posts.
+ */
+@Entity
+@Table(name = "post_counters")
+@IdClass(PostCounter.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PostCounter {
+    public enum Dimension {
+        ALL,
+        CATEGORY,
+        AUTHOR,
+        STATUS
+    }
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16)
+    private Dimension dimension;
+
+    @Id
+    @Column(name = "dimension_key", length = 64)
+    private String dimensionKey;
+
+    @Column(name = "post_count", nullable = false)
+    private Long postCount;
+
+    @Column(nullable = false)
+    private Long generation;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Dimension dimension;
+        private String dimensionKey;
+    }
+}
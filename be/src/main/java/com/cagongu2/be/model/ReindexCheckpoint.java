@@ -0,0 +1,44 @@
+package com.cagongu2.be.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress of a bulk reindex. Every post with id <= lastCompletedId is known to be indexed,
+ * so a restarted job continues from there.
+ */
+@Entity
+@Table(name = "reindex_checkpoints")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReindexCheckpoint {
+    @Id
+    @Column(name = "job_name", length = 64)
+    private String jobName;
+
+    @Column(name = "last_completed_id", nullable = false)
+    private Long lastCompletedId;
+
+    @Column(name = "max_id", nullable = false)
+    private Long maxId;
+
+    @Column(nullable = false, length = 16)
+    private String status;
+
+    @Column(name = "indexed_count", nullable = false)
+    private Long indexedCount;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -6,31 +6,51 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.elasticsearch.annotations.CompletionField;
 import org.springframework.data.elasticsearch.annotations.Document;
 import org.springframework.data.elasticsearch.annotations.Field;
 import org.springframework.data.elasticsearch.annotations.FieldType;
+import org.springframework.data.elasticsearch.core.suggest.Completion;
 
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-@Document(indexName = "post-index")
+@Document(indexName = "post-index", createIndex = false, versionType = Document.VersionType.EXTERNAL)
 public class PostDocument {
     @Id
     private Long id;
 
+    /*
+     * Sent as an external version (the post's updatedAt in millis), so Elasticsearch rejects a write
+     * that carries an older state than the indexed one, e.g. a reindex range read before a relay write.
+     */
+    @Version
+    private Long version;
+
     @Field(type = FieldType.Text)
     private String name;
 
     @Field(type = FieldType.Text)
     private String title;
 
+    // the plain text of the body (PostMapper.toPostDocument strips the HTML), so matches and
+    // highlighted snippets never land in tag names or attribute values
     @Field(type = FieldType.Text)
     private String content;
 
     @Field(type = FieldType.Keyword)
     private String slug;
 
+    // shown next to a search result, not searched
+    @Field(type = FieldType.Keyword, index = false)
+    private String authorName;
+
     @Field(type = FieldType.Text)
     private String thumbnail_url;
+
+    // title and name inputs for the typeahead completion suggester, see PostMapper.toSuggest
+    @CompletionField(maxInputLength = 100)
+    private Completion suggest;
 }
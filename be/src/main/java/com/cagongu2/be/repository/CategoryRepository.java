@@ -1,13 +1,17 @@
 package com.cagongu2.be.repository;
 
-import com.cagongu2.be.dto.CategoryFlatDTO;
+import com.cagongu2.be.dto.CategoryPostRow;
+import com.cagongu2.be.dto.CategoryRow;
 import com.cagongu2.be.model.Category;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.query.Param;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface CategoryRepository extends JpaRepository<Category, Long> {
 
@@ -15,11 +19,16 @@ public interface CategoryRepository extends JpaRepository<Category, Long> {
 
     boolean existsBySlug(String slug);
 
-    @Query("SELECT c FROM Category c WHERE c.level = :level")
-    List<Category> findByLevel(@Param("level") int level);
-
-    @Query("SELECT new com.cagongu2.be.dto.CategoryFlatDTO(c.id, c.name, c.slug, c.description, c.isActive, p.id) " +
-            "FROM Category c LEFT JOIN c.parent p")
-    List<CategoryFlatDTO> findAllFlat();
+    @Query("SELECT c.id AS id, c.name AS name, c.slug AS slug, c.description AS description, c.level AS level, " +
+            "c.isActive AS isActive, p.id AS parentId, c.updatedAt AS updatedAt " +
+            "FROM Category c LEFT JOIN c.parent p ORDER BY c.id")
+    List<CategoryRow> findAllRows();
+
+    // ordered by category so callers can group while streaming; MIN_VALUE makes Connector/J stream rows
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "-2147483648"))
+    @Query("SELECT c.id AS categoryId, c.name AS categoryName, c.isActive AS isActive, pa.id AS parentId, " +
+            "p.id AS postId, p.name AS postName, p.slug AS postSlug " +
+            "FROM Category c LEFT JOIN c.parent pa LEFT JOIN c.postList p ORDER BY c.id, p.id")
+    Stream<CategoryPostRow> streamNavigationRows();
 
 }
\ No newline at end of file
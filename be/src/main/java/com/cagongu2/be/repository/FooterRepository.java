@@ -1,8 +1,9 @@
 package com.cagongu2.be.repository;
 
+import com.cagongu2.be.dto.ChangeStamp;
 import com.cagongu2.be.model.Footer;
-import org.mapstruct.Mapper;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -10,4 +11,7 @@ import java.util.List;
 @Repository
 public interface FooterRepository extends JpaRepository<Footer, Long> {
     List<Footer> findByIsActive(Boolean isActive);
+
+    @Query("SELECT MAX(f.updatedAt) AS lastModified, COUNT(f) AS total FROM Footer f")
+    ChangeStamp findStamp();
 }
@@ -0,0 +1,32 @@
+package com.cagongu2.be.repository;
+
+import com.cagongu2.be.model.ImageBlob;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+@Repository
+public interface ImageBlobRepository extends JpaRepository<ImageBlob, String> {
+
+    // inserts or, for bytes already stored, locks the existing row until the transaction ends
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO image_blobs (path, sha256, size_bytes, created_at) " +
+            "VALUES (:path, :sha256, :sizeBytes, NOW()) " +
+            "ON DUPLICATE KEY UPDATE size_bytes = size_bytes",
+            nativeQuery = true)
+    void register(@Param("path") String path,
+                  @Param("sha256") String sha256,
+                  @Param("sizeBytes") long sizeBytes);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM ImageBlob b WHERE b.path = :path")
+    Optional<ImageBlob> findForUpdate(@Param("path") String path);
+}
@@ -1,7 +1,11 @@
 package com.cagongu2.be.repository;
 
 import com.cagongu2.be.model.Image;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -9,4 +13,12 @@ import java.util.List;
 @Repository
 public interface ImageRepository extends JpaRepository<Image, Long> {
     List<Image> findAllByType(String type);
+
+    List<Image> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    long countByUrl(String url);
+
+    @Modifying
+    @Query("UPDATE Image i SET i.url = :newUrl WHERE i.url = :oldUrl")
+    int updateUrl(@Param("oldUrl") String oldUrl, @Param("newUrl") String newUrl);
 }
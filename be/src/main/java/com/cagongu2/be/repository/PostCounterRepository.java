@@ -0,0 +1,28 @@
+package com.cagongu2.be.repository;
+
+import com.cagongu2.be.model.PostCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface PostCounterRepository extends JpaRepository<PostCounter, PostCounter.Key> {
+
+    // a single statement, so concurrent writers add up instead of overwriting each other
+    @Modifying
+    @Query(value = "INSERT INTO post_counters (dimension, dimension_key, post_count, generation, updated_at) " +
+            "VALUES (:dimension, :dimensionKey, GREATEST(:delta, 0), 1, NOW()) " +
+            "ON DUPLICATE KEY UPDATE post_count = GREATEST(post_count + :delta, 0), " +
+            "generation = generation + 1, updated_at = NOW()",
+            nativeQuery = true)
+    void increment(@Param("dimension") String dimension,
+                   @Param("dimensionKey") String dimensionKey,
+                   @Param("delta") long delta);
+
+    @Modifying
+    @Query(value = "UPDATE post_counters SET generation = generation + 1, updated_at = NOW() WHERE dimension = :dimension",
+            nativeQuery = true)
+    int touchAll(@Param("dimension") String dimension);
+}
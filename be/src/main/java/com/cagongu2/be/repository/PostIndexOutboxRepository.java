@@ -0,0 +1,25 @@
+package com.cagongu2.be.repository;
+
+import com.cagongu2.be.model.PostIndexOutbox;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface PostIndexOutboxRepository extends JpaRepository<PostIndexOutbox, Long> {
+
+    // SKIP LOCKED (-2) lets several instances relay side by side without picking the same rows
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT o FROM PostIndexOutbox o WHERE o.nextAttemptAt <= :now ORDER BY o.id")
+    List<PostIndexOutbox> findReady(@Param("now") LocalDateTime now, Limit limit);
+}
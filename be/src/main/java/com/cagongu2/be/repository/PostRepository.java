@@ -1,26 +1,134 @@
 package com.cagongu2.be.repository;
 
-import com.cagongu2.be.dto.post.response.PostResponse;
+import com.cagongu2.be.dto.post.response.PostSummary;
 import com.cagongu2.be.model.Post;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface PostRepository extends JpaRepository<Post, Long> {
 
+    String SUMMARY_SELECT = "SELECT p.id AS id, p.name AS name, p.title AS title, p.slug AS slug, p.status AS status, " +
+            "c.id AS categoryId, c.name AS categoryName, a.id AS authorId, a.username AS authorName, " +
+            "t.url AS thumbnailUrl, p.createdAt AS createdAt, p.updatedAt AS updatedAt " +
+            "FROM Post p LEFT JOIN p.category c LEFT JOIN p.author a LEFT JOIN p.thumbnail t ";
+
+    String TITLE_LIKE = "LOWER(p.title) LIKE LOWER(CONCAT('%', :keyword, '%')) ";
+
+    String LATEST_FIRST = "ORDER BY p.createdAt DESC, p.id DESC";
+
+    // native twin of SUMMARY_SELECT for MATCH ... AGAINST, which JPQL cannot express
+    String NATIVE_SUMMARY_SELECT = "SELECT p.id AS id, p.name AS name, p.title AS title, p.slug AS slug, p.status AS status, " +
+            "c.id AS categoryId, c.name AS categoryName, a.id AS authorId, a.username AS authorName, " +
+            "t.url AS thumbnailUrl, p.created_at AS createdAt, p.updated_at AS updatedAt " +
+            "FROM posts p LEFT JOIN categories c ON c.id = p.category_id " +
+            "LEFT JOIN users a ON a.id = p.author_id LEFT JOIN image t ON t.id = p.thumbnail_id ";
+
+    String TITLE_MATCH = "MATCH(p.title) AGAINST (:query IN BOOLEAN MODE) ";
+
+    // detail reads: one statement for the post plus everything PostMapper dereferences
+    @EntityGraph(attributePaths = {"category", "author", "thumbnail", "body"})
     Optional<Post> findBySlug(String slug);
 
-    List<Post> findByCategoryId(Long categoryId);
+    @EntityGraph(attributePaths = {"category", "author", "thumbnail", "body"})
+    @Query("SELECT p FROM Post p WHERE p.id = :id")
+    Optional<Post> findDetailById(@Param("id") Long id);
+
+    @EntityGraph(attributePaths = {"thumbnail"})
+    List<Post> findAllByCategoryIdIn(Collection<Long> categoryIds);
+
+    long countByTitleContainingIgnoreCase(String keyword);
+
+    @Query("SELECT p.id FROM Post p WHERE p.thumbnail.url = :url")
+    List<Long> findIdsByThumbnailUrl(@Param("url") String url);
+
+    @Modifying
+    @Query("UPDATE Post p SET p.mediaUpdatedAt = :mediaUpdatedAt WHERE p.id IN :ids")
+    int markMediaUpdated(@Param("ids") Collection<Long> ids, @Param("mediaUpdatedAt") LocalDateTime mediaUpdatedAt);
+
+    @EntityGraph(attributePaths = {"author", "thumbnail", "body"})
+    @Query("SELECT p FROM Post p WHERE p.id IN :ids")
+    List<Post> findAllForIndexing(@Param("ids") Collection<Long> ids);
+
+    @EntityGraph(attributePaths = {"author", "thumbnail", "body"})
+    @Query("SELECT p FROM Post p WHERE p.id > :fromId AND p.id <= :toId ORDER BY p.id")
+    List<Post> findAllForIndexingInRange(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    @Query("SELECT p.id FROM Post p WHERE p.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT p.id FROM Post p WHERE p.id > :lastId AND p.legacyContent IS NOT NULL ORDER BY p.id")
+    List<Long> findIdsWithLegacyContent(@Param("lastId") Long lastId, Limit limit);
+
+    @Query("SELECT COALESCE(MAX(p.id), 0) FROM Post p")
+    Long findMaxId();
+
+    @Query(value = SUMMARY_SELECT, countQuery = "SELECT COUNT(p) FROM Post p")
+    Page<PostSummary> findAllSummaries(Pageable pageable);
+
+    @Query(value = SUMMARY_SELECT + "WHERE " + TITLE_LIKE,
+            countQuery = "SELECT COUNT(p) FROM Post p WHERE " + TITLE_LIKE)
+    Page<PostSummary> findSummariesByTitle(@Param("keyword") String keyword, Pageable pageable);
+
+    // served by ftx_posts_title_ngram, best matches first
+    @Query(value = NATIVE_SUMMARY_SELECT + "WHERE " + TITLE_MATCH + "ORDER BY " + TITLE_MATCH + "DESC, p.id DESC",
+            countQuery = "SELECT COUNT(*) FROM posts p WHERE " + TITLE_MATCH,
+            nativeQuery = true)
+    Page<PostSummary> searchSummariesByTitle(@Param("query") String query, Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "WHERE c.id = :categoryId")
+    List<PostSummary> findSummariesByCategoryId(@Param("categoryId") Long categoryId);
+
+    @Query(SUMMARY_SELECT + "WHERE c.id IN :categoryIds ORDER BY p.id")
+    List<PostSummary> findSummariesByCategoryIds(@Param("categoryIds") Collection<Long> categoryIds);
+
+    // newest posts first, at most :perCategory of them for each category
+    @Query(value = "SELECT p.id AS id, p.name AS name, p.title AS title, p.slug AS slug, p.status AS status, " +
+            "c.id AS categoryId, c.name AS categoryName, a.id AS authorId, a.username AS authorName, " +
+            "t.url AS thumbnailUrl, p.created_at AS createdAt, p.updated_at AS updatedAt " +
+            "FROM (SELECT r.*, ROW_NUMBER() OVER (PARTITION BY r.category_id ORDER BY r.created_at DESC, r.id DESC) AS rn " +
+            "FROM posts r WHERE r.category_id IN :categoryIds) p " +
+            "LEFT JOIN categories c ON c.id = p.category_id " +
+            "LEFT JOIN users a ON a.id = p.author_id LEFT JOIN image t ON t.id = p.thumbnail_id " +
+            "WHERE p.rn <= :perCategory ORDER BY p.created_at DESC, p.id DESC",
+            nativeQuery = true)
+    List<PostSummary> findLatestSummariesByCategoryIds(@Param("categoryIds") Collection<Long> categoryIds,
+                                                       @Param("perCategory") int perCategory);
+
+    @Query(SUMMARY_SELECT + "WHERE a.id = :authorId")
+    List<PostSummary> findSummariesByAuthorId(@Param("authorId") Long authorId);
+
+    @Query(SUMMARY_SELECT + "WHERE p.status = :status")
+    List<PostSummary> findSummariesByStatus(@Param("status") String status);
+
+    // keyset pagination, both walk idx_posts_created_at_id instead of OFFSET + COUNT(*);
+    // a post without createdAt has no position in that ordering and is left out
+    @Query(SUMMARY_SELECT + "WHERE p.createdAt IS NOT NULL " + LATEST_FIRST)
+    List<PostSummary> findLatest(Limit limit);
 
-    List<Post> findByAuthorId(Long authorId);
+    @Query(SUMMARY_SELECT +
+            "WHERE p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id) " +
+            LATEST_FIRST)
+    List<PostSummary> findLatestBefore(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Limit limit);
 
-    List<Post> findByStatus(String status);
+    @Query(SUMMARY_SELECT + "WHERE " + TITLE_LIKE + "AND p.createdAt IS NOT NULL " + LATEST_FIRST)
+    List<PostSummary> findLatestByTitle(@Param("keyword") String keyword, Limit limit);
 
-    Page<Post> findAll(Pageable pageable);
-    Page<Post> findAllByTitleContainingIgnoreCase(String keyword, Pageable pageable);
-}
\ No newline at end of file
+    @Query(SUMMARY_SELECT + "WHERE " + TITLE_LIKE +
+            "AND (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) " +
+            LATEST_FIRST)
+    List<PostSummary> findLatestByTitleBefore(@Param("keyword") String keyword,
+                                              @Param("createdAt") LocalDateTime createdAt,
+                                              @Param("id") Long id,
+                                              Limit limit);
+}
@@ -0,0 +1,9 @@
+package com.cagongu2.be.repository;
+
+import com.cagongu2.be.model.ReindexCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ReindexCheckpointRepository extends JpaRepository<ReindexCheckpoint, String> {
+}
@@ -1,14 +1,27 @@
 package com.cagongu2.be.repository;
 
 import com.cagongu2.be.model.User;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
 
+    // roles and avatar are what UserMapper reads, posts are batch fetched on demand
+    @Override
+    @EntityGraph(attributePaths = {"roles", "avatar"})
+    Optional<User> findById(Long id);
+
+    @Override
+    @EntityGraph(attributePaths = {"roles", "avatar"})
+    List<User> findAll();
+
+    @EntityGraph(attributePaths = {"roles", "avatar"})
     Optional<User> findByUsername(String username);
 
+    @EntityGraph(attributePaths = {"roles", "avatar"})
     Optional<User> findByEmail(String email);
 
     boolean existsByUsername(String username);
@@ -6,7 +6,7 @@ import org.springframework.data.elasticsearch.repository.ElasticsearchRepository
 
 import java.util.List;
 
-public interface PostSearchRepository extends ElasticsearchRepository<PostDocument, Long> {
+public interface PostSearchRepository extends ElasticsearchRepository<PostDocument, Long>, PostSearchRepositoryCustom {
     @Query("""
             {
               "bool": {
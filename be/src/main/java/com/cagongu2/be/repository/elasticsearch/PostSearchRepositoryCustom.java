@@ -0,0 +1,21 @@
+package com.cagongu2.be.repository.elasticsearch;
+
+import com.cagongu2.be.model.elasticsearch.PostDocument;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.suggest.response.CompletionSuggestion;
+
+import java.util.List;
+
+public interface PostSearchRepositoryCustom {
+    /**
+     * One page of matches ordered by (_score DESC, id ASC), without content in _source.
+     * searchAfter is null for the first page.
+     */
+    SearchHits<PostDocument> searchPage(String keyword, List<Object> searchAfter, int limit);
+
+    /**
+     * Completion suggester lookup on the suggest field, no query is scored. Each option
+     * carries the matched input text and a document with only id, title and slug.
+     */
+    List<CompletionSuggestion.Entry.Option<PostDocument>> suggest(String prefix, int limit);
+}
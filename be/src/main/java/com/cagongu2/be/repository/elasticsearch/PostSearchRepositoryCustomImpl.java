@@ -0,0 +1,118 @@
+package com.cagongu2.be.repository.elasticsearch;
+
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch.core.search.Suggester;
+import com.cagongu2.be.model.elasticsearch.PostDocument;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.client.elc.NativeQueryBuilder;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilterBuilder;
+import org.springframework.data.elasticsearch.core.query.HighlightQuery;
+import org.springframework.data.elasticsearch.core.query.highlight.Highlight;
+import org.springframework.data.elasticsearch.core.query.highlight.HighlightField;
+import org.springframework.data.elasticsearch.core.query.highlight.HighlightFieldParameters;
+import org.springframework.data.elasticsearch.core.query.highlight.HighlightParameters;
+import org.springframework.data.elasticsearch.core.suggest.response.CompletionSuggestion;
+import org.springframework.data.elasticsearch.core.suggest.response.Suggest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Slf4j
+@RequiredArgsConstructor
+public class PostSearchRepositoryCustomImpl implements PostSearchRepositoryCustom {
+    // counting stops here, beyond it the total is reported as a lower bound
+    private static final int TRACK_TOTAL_HITS_UP_TO = 10_000;
+    private static final int SNIPPET_LENGTH = 160;
+    private static final int SNIPPETS_PER_HIT = 2;
+
+    private static final HighlightQuery HIGHLIGHT = new HighlightQuery(new Highlight(
+            HighlightParameters.builder()
+                    .withPreTags("<em>")
+                    .withPostTags("</em>")
+                    .withEncoder("html")
+                    .build(),
+            List.of(
+                    new HighlightField("title", HighlightFieldParameters.builder()
+                            .withNumberOfFragments(0)
+                            .build()),
+                    new HighlightField("content", HighlightFieldParameters.builder()
+                            .withFragmentSize(SNIPPET_LENGTH)
+                            .withNumberOfFragments(SNIPPETS_PER_HIT)
+                            .build()))),
+            PostDocument.class);
+
+    private static final String SUGGESTION_NAME = "post-suggest";
+
+    private final ElasticsearchOperations elasticsearchOperations;
+
+    @Override
+    public SearchHits<PostDocument> searchPage(String keyword, List<Object> searchAfter, int limit) {
+        // same scoring as PostSearchRepository.searchPosts
+        NativeQueryBuilder builder = NativeQuery.builder()
+                .withQuery(q -> q.bool(b -> b
+                        .must(m -> m.multiMatch(mm -> mm
+                                .query(keyword)
+                                .fields("title^10", "name^3", "content^0.1")
+                                .minimumShouldMatch("100%")))
+                        .should(s -> s.matchPhrase(mp -> mp.field("title").query(keyword).boost(5f)))
+                        .should(s -> s.term(t -> t.field("title.keyword").value(keyword).boost(10f)))))
+                .withSourceFilter(new FetchSourceFilterBuilder().withExcludes("content", "suggest").build())
+                .withHighlightQuery(HIGHLIGHT)
+                // id breaks score ties so search_after never skips or repeats a hit
+                .withSort(s -> s.score(sc -> sc.order(SortOrder.Desc)))
+                .withSort(s -> s.field(f -> f.field("id").order(SortOrder.Asc)))
+                .withPageable(PageRequest.of(0, limit))
+                .withTrackTotalHitsUpTo(TRACK_TOTAL_HITS_UP_TO);
+
+        if (searchAfter != null) {
+            builder.withSearchAfter(searchAfter);
+        }
+
+        return elasticsearchOperations.search(builder.build(), PostDocument.class);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<CompletionSuggestion.Entry.Option<PostDocument>> suggest(String prefix, int limit) {
+        NativeQuery query = NativeQuery.builder()
+                .withSuggester(Suggester.of(s -> s.suggesters(SUGGESTION_NAME, fs -> fs
+                        .prefix(prefix)
+                        .completion(c -> c
+                                .field("suggest")
+                                .size(limit)
+                                .skipDuplicates(true)))))
+                .withSourceFilter(new FetchSourceFilterBuilder().withIncludes("id", "title", "slug").build())
+                .withMaxResults(0)
+                .withTrackTotalHits(false)
+                .build();
+
+        Suggest suggest;
+        try {
+            suggest = elasticsearchOperations.search(query, PostDocument.class).getSuggest();
+        } catch (DataAccessException e) {
+            // typeahead is optional: an index created before the suggest field was mapped (or not yet
+            // reindexed into) rejects the completion query, the search box then just shows no suggestions
+            log.warn("Post suggestions unavailable: {}", e.getMessage());
+            return List.of();
+        }
+        if (suggest == null || suggest.getSuggestion(SUGGESTION_NAME) == null) {
+            return List.of();
+        }
+
+        List<CompletionSuggestion.Entry.Option<PostDocument>> options = new ArrayList<>();
+        for (var entry : suggest.getSuggestion(SUGGESTION_NAME).getEntries()) {
+            for (var option : entry.getOptions()) {
+                if (option instanceof CompletionSuggestion.Entry.Option<?> completion) {
+                    options.add((CompletionSuggestion.Entry.Option<PostDocument>) completion);
+                }
+            }
+        }
+        return options;
+    }
+}
@@ -0,0 +1,232 @@
+package com.cagongu2.be.repository.lucene;
+
+import com.cagongu2.be.model.elasticsearch.PostDocument;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.CharArraySet;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PhraseQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.FSDirectory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * In-process Lucene copy of post-index (title, name and the plain text of content), for
+ * deployments without Elasticsearch and as a fallback when it is unreachable. Scoring mirrors
+ * PostSearchRepository.searchPosts: every term must match in title^10, name^3 or content^0.1,
+ * and a title phrase match adds ^5.
+ * <p>
+ * IndexWriter is thread safe; callers that need a read-then-write to be atomic against
+ * other writers (rebuilds) serialize on their own.
+ */
+@Slf4j
+@Component
+@ConditionalOnExpression("${search.lucene.enabled:false} or '${search.engine:elasticsearch}' == 'lucene'")
+public class PostLuceneIndex {
+    private static final String ID = "id";
+    private static final String ID_POINT = "id_point";
+    private static final String NAME = "name";
+    private static final String TITLE = "title";
+    private static final String CONTENT = "content";
+    private static final String SLUG = "slug";
+    private static final String THUMBNAIL_URL = "thumbnail_url";
+
+    // standard tokenizer + lowercase, no stop words: the same analysis as the ES default analyzer
+    private final Analyzer analyzer = new StandardAnalyzer(CharArraySet.EMPTY_SET);
+    private final FSDirectory directory;
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+
+    public PostLuceneIndex(@Value("${search.lucene.path:data/lucene/posts}") String path) {
+        try {
+            this.directory = FSDirectory.open(Path.of(path));
+            this.writer = new IndexWriter(directory, new IndexWriterConfig(analyzer)
+                    .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+            this.searcherManager = new SearcherManager(writer, null);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open Lucene index at " + path, e);
+        }
+    }
+
+    public void upsert(Collection<PostDocument> documents) {
+        try {
+            for (PostDocument document : documents) {
+                writer.updateDocument(new Term(ID, String.valueOf(document.getId())), toLuceneDocument(document));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void delete(Collection<Long> ids) {
+        try {
+            Term[] terms = ids.stream().map(id -> new Term(ID, String.valueOf(id))).toArray(Term[]::new);
+            writer.deleteDocuments(terms);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Replaces every document with fromId &lt; id &lt;= toId by the given ones. */
+    public void replaceRange(long fromId, long toId, Collection<PostDocument> documents) {
+        try {
+            writer.deleteDocuments(LongPoint.newRangeQuery(ID_POINT, fromId + 1, toId));
+            for (PostDocument document : documents) {
+                writer.addDocument(toLuceneDocument(document));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Makes pending changes visible to searches, and durable when commit is set. */
+    public void publish(boolean commit) {
+        try {
+            if (commit) {
+                writer.commit();
+            }
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public int count() {
+        return writer.getDocStats().numDocs;
+    }
+
+    /** Best matches first, documents carry everything but content. */
+    public List<PostDocument> search(String keyword, int limit) {
+        List<String> terms = analyze(keyword);
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        for (String term : terms) {
+            query.add(new BooleanQuery.Builder()
+                    .add(boosted(TITLE, term, 10f), BooleanClause.Occur.SHOULD)
+                    .add(boosted(NAME, term, 3f), BooleanClause.Occur.SHOULD)
+                    .add(boosted(CONTENT, term, 0.1f), BooleanClause.Occur.SHOULD)
+                    .build(), BooleanClause.Occur.MUST);
+        }
+        if (terms.size() > 1) {
+            query.add(new BoostQuery(new PhraseQuery(TITLE, terms.toArray(String[]::new)), 5f), BooleanClause.Occur.SHOULD);
+        }
+
+        IndexSearcher searcher = null;
+        try {
+            searcher = searcherManager.acquire();
+            ScoreDoc[] hits = searcher.search(query.build(), limit).scoreDocs;
+            StoredFields storedFields = searcher.storedFields();
+
+            List<PostDocument> results = new ArrayList<>(hits.length);
+            for (ScoreDoc hit : hits) {
+                Document document = storedFields.document(hit.doc);
+                results.add(PostDocument.builder()
+                        .id(Long.valueOf(document.get(ID)))
+                        .name(document.get(NAME))
+                        .title(document.get(TITLE))
+                        .slug(document.get(SLUG))
+                        .thumbnail_url(document.get(THUMBNAIL_URL))
+                        .build());
+            }
+            return results;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (searcher != null) {
+                release(searcher);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        searcherManager.close();
+        writer.close();
+        directory.close();
+    }
+
+    private Document toLuceneDocument(PostDocument post) {
+        Document document = new Document();
+        document.add(new StringField(ID, String.valueOf(post.getId()), Field.Store.YES));
+        document.add(new LongPoint(ID_POINT, post.getId()));
+        addText(document, TITLE, post.getTitle(), Field.Store.YES);
+        addText(document, NAME, post.getName(), Field.Store.YES);
+        // already plain text, see PostMapper.toPostDocument
+        addText(document, CONTENT, post.getContent(), Field.Store.NO);
+        if (post.getSlug() != null) {
+            document.add(new StoredField(SLUG, post.getSlug()));
+        }
+        if (post.getThumbnail_url() != null) {
+            document.add(new StoredField(THUMBNAIL_URL, post.getThumbnail_url()));
+        }
+        return document;
+    }
+
+    private static void addText(Document document, String field, String value, Field.Store store) {
+        if (value != null) {
+            document.add(new TextField(field, value, store));
+        }
+    }
+
+    private List<String> analyze(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        try (TokenStream stream = analyzer.tokenStream(TITLE, text)) {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                terms.add(term.toString());
+            }
+            stream.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return terms;
+    }
+
+    private static Query boosted(String field, String term, float boost) {
+        return new BoostQuery(new TermQuery(new Term(field, term)), boost);
+    }
+
+    private void release(IndexSearcher searcher) {
+        try {
+            searcherManager.release(searcher);
+        } catch (IOException e) {
+            log.warn("Failed to release Lucene searcher", e);
+        }
+    }
+}
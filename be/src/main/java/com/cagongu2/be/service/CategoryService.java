@@ -2,28 +2,37 @@ package com.cagongu2.be.service;
 
 import com.cagongu2.be.dto.CategoryDTO;
 import com.cagongu2.be.dto.CategoryFlatDTO;
-import com.cagongu2.be.dto.GetAllCategoriesAndPostDTO;
-import com.cagongu2.be.model.Category;
+import com.cagongu2.be.dto.ChangeStamp;
+import com.cagongu2.be.dto.category.response.CategoryBreadcrumb;
+import com.cagongu2.be.dto.category.response.CategoryResponse;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Optional;
 
 public interface CategoryService {
-    Category createCategory(CategoryDTO category);
+    CategoryResponse createCategory(CategoryDTO category);
 
-    Category updateCategory(Long id, CategoryDTO category);
+    CategoryResponse updateCategory(Long id, CategoryDTO category);
 
     void deleteCategory(Long id);
 
-    Optional<Category> getCategoryById(Long id);
+    Optional<CategoryResponse> getCategoryById(Long id, boolean withChildren, boolean withPosts);
 
-    Optional<Category> getCategoryBySlug(String slug);
+    Optional<CategoryResponse> getCategoryBySlug(String slug, boolean withChildren, boolean withPosts);
 
-    List<Category> getAllCategoriesByLevel(int level);
+    List<CategoryResponse> getAllCategoriesByLevel(int level, boolean withChildren, boolean withPosts);
+
+    List<CategoryResponse> getCategoryMenu(int linksPerCategory);
 
     List<CategoryFlatDTO> getAllCategoriesFlat();
 
-    List<GetAllCategoriesAndPostDTO> getAllCategoriesWithPosts();
+    void writeCategoriesWithPosts(OutputStream out) throws IOException;
+
+    List<CategoryResponse> getChildren(Long parentId, boolean withChildren, boolean withPosts);
+
+    List<CategoryBreadcrumb> getBreadcrumbs(Long id);
 
-    List<Category> getChildren(Long parentId);
+    ChangeStamp getCategoriesStamp();
 }
@@ -2,19 +2,31 @@ package com.cagongu2.be.service;
 
 import com.cagongu2.be.dto.CategoryDTO;
 import com.cagongu2.be.dto.CategoryFlatDTO;
+import com.cagongu2.be.dto.CategoryPostRow;
+import com.cagongu2.be.dto.ChangeStamp;
 import com.cagongu2.be.dto.GetAllCategoriesAndPostDTO;
+import com.cagongu2.be.dto.category.response.CategoryBreadcrumb;
+import com.cagongu2.be.dto.category.response.CategoryResponse;
 import com.cagongu2.be.dto.post.request.PostDTO;
+import com.cagongu2.be.dto.post.response.PostSummary;
+import com.cagongu2.be.mapper.CategoryMapper;
 import com.cagongu2.be.model.Category;
-import com.cagongu2.be.model.Post;
+import com.cagongu2.be.model.PostCounter;
 import com.cagongu2.be.repository.CategoryRepository;
 import com.cagongu2.be.repository.PostRepository;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -22,10 +34,17 @@ import java.util.*;
 public class CategoryServiceImpl implements CategoryService {
 
     private final CategoryRepository categoryRepository;
+    private final PostDetailCache postDetailCache;
+    private final CategoryTreeCache categoryTreeCache;
+    private final SiteBootstrapCache siteBootstrapCache;
+    private final ObjectMapper objectMapper;
+    private final CategoryMapper categoryMapper;
     private final PostRepository postRepository;
+    private final PostCounterService postCounterService;
+    private final PostService postService;
 
     @Override
-    public Category createCategory(CategoryDTO category) {
+    public CategoryResponse createCategory(CategoryDTO category) {
         Optional<Category> parentCategory = Optional.empty();
         if (category.getParent() != null) {
             parentCategory = categoryRepository.findById(category.getParent());
@@ -45,16 +64,21 @@ public class CategoryServiceImpl implements CategoryService {
             newCategory.setLevel(1);
         }
 
-        return categoryRepository.save(newCategory);
+        categoryTreeCache.invalidateAfterCommit();
+        siteBootstrapCache.invalidateAfterCommit();
+        return categoryMapper.toResponse(categoryRepository.save(newCategory));
     }
 
     @Override
     @Transactional
-    public Category updateCategory(Long id, CategoryDTO newCategory) {
+    public CategoryResponse updateCategory(Long id, CategoryDTO newCategory) {
         return categoryRepository.findById(id).map(existing -> {
 
-            if (StringUtils.hasText(newCategory.getName()))
+            if (StringUtils.hasText(newCategory.getName()) && !newCategory.getName().equals(existing.getName())) {
                 existing.setName(newCategory.getName());
+                // post lists carry the category name
+                postCounterService.onRenamed(PostCounter.Dimension.CATEGORY, existing.getId());
+            }
 
             if (StringUtils.hasText(newCategory.getSlug()))
                 existing.setSlug(newCategory.getSlug());
@@ -77,70 +101,202 @@ public class CategoryServiceImpl implements CategoryService {
                 existing.setLevel(0);
             }
 
+            postDetailCache.evictAll();
+            categoryTreeCache.invalidateAfterCommit();
+            siteBootstrapCache.invalidateAfterCommit();
 
-            return categoryRepository.save(existing);
+            return categoryMapper.toResponse(categoryRepository.save(existing));
         }).orElseThrow(() -> new RuntimeException("Category not found with id: " + id));
     }
 
     @Override
+    @Transactional
     public void deleteCategory(Long id) {
-        categoryRepository.deleteById(id);
+        Optional<Category> category = categoryRepository.findById(id);
+        if (category.isEmpty()) {
+            return;
+        }
+
+        // posts go through PostService first: the cascade of Category.postList would remove them
+        // without outbox rows, counter updates or released thumbnails
+        List<Long> categoryIds = new ArrayList<>();
+        collectIds(category.get(), categoryIds);
+        postService.deletePostsByCategories(categoryIds);
+
+        categoryRepository.delete(category.get());
+        postDetailCache.evictAll();
+        categoryTreeCache.invalidateAfterCommit();
+        siteBootstrapCache.invalidateAfterCommit();
+    }
+
+    private static void collectIds(Category category, List<Long> ids) {
+        ids.add(category.getId());
+        if (category.getChildren() != null) {
+            category.getChildren().forEach(child -> collectIds(child, ids));
+        }
     }
 
     @Override
-    public Optional<Category> getCategoryById(Long id) {
-        return categoryRepository.findById(id);
+    @Transactional(readOnly = true)
+    public Optional<CategoryResponse> getCategoryById(Long id, boolean withChildren, boolean withPosts) {
+        CategoryTree tree = categoryTreeCache.get();
+        return tree.byId(id).map(node -> toResponses(tree, List.of(node), withChildren, posts(withPosts)).get(0));
     }
 
     @Override
-    public Optional<Category> getCategoryBySlug(String slug) {
-        return categoryRepository.findBySlug(slug);
+    @Transactional(readOnly = true)
+    public Optional<CategoryResponse> getCategoryBySlug(String slug, boolean withChildren, boolean withPosts) {
+        CategoryTree tree = categoryTreeCache.get();
+        return tree.bySlug(slug).map(node -> toResponses(tree, List.of(node), withChildren, posts(withPosts)).get(0));
     }
 
     @Override
-    public List<Category> getAllCategoriesByLevel(int level) {
-        return categoryRepository.findByLevel(level);
+    @Transactional(readOnly = true)
+    public List<CategoryResponse> getAllCategoriesByLevel(int level, boolean withChildren, boolean withPosts) {
+        CategoryTree tree = categoryTreeCache.get();
+        return toResponses(tree, tree.byLevel(level), withChildren, posts(withPosts));
     }
 
+    /*
+     * The root categories with their children and only the newest linksPerCategory posts of each,
+     * which is all a menu shows, so the result stays the same size however many posts there are.
+     */
     @Override
-    public List<CategoryFlatDTO> getAllCategoriesFlat() {
-        return categoryRepository.findAllFlat();
+    @Transactional(readOnly = true)
+    public List<CategoryResponse> getCategoryMenu(int linksPerCategory) {
+        CategoryTree tree = categoryTreeCache.get();
+        return toResponses(tree, tree.byLevel(0), true,
+                ids -> postRepository.findLatestSummariesByCategoryIds(ids, linksPerCategory));
     }
 
     @Override
-    public List<GetAllCategoriesAndPostDTO> getAllCategoriesWithPosts() {
-        List<CategoryFlatDTO> categories = categoryRepository.findAllFlat();
+    @Transactional(readOnly = true)
+    public List<CategoryResponse> getChildren(Long parentId, boolean withChildren, boolean withPosts) {
+        CategoryTree tree = categoryTreeCache.get();
+        return toResponses(tree, tree.children(parentId), withChildren, posts(withPosts));
+    }
 
-        if (categories.isEmpty()) {
-            return new ArrayList<>();
+    private Function<Collection<Long>, List<PostSummary>> posts(boolean withPosts) {
+        return withPosts ? postRepository::findSummariesByCategoryIds : null;
+    }
+
+    /*
+     * Builds the responses from the in-memory tree. With a posts loader, the post summaries of
+     * every category in the result, nested children included, come from a single query.
+     */
+    private List<CategoryResponse> toResponses(CategoryTree tree, List<CategoryTree.Node> nodes, boolean withChildren,
+                                               Function<Collection<Long>, List<PostSummary>> posts) {
+        Map<Long, CategoryResponse> included = new LinkedHashMap<>();
+        List<CategoryResponse> responses = new ArrayList<>(nodes.size());
+        for (CategoryTree.Node node : nodes) {
+            responses.add(toResponse(tree, node, withChildren, included));
         }
 
-        List<GetAllCategoriesAndPostDTO> result = new ArrayList<>();
+        if (posts != null && !included.isEmpty()) {
+            included.values().forEach(response -> response.setPostList(new ArrayList<>()));
+            for (PostSummary post : posts.apply(included.keySet())) {
+                CategoryResponse category = included.get(post.getCategoryId());
+                if (category != null) {
+                    category.getPostList().add(post);
+                }
+            }
+        }
+        return responses;
+    }
+
+    private static CategoryResponse toResponse(CategoryTree tree, CategoryTree.Node node, boolean withChildren,
+                                               Map<Long, CategoryResponse> included) {
+        CategoryResponse response = CategoryResponse.builder()
+                .id(node.id())
+                .name(node.name())
+                .slug(node.slug())
+                .description(node.description())
+                .level(node.level())
+                .isActive(node.isActive())
+                .parentId(node.parentId())
+                .build();
+        included.put(node.id(), response);
 
-        for (CategoryFlatDTO category : categories) {
-            if (category.getId() != null) {
-                List<Post> listPost = postRepository.findByCategoryId(category.getId());
-                List<PostDTO> listPostDTO = new ArrayList<>();
-                for (Post post : listPost) {
-                    listPostDTO.add(PostDTO.builder().id(post.getId()).name(post.getName()).slug(post.getSlug()).build());
+        if (withChildren) {
+            List<CategoryResponse> children = new ArrayList<>();
+            for (CategoryTree.Node child : tree.children(node.id())) {
+                // a parent cycle in bad data must not recurse forever
+                if (!included.containsKey(child.id())) {
+                    children.add(toResponse(tree, child, true, included));
                 }
-                var tmp = new GetAllCategoriesAndPostDTO(
-                        category.getId(),
-                        category.getName(),
-                        category.getIsActive(),
-                        category.getParentId(),
-                        listPostDTO
-                );
             }
+            response.setChildren(children);
         }
+        return response;
+    }
 
-        return result;
+    @Override
+    public List<CategoryFlatDTO> getAllCategoriesFlat() {
+        return categoryTreeCache.get().all().stream()
+                .map(node -> new CategoryFlatDTO(node.id(), node.name(), node.slug(), node.description(),
+                        node.isActive(), node.parentId()))
+                .toList();
     }
 
     @Override
-    public List<Category> getChildren(Long parentId) {
-        return categoryRepository.findAll().stream()
-                .filter(c -> c.getParent() != null && c.getParent().getId().equals(parentId))
+    public List<CategoryBreadcrumb> getBreadcrumbs(Long id) {
+        return categoryTreeCache.get().path(id).stream()
+                .map(node -> CategoryBreadcrumb.builder()
+                        .id(node.id())
+                        .name(node.name())
+                        .slug(node.slug())
+                        .build())
                 .toList();
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void writeCategoriesWithPosts(OutputStream out) throws IOException {
+        try (Stream<CategoryPostRow> rows = categoryRepository.streamNavigationRows();
+             JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+            json.writeStartArray();
+            groupByCategory(rows, json::writeObject);
+            json.writeEndArray();
+        }
+    }
+
+    // only one category and its posts are held in memory at a time
+    private static void groupByCategory(Stream<CategoryPostRow> rows, CategorySink sink) throws IOException {
+        GetAllCategoriesAndPostDTO current = null;
+        Iterator<CategoryPostRow> iterator = rows.iterator();
+        while (iterator.hasNext()) {
+            CategoryPostRow row = iterator.next();
+            if (current == null || !current.getId().equals(row.getCategoryId())) {
+                if (current != null) {
+                    sink.accept(current);
+                }
+                current = GetAllCategoriesAndPostDTO.builder()
+                        .id(row.getCategoryId())
+                        .name(row.getCategoryName())
+                        .isActive(row.getIsActive())
+                        .parentId(row.getParentId())
+                        .build();
+            }
+            if (row.getPostId() != null) {
+                current.getPostList().add(PostDTO.builder()
+                        .id(row.getPostId())
+                        .name(row.getPostName())
+                        .slug(row.getPostSlug())
+                        .build());
+            }
+        }
+        if (current != null) {
+            sink.accept(current);
+        }
+    }
+
+    @FunctionalInterface
+    private interface CategorySink {
+        void accept(GetAllCategoriesAndPostDTO category) throws IOException;
+    }
+
+    @Override
+    public ChangeStamp getCategoriesStamp() {
+        return categoryTreeCache.get().stamp();
+    }
 }
\ No newline at end of file
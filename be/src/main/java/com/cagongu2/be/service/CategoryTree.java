@@ -0,0 +1,158 @@
+package com.cagongu2.be.service;
+
+import com.cagongu2.be.dto.CategoryRow;
+import com.cagongu2.be.dto.ChangeStamp;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of all categories: lookups by id and slug, children per parent, roots and
+ * the ancestor chain of every node are precomputed, so every read is a map lookup. A change
+ * never mutates a snapshot, CategoryTreeCache builds a new one and swaps the reference.
+ */
+public final class CategoryTree {
+    public record Node(Long id,
+                       String name,
+                       String slug,
+                       String description,
+                       Integer level,
+                       Boolean isActive,
+                       Long parentId,
+                       LocalDateTime updatedAt) {
+    }
+
+    private final List<Node> nodes;
+    private final Map<Long, Node> byId;
+    private final Map<String, Node> bySlug;
+    private final Map<Long, List<Node>> childrenByParent;
+    private final List<Node> roots;
+    private final Map<Integer, List<Node>> byLevel;
+    private final Map<Long, List<Node>> pathById;
+    private final ChangeStamp stamp;
+
+    private CategoryTree(List<Node> nodes) {
+        Map<Long, Node> byId = new LinkedHashMap<>();
+        Map<String, Node> bySlug = new HashMap<>();
+        Map<Long, List<Node>> childrenByParent = new HashMap<>();
+        Map<Integer, List<Node>> byLevel = new HashMap<>();
+        List<Node> roots = new ArrayList<>();
+        LocalDateTime lastModified = null;
+
+        for (Node node : nodes) {
+            byId.put(node.id(), node);
+            if (node.slug() != null) {
+                bySlug.put(node.slug(), node);
+            }
+            if (node.level() != null) {
+                byLevel.computeIfAbsent(node.level(), level -> new ArrayList<>()).add(node);
+            }
+            if (node.updatedAt() != null && (lastModified == null || node.updatedAt().isAfter(lastModified))) {
+                lastModified = node.updatedAt();
+            }
+        }
+        for (Node node : nodes) {
+            if (node.parentId() != null && byId.containsKey(node.parentId())) {
+                childrenByParent.computeIfAbsent(node.parentId(), id -> new ArrayList<>()).add(node);
+            } else {
+                roots.add(node);
+            }
+        }
+
+        Map<Long, List<Node>> pathById = new HashMap<>();
+        for (Node node : nodes) {
+            pathById.put(node.id(), pathTo(node, byId));
+        }
+
+        this.nodes = List.copyOf(nodes);
+        this.byId = Collections.unmodifiableMap(byId);
+        this.bySlug = Map.copyOf(bySlug);
+        this.childrenByParent = copyOfLists(childrenByParent);
+        this.roots = List.copyOf(roots);
+        this.byLevel = copyOfLists(byLevel);
+        this.pathById = Map.copyOf(pathById);
+        this.stamp = new Stamp(lastModified, (long) nodes.size());
+    }
+
+    public static CategoryTree of(List<CategoryRow> rows) {
+        List<Node> nodes = new ArrayList<>(rows.size());
+        for (CategoryRow row : rows) {
+            nodes.add(new Node(row.getId(), row.getName(), row.getSlug(), row.getDescription(), row.getLevel(),
+                    row.getIsActive(), row.getParentId(), row.getUpdatedAt()));
+        }
+        return new CategoryTree(nodes);
+    }
+
+    public List<Node> all() {
+        return nodes;
+    }
+
+    public Optional<Node> byId(Long id) {
+        return Optional.ofNullable(byId.get(id));
+    }
+
+    public Optional<Node> bySlug(String slug) {
+        return Optional.ofNullable(bySlug.get(slug));
+    }
+
+    public List<Node> children(Long parentId) {
+        return childrenByParent.getOrDefault(parentId, List.of());
+    }
+
+    public List<Node> roots() {
+        return roots;
+    }
+
+    public List<Node> byLevel(int level) {
+        return byLevel.getOrDefault(level, List.of());
+    }
+
+    /** Root first, the category itself last; empty for an unknown id. */
+    public List<Node> path(Long id) {
+        return pathById.getOrDefault(id, List.of());
+    }
+
+    public ChangeStamp stamp() {
+        return stamp;
+    }
+
+    private static List<Node> pathTo(Node node, Map<Long, Node> byId) {
+        List<Node> path = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        // a parent cycle in bad data must not loop forever
+        for (Node current = node; current != null && seen.add(current.id()); current = byId.get(current.parentId())) {
+            path.add(current);
+            if (current.parentId() == null) {
+                break;
+            }
+        }
+        Collections.reverse(path);
+        return List.copyOf(path);
+    }
+
+    private static <K> Map<K, List<Node>> copyOfLists(Map<K, List<Node>> source) {
+        Map<K, List<Node>> copy = new HashMap<>();
+        source.forEach((key, value) -> copy.put(key, List.copyOf(value)));
+        return Map.copyOf(copy);
+    }
+
+    private record Stamp(LocalDateTime lastModified, Long total) implements ChangeStamp {
+        @Override
+        public LocalDateTime getLastModified() {
+            return lastModified;
+        }
+
+        @Override
+        public Long getTotal() {
+            return total;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.cagongu2.be.service;
+
+import com.cagongu2.be.repository.CategoryRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds the current CategoryTree. Category writes mark it stale once their transaction
+ * commits and the next read builds a new snapshot with one query; readers never see a
+ * half-built tree. The max age bounds how long writes made by other instances stay invisible.
+ */
+@Component
+public class CategoryTreeCache {
+    private final CategoryRepository categoryRepository;
+    private final long maxAgeMillis;
+
+    private final AtomicLong version = new AtomicLong();
+    private volatile Snapshot current;
+
+    public CategoryTreeCache(CategoryRepository categoryRepository,
+                             @Value("${categories.tree.max-age-seconds:60}") long maxAgeSeconds) {
+        this.categoryRepository = categoryRepository;
+        this.maxAgeMillis = Duration.ofSeconds(maxAgeSeconds).toMillis();
+    }
+
+    public CategoryTree get() {
+        Snapshot snapshot = current;
+        if (snapshot != null && snapshot.version == version.get()
+                && System.currentTimeMillis() - snapshot.builtAt < maxAgeMillis) {
+            return snapshot.tree;
+        }
+        return rebuild();
+    }
+
+    private synchronized CategoryTree rebuild() {
+        long expected = version.get();
+        Snapshot snapshot = current;
+        // another reader rebuilt it while this one waited
+        if (snapshot != null && snapshot.version == expected
+                && System.currentTimeMillis() - snapshot.builtAt < maxAgeMillis) {
+            return snapshot.tree;
+        }
+
+        CategoryTree tree = CategoryTree.of(categoryRepository.findAllRows());
+        current = new Snapshot(tree, expected, System.currentTimeMillis());
+        return tree;
+    }
+
+    /** Marks the snapshot stale after the surrounding transaction commits (or now, without one). */
+    public void invalidateAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    version.incrementAndGet();
+                }
+            });
+        } else {
+            version.incrementAndGet();
+        }
+    }
+
+    private record Snapshot(CategoryTree tree, long version, long builtAt) {
+    }
+}
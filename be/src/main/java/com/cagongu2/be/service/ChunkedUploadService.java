@@ -0,0 +1,342 @@
+package com.cagongu2.be.service;
+
+import com.cagongu2.be.dto.upload.response.ChunkedUploadResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.BitSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Resumable uploads in fixed-size chunks: initiate, PUT each chunk with its SHA-256, complete.
+ * <p>
+ * initiate preallocates the whole file under upload.base-path/.chunked, which is never
+ * served. Each chunk is streamed from the request straight to its offset with positional
+ * writes, so chunks can arrive in any order and in parallel, and a request never holds more
+ * than one buffer. A chunk only counts once its length and checksum match; the status lists
+ * the received chunks, so a client that lost its connection sends only the missing ones.
+ * complete hands the file to FileUploadService, which stores it like any other upload.
+ * <p>
+ * Sessions live in memory: they do not survive a restart or span instances, and are dropped
+ * with their file after session-ttl-minutes without activity.
+ */
+@Slf4j
+@Service
+public class ChunkedUploadService {
+    static final String SESSION_DIR = ".chunked";
+
+    private static final String PART_SUFFIX = ".part";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Pattern SHA256_HEX = Pattern.compile("^[0-9a-fA-F]{64}$");
+
+    private final FileUploadService fileUploadService;
+    private final Path sessionDir;
+    private final long maxSize;
+    private final int defaultChunkSize;
+    private final int minChunkSize;
+    private final int maxChunkSize;
+    private final Duration sessionTtl;
+    private final int maxSessions;
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+
+    public ChunkedUploadService(FileUploadService fileUploadService,
+                                @Value("${upload.base-path}") String basePath,
+                                @Value("${upload.chunked.max-size-bytes:524288000}") long maxSize,
+                                @Value("${upload.chunked.chunk-size-bytes:5242880}") int defaultChunkSize,
+                                @Value("${upload.chunked.min-chunk-size-bytes:262144}") int minChunkSize,
+                                @Value("${upload.chunked.max-chunk-size-bytes:33554432}") int maxChunkSize,
+                                @Value("${upload.chunked.session-ttl-minutes:60}") long sessionTtlMinutes,
+                                @Value("${upload.chunked.max-sessions:100}") int maxSessions) {
+        this.fileUploadService = fileUploadService;
+        this.sessionDir = Paths.get(basePath).toAbsolutePath().normalize().resolve(SESSION_DIR);
+        this.maxSize = maxSize;
+        this.defaultChunkSize = defaultChunkSize;
+        this.minChunkSize = minChunkSize;
+        this.maxChunkSize = maxChunkSize;
+        this.sessionTtl = Duration.ofMinutes(sessionTtlMinutes);
+        this.maxSessions = maxSessions;
+    }
+
+    private static final class Session {
+        final String id;
+        final String type;
+        final String fileName;
+        final long size;
+        final int chunkSize;
+        final int chunkCount;
+        final Path file;
+
+        // guarded by this
+        final BitSet received = new BitSet();
+        final BitSet writing = new BitSet();
+        int inFlight;
+        boolean completing;
+        volatile long lastActivity = System.currentTimeMillis();
+
+        Session(String id, String type, String fileName, long size, int chunkSize, Path file) {
+            this.id = id;
+            this.type = type;
+            this.fileName = fileName;
+            this.size = size;
+            this.chunkSize = chunkSize;
+            this.chunkCount = (int) ((size + chunkSize - 1) / chunkSize);
+            this.file = file;
+        }
+
+        long chunkLength(int index) {
+            return Math.min(chunkSize, size - (long) index * chunkSize);
+        }
+    }
+
+    public ChunkedUploadResponse initiate(String type, String fileName, Long size, Integer chunkSize) throws IOException {
+        if (type == null || !FileUploadServiceImpl.TYPE.matcher(type).matches()) {
+            throw new IllegalArgumentException("Invalid upload type: " + type);
+        }
+        if (size == null || size <= 0 || size > maxSize) {
+            throw new IllegalArgumentException("size must be between 1 and " + maxSize + " bytes");
+        }
+        int effectiveChunkSize = chunkSize != null ? chunkSize : defaultChunkSize;
+        if (effectiveChunkSize < minChunkSize || effectiveChunkSize > maxChunkSize) {
+            throw new IllegalArgumentException("chunkSize must be between " + minChunkSize + " and " + maxChunkSize + " bytes");
+        }
+        if (sessions.size() >= maxSessions) {
+            throw new IllegalStateException("Too many open upload sessions");
+        }
+
+        String id = UUID.randomUUID().toString();
+        Path file = sessionDir.resolve(id + PART_SUFFIX);
+        Files.createDirectories(sessionDir);
+        // sparse where the file system supports it, chunks fill it in at their offsets
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(size);
+        }
+
+        Session session = new Session(id, type, fileName, size, effectiveChunkSize, file);
+        sessions.put(id, session);
+        return toResponse(session);
+    }
+
+    public ChunkedUploadResponse getStatus(String uploadId) {
+        Session session = get(uploadId);
+        session.lastActivity = System.currentTimeMillis();
+        return toResponse(session);
+    }
+
+    /**
+     * Writes one chunk from body. A chunk may be sent again once its previous write has finished,
+     * the last complete write counts; a second write of the same chunk while one is running is
+     * rejected, as the two would interleave on disk.
+     */
+    public ChunkedUploadResponse writeChunk(String uploadId, int index, String sha256, InputStream body) throws IOException {
+        Session session = get(uploadId);
+        if (index < 0 || index >= session.chunkCount) {
+            throw new IllegalArgumentException("Chunk index must be between 0 and " + (session.chunkCount - 1));
+        }
+        if (sha256 == null || !SHA256_HEX.matcher(sha256).matches()) {
+            throw new IllegalArgumentException("The hex SHA-256 of the chunk is required");
+        }
+
+        synchronized (session) {
+            if (session.completing) {
+                throw new IllegalStateException("Upload " + uploadId + " is being completed");
+            }
+            if (session.writing.get(index)) {
+                throw new IllegalStateException("Chunk " + index + " of upload " + uploadId + " is already being written");
+            }
+            session.writing.set(index);
+            // the region is about to be overwritten, it no longer holds a verified chunk
+            session.received.clear(index);
+            session.inFlight++;
+        }
+
+        boolean verified = false;
+        try {
+            long length = session.chunkLength(index);
+            long position = (long) index * session.chunkSize;
+            MessageDigest digest = sha256();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long written = 0;
+
+            try (FileChannel channel = FileChannel.open(session.file, StandardOpenOption.WRITE)) {
+                int n;
+                // one byte past the chunk is read to detect a body that is too long
+                while ((n = body.read(buffer, 0, (int) Math.min(buffer.length, length - written + 1))) > 0) {
+                    if (written + n > length) {
+                        throw new IllegalArgumentException("Chunk " + index + " is longer than " + length + " bytes");
+                    }
+                    digest.update(buffer, 0, n);
+                    ByteBuffer data = ByteBuffer.wrap(buffer, 0, n);
+                    long at = position + written;
+                    while (data.hasRemaining()) {
+                        at += channel.write(data, at);
+                    }
+                    written += n;
+                }
+            }
+
+            if (written != length) {
+                throw new IllegalArgumentException("Chunk " + index + " has " + written + " of " + length + " bytes");
+            }
+            if (!HexFormat.of().formatHex(digest.digest()).equalsIgnoreCase(sha256)) {
+                throw new IllegalArgumentException("Checksum mismatch for chunk " + index);
+            }
+            verified = true;
+        } finally {
+            synchronized (session) {
+                if (verified) {
+                    session.received.set(index);
+                }
+                session.writing.clear(index);
+                session.inFlight--;
+            }
+            session.lastActivity = System.currentTimeMillis();
+        }
+        return toResponse(session);
+    }
+
+    /** Stores the assembled file and returns its relative url, the session is gone afterwards. */
+    public String complete(String uploadId) throws IOException {
+        Session session = get(uploadId);
+        synchronized (session) {
+            if (session.completing) {
+                throw new IllegalStateException("Upload " + uploadId + " is already being completed");
+            }
+            if (session.inFlight > 0) {
+                throw new IllegalStateException("Chunks of upload " + uploadId + " are still being written");
+            }
+            if (session.received.cardinality() < session.chunkCount) {
+                throw new IllegalStateException("Upload " + uploadId + " is missing "
+                        + (session.chunkCount - session.received.cardinality()) + " chunks");
+            }
+            session.completing = true;
+        }
+
+        try {
+            try (FileChannel channel = FileChannel.open(session.file, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            String relativePath = fileUploadService.storeFile(session.file, session.type, session.fileName);
+            sessions.remove(uploadId);
+            return relativePath;
+        } catch (IOException | RuntimeException e) {
+            // storeFile leaves the part file on failure, the received chunks still hold and complete can be retried
+            synchronized (session) {
+                session.completing = false;
+            }
+            throw e;
+        }
+    }
+
+    public void abort(String uploadId) throws IOException {
+        Session session = sessions.remove(uploadId);
+        if (session == null) {
+            throw new NoSuchElementException("No upload session " + uploadId);
+        }
+        Files.deleteIfExists(session.file);
+    }
+
+    @Scheduled(fixedDelayString = "${upload.chunked.cleanup-interval-ms:60000}")
+    public void expireSessions() {
+        long cutoff = System.currentTimeMillis() - sessionTtl.toMillis();
+        for (Session session : sessions.values()) {
+            synchronized (session) {
+                if (session.lastActivity >= cutoff || session.inFlight > 0 || session.completing) {
+                    continue;
+                }
+                sessions.remove(session.id);
+            }
+            deleteQuietly(session.file);
+            log.info("Expired upload session {} ({} of {} chunks received)",
+                    session.id, session.received.cardinality(), session.chunkCount);
+        }
+
+        // part files of sessions lost in a restart
+        if (!Files.isDirectory(sessionDir)) {
+            return;
+        }
+        Set<Path> live = sessions.values().stream().map(session -> session.file).collect(Collectors.toSet());
+        try (Stream<Path> files = Files.list(sessionDir)) {
+            files.filter(file -> !live.contains(file) && modifiedBefore(file, Instant.ofEpochMilli(cutoff)))
+                    .forEach(ChunkedUploadService::deleteQuietly);
+        } catch (IOException e) {
+            log.warn("Could not clean {}: {}", sessionDir, e.getMessage());
+        }
+    }
+
+    private Session get(String uploadId) {
+        Session session = sessions.get(uploadId);
+        if (session == null) {
+            throw new NoSuchElementException("No upload session " + uploadId);
+        }
+        return session;
+    }
+
+    private ChunkedUploadResponse toResponse(Session session) {
+        List<Integer> received;
+        synchronized (session) {
+            received = session.received.stream().boxed().toList();
+        }
+        return ChunkedUploadResponse.builder()
+                .uploadId(session.id)
+                .type(session.type)
+                .fileName(session.fileName)
+                .size(session.size)
+                .chunkSize(session.chunkSize)
+                .chunkCount(session.chunkCount)
+                .receivedChunks(received)
+                .expiresAt(LocalDateTime.ofInstant(
+                        Instant.ofEpochMilli(session.lastActivity).plus(sessionTtl), ZoneId.systemDefault()))
+                .build();
+    }
+
+    private static boolean modifiedBefore(Path file, Instant cutoff) {
+        try {
+            return Files.getLastModifiedTime(file).toInstant().isBefore(cutoff);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
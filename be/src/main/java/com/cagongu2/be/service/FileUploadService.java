@@ -3,7 +3,19 @@ package com.cagongu2.be.service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.file.Path;
 
 public interface FileUploadService {
+    /**
+     * Stores the file under its content hash and returns its relative url. Nothing is counted:
+     * UploadGarbageCollector keeps the file while its grace period runs, an image row names it
+     * or a post body links it, and removes it after that.
+     */
     public String uploadFile(MultipartFile file, String type) throws IOException;
+
+    /**
+     * Like uploadFile for a file already on disk under upload.base-path, which is moved into
+     * the store or deleted. When storing fails the file is left in place, so the caller can retry.
+     */
+    public String storeFile(Path file, String type, String originalFilename) throws IOException;
 }
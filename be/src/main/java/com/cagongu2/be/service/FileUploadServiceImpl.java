@@ -1,46 +1,191 @@
 package com.cagongu2.be.service;
 
-import lombok.RequiredArgsConstructor;
+import com.cagongu2.be.repository.ImageBlobRepository;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
-import java.util.UUID;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.regex.Pattern;
 
+/**
+ * Stores uploads content-addressed under a two-level fan-out of the hash,
+ * images/&lt;type&gt;/ab/cd/abcd...&lt;ext&gt;, so no directory grows past a few thousand entries
+ * however many files a type holds. The hash is computed while the multipart stream is copied
+ * to a temp file, which is then renamed into place or, when the same bytes are already stored,
+ * dropped; readers never see a partial file. image_blobs registers each stored file.
+ * <p>
+ * Nothing here deletes a stored file, or counts who uses it. UploadGarbageCollector removes
+ * the ones no image row or post body references, under the image_blobs row lock that uploads
+ * take before the file is moved into place.
+ */
+@Slf4j
 @Service
-@RequiredArgsConstructor
 public class FileUploadServiceImpl implements FileUploadService {
-    @Value("${upload.base-path}")
-    private String basePath;
+    static final String URL_PREFIX = "images/";
+    // dot-named, so ImageFileController never serves a half-written upload
+    static final String TEMP_PREFIX = ".upload-";
+    static final Pattern SHARDED_URL = Pattern.compile(
+            "^images/[a-z0-9_-]{1,32}/[0-9a-f]{2}/[0-9a-f]{2}/[0-9a-f]{64}(\\.[a-z0-9]{1,10})?$");
+    static final Pattern TYPE = Pattern.compile("^[a-z0-9_-]{1,32}$");
+    private static final Pattern EXTENSION = Pattern.compile("^\\.[a-z0-9]{1,10}$");
+
+    private final ImageBlobRepository imageBlobRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Path basePath;
+
+    public FileUploadServiceImpl(ImageBlobRepository imageBlobRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${upload.base-path}") String basePath) {
+        this.imageBlobRepository = imageBlobRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.basePath = Paths.get(basePath).toAbsolutePath().normalize();
+    }
 
     public String uploadFile(MultipartFile file, String type) throws IOException {
+        checkType(type);
 
-        Path uploadPath = Paths.get(basePath, type);
+        Path uploadPath = basePath.resolve(type);
+        Files.createDirectories(uploadPath);
 
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
+        // same directory as the target, so the final rename never crosses file systems
+        Path temp = Files.createTempFile(uploadPath, TEMP_PREFIX, ".tmp");
+        try {
+            String hash;
+            try (InputStream in = file.getInputStream()) {
+                hash = copyHashed(in, temp);
+            }
+            // retrieve relative path to FE use getImgUrl
+            String relativePath = relativeUrl(type, hash, extension(file.getOriginalFilename()));
+            store(temp, relativePath, hash);
+            return relativePath;
+        } finally {
+            Files.deleteIfExists(temp);
         }
+    }
 
-        // Original file name
-        String originalFilename = file.getOriginalFilename();
-        String extension = "";
-        if (originalFilename != null && originalFilename.contains(".")) {
-            extension = originalFilename.substring(originalFilename.lastIndexOf("."));
+    public String storeFile(Path file, String type, String originalFilename) throws IOException {
+        checkType(type);
+
+        MessageDigest digest = sha256();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
         }
+        String hash = HexFormat.of().formatHex(digest.digest());
+        String relativePath = relativeUrl(type, hash, extension(originalFilename));
+        store(file, relativePath, hash);
+        // still there when the same bytes were already stored
+        Files.deleteIfExists(file);
+        return relativePath;
+    }
 
-        String fileName = UUID.randomUUID().toString() + extension;
-        Path filePath = uploadPath.resolve(fileName);
+    /*
+     * Registered first: the blob row lock keeps a concurrent garbage collection from removing
+     * the file once it is in place. Same bytes stored again get a fresh modification time, which
+     * restarts UploadGarbageCollector's grace period for the new use. The lock is held until
+     * the file operation is done, in the caller's transaction or in one of its own.
+     */
+    private void store(Path temp, String relativePath, String hash) throws IOException {
+        long size = Files.size(temp);
+        Path target = resolve(basePath, relativePath);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                imageBlobRepository.register(relativePath, hash, size);
+                try {
+                    placeFile(temp, target);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
 
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+    private static void placeFile(Path temp, Path target) throws IOException {
+        if (Files.exists(target)) {
+            try {
+                Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+                return;
+            } catch (NoSuchFileException e) {
+                // collected since the check, put back below
+            }
+        }
+        Files.createDirectories(target.getParent());
+        moveIntoPlace(temp, target);
+    }
 
-        // retrieve relative path to FE use getImgUrl
-        String relativePath = "images/" + type + "/" + fileName;
+    private static void checkType(String type) {
+        if (type == null || !TYPE.matcher(type).matches()) {
+            throw new IllegalArgumentException("Invalid upload type: " + type);
+        }
+    }
 
-        return relativePath;
+    static String relativeUrl(String type, String hash, String extension) {
+        return URL_PREFIX + type + "/" + hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash + extension;
+    }
+
+    // null for urls that do not point into the upload root
+    static Path resolve(Path root, String relativePath) {
+        if (!relativePath.startsWith(URL_PREFIX)) {
+            return null;
+        }
+        Path file = root.resolve(relativePath.substring(URL_PREFIX.length())).normalize();
+        return file.startsWith(root) && !file.equals(root) ? file : null;
+    }
+
+    /** Streams in to target and returns the hex SHA-256 of what was written. */
+    static String copyHashed(InputStream in, Path target) throws IOException {
+        MessageDigest digest = sha256();
+        Files.copy(new DigestInputStream(in, digest), target, StandardCopyOption.REPLACE_EXISTING);
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    static void moveIntoPlace(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            try {
+                Files.move(temp, target);
+            } catch (FileAlreadyExistsException raced) {
+                // a concurrent upload of the same bytes got there first
+            }
+        }
+    }
+
+    static String extension(String originalFilename) {
+        if (originalFilename == null || !originalFilename.contains(".")) {
+            return "";
+        }
+        String extension = originalFilename.substring(originalFilename.lastIndexOf('.')).toLowerCase(Locale.ROOT);
+        return EXTENSION.matcher(extension).matches() ? extension : "";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
 }
@@ -1,5 +1,6 @@
 package com.cagongu2.be.service;
 
+import com.cagongu2.be.dto.ChangeStamp;
 import com.cagongu2.be.dto.footer.request.FooterRequest;
 import com.cagongu2.be.dto.footer.response.FooterResponse;
 import org.springframework.transaction.annotation.Transactional;
@@ -18,4 +19,6 @@ public interface FooterService {
     List<FooterResponse> getFooterByStatus(Boolean isActive);
 
     void deleteFooter(Long id);
+
+    ChangeStamp getFootersStamp();
 }
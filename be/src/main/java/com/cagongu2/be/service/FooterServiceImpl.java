@@ -1,5 +1,6 @@
 package com.cagongu2.be.service;
 
+import com.cagongu2.be.dto.ChangeStamp;
 import com.cagongu2.be.dto.footer.request.FooterRequest;
 import com.cagongu2.be.dto.footer.response.FooterResponse;
 import com.cagongu2.be.mapper.FooterMapper;
@@ -11,6 +12,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -23,6 +25,7 @@ public class FooterServiceImpl implements FooterService {
     private final FooterMapper footerMapper;
     private final FooterRepository footerRepository;
     private final PostRepository postRepository;
+    private final SiteBootstrapCache siteBootstrapCache;
 
     @Override
     @Transactional
@@ -37,6 +40,7 @@ public class FooterServiceImpl implements FooterService {
         }
 
         Footer savedFooter = footerRepository.save(footer);
+        siteBootstrapCache.invalidateAfterCommit();
         return footerMapper.toResponse(savedFooter);
     }
 
@@ -48,8 +52,11 @@ public class FooterServiceImpl implements FooterService {
 
         footerMapper.updateEntityFromRequest(request, existingFooter);
         updatePostList(existingFooter, request.getPostIds());
+        // the post list lives on the post side, touch the footer so its validators change too
+        existingFooter.setUpdatedAt(LocalDateTime.now());
 
         Footer updatedFooter = footerRepository.save(existingFooter);
+        siteBootstrapCache.invalidateAfterCommit();
         return footerMapper.toResponse(updatedFooter);
     }
 
@@ -137,5 +144,11 @@ public class FooterServiceImpl implements FooterService {
         Footer footer = footerRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Footer not found with id: " + id));
         footerRepository.delete(footer);
+        siteBootstrapCache.invalidateAfterCommit();
+    }
+
+    @Override
+    public ChangeStamp getFootersStamp() {
+        return footerRepository.findStamp();
     }
 }
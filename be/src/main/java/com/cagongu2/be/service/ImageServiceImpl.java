@@ -7,7 +7,6 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
 import java.io.IOException;
 
 @Service
@@ -15,6 +14,7 @@ import java.io.IOException;
 public class ImageServiceImpl implements ImageService {
     private final ImageRepository imageRepository;
     private final FileUploadService fileUploadService;
+    private final SiteBootstrapCache siteBootstrapCache;
 
     @Override
     public Image getCurrentImageByType(String type) {
@@ -28,7 +28,6 @@ public class ImageServiceImpl implements ImageService {
         Image currentImg = getCurrentImageByType(type);
 
         if (currentImg != null) {
-            deleteImg(currentImg);
             imageRepository.delete(currentImg);
         }
 
@@ -39,19 +38,8 @@ public class ImageServiceImpl implements ImageService {
                 .url(url)
                 .build();
 
-        return imageRepository.save(newImg);
-    }
-
-    private static void deleteImg(Image img) {
-        File file = new File(img.getUrl());
-        if (file.exists()) {
-            if (file.delete()) {
-                System.out.println("Xóa thành công: " + img.getUrl());
-            } else {
-                System.out.println("Không thể xóa file: " + img.getUrl());
-            }
-        } else {
-            System.out.println("File không tồn tại: " + img.getUrl());
-        }
+        Image saved = imageRepository.save(newImg);
+        siteBootstrapCache.invalidateAfterCommit();
+        return saved;
     }
 }
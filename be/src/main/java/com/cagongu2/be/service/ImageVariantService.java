@@ -0,0 +1,522 @@
+package com.cagongu2.be.service;
+
+import com.cagongu2.be.util.ExifOrientation;
+import com.cagongu2.be.util.SingleFlight;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Resized copies of uploaded images. A variant is decoded, scaled and encoded once on a small
+ * bounded pool, written to the variant directory and served from disk from then on. Variants
+ * carry no metadata: EXIF orientation is applied to the pixels, everything else is dropped.
+ * A request that would not change the pixels (no downscale, no crop, no rotation) gets the
+ * original instead, and so does any request for an animated GIF: ImageIO would keep only
+ * its first frame.
+ * <p>
+ * The variant directory mirrors the upload tree, one directory per original named like it,
+ * so sweep() can drop the variants of deleted originals and keep the rest under max-bytes,
+ * least recently served first.
+ * <p>
+ * When the pool and its queue are full, getVariant throws RejectedExecutionException so the
+ * caller can answer 503 instead of piling up request threads.
+ */
+@Slf4j
+@Service
+public class ImageVariantService {
+    public enum Fit {
+        /** Fits inside the box, keeps the aspect ratio. */
+        CONTAIN,
+        /** Fills the box, keeps the aspect ratio and crops the overflow around the center. */
+        COVER,
+        /** Stretches to the box. */
+        FILL
+    }
+
+    public record Spec(Integer width, Integer height, Fit fit, int quality) {
+    }
+
+    private static final Set<String> RESIZABLE = Set.of("jpg", "jpeg", "png", "gif", "bmp");
+    // formats that can carry transparency are re-encoded as PNG, everything else as JPEG
+    private static final Set<String> LOSSLESS = Set.of("png", "gif");
+    // content-hash names (older uploads: random UUIDs) are never rewritten in place
+    private static final Pattern IMMUTABLE_NAME = Pattern.compile(
+            "^([0-9a-f]{64}|[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12})(\\.[A-Za-z0-9]+)?$");
+    private static final String TEMP_PREFIX = ".variant-";
+    // serving a variant refreshes its modification time at most this often, the sweep evicts by it
+    private static final Duration TOUCH_INTERVAL = Duration.ofDays(1);
+    private static final Duration TEMP_MAX_AGE = Duration.ofHours(1);
+
+    private final Path uploadRoot;
+    private final Path variantRoot;
+    private final long maxBytes;
+    private final long maxSourcePixels;
+    private final Duration timeout;
+    private final ThreadPoolExecutor executor;
+    private final SingleFlight<String, Path> variantFlight;
+
+    public ImageVariantService(@Value("${upload.base-path}") String basePath,
+                               @Value("${upload.variants.path:data/image-variants}") String variantPath,
+                               @Value("${upload.variants.max-bytes:2147483648}") long maxBytes,
+                               @Value("${upload.variants.threads:2}") int threads,
+                               @Value("${upload.variants.queue-size:32}") int queueSize,
+                               @Value("${upload.variants.timeout-ms:15000}") long timeoutMs,
+                               @Value("${upload.variants.max-source-pixels:50000000}") long maxSourcePixels) {
+        this.uploadRoot = Paths.get(basePath).toAbsolutePath().normalize();
+        this.variantRoot = Paths.get(variantPath).toAbsolutePath().normalize();
+        this.maxBytes = maxBytes;
+        this.maxSourcePixels = maxSourcePixels;
+        this.timeout = Duration.ofMillis(timeoutMs);
+        this.variantFlight = new SingleFlight<>(timeout);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-variant-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public static boolean isImmutable(Path file) {
+        return IMMUTABLE_NAME.matcher(file.getFileName().toString()).matches();
+    }
+
+    /**
+     * The variant file, or the original itself when its format cannot be resized, it is an
+     * animated GIF or the spec would leave it unchanged.
+     */
+    public Path getVariant(Path original, Spec spec) throws IOException {
+        String extension = extension(original);
+        if (!RESIZABLE.contains(extension)) {
+            return original;
+        }
+
+        boolean lossless = LOSSLESS.contains(extension);
+        Path variant = variantPath(original, spec, lossless);
+        if (Files.isRegularFile(variant)) {
+            touch(variant);
+            return variant;
+        }
+
+        // concurrent requests for the same variant share one render
+        return variantFlight.load(variant.toString(), () -> {
+            if (Files.isRegularFile(variant)) {
+                return variant;
+            }
+            if (keepsOriginal(original, spec)) {
+                return original;
+            }
+            Future<?> render = executor.submit(() -> {
+                render(original, variant, spec, lossless);
+                return null;
+            });
+            try {
+                render.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+                return variant;
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException io) {
+                    throw new UncheckedIOException(io);
+                }
+                throw new IllegalStateException("Could not render variant of " + original.getFileName(), e.getCause());
+            } catch (TimeoutException e) {
+                // the render keeps going and lands on disk for the next request
+                throw new IllegalStateException("Timed out rendering variant of " + original.getFileName(), e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted rendering variant of " + original.getFileName(), e);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void render(Path original, Path variant, Spec spec, boolean lossless) throws IOException {
+        int orientation = ExifOrientation.read(original);
+        BufferedImage image = decode(original, spec, orientation);
+        if (image == null) {
+            throw new IOException("Unreadable image: " + original.getFileName());
+        }
+
+        image = ExifOrientation.apply(image, orientation);
+        image = resize(image, spec);
+
+        Files.createDirectories(variant.getParent());
+        Path temp = Files.createTempFile(variant.getParent(), TEMP_PREFIX, ".tmp");
+        try {
+            encode(image, temp, lossless, spec.quality());
+            try {
+                Files.move(temp, variant, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, variant, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /*
+     * Reads with source subsampling when the target is much smaller than the original: a 6000px
+     * photo for a 300px tile is decoded at a fraction of its pixels, which is most of the cost.
+     */
+    private BufferedImage decode(Path original, Spec spec, int orientation) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(original.toFile())) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxSourcePixels) {
+                    throw new IOException("Image too large to resize: " + width + "x" + height);
+                }
+
+                boolean swap = ExifOrientation.swapsAxes(orientation);
+                int displayWidth = swap ? height : width;
+                int displayHeight = swap ? width : height;
+                int[] target = targetSize(displayWidth, displayHeight, spec);
+                // keep at least twice the target resolution for the final smooth downscale
+                int factor = Math.max(1, Math.min(displayWidth / Math.max(1, target[0] * 2),
+                        displayHeight / Math.max(1, target[1] * 2)));
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                if (factor > 1) {
+                    param.setSourceSubsampling(factor, factor, 0, 0);
+                }
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /** Size the fit scales the image to before any crop, never larger than the source. */
+    private static int[] targetSize(int width, int height, Spec spec) {
+        double scaleX = spec.width() != null ? (double) spec.width() / width : Double.NaN;
+        double scaleY = spec.height() != null ? (double) spec.height() / height : Double.NaN;
+
+        if (spec.fit() == Fit.FILL && !Double.isNaN(scaleX) && !Double.isNaN(scaleY)) {
+            return new int[]{scaled(width, Math.min(1, scaleX)), scaled(height, Math.min(1, scaleY))};
+        }
+
+        double scale;
+        if (Double.isNaN(scaleX)) {
+            scale = scaleY;
+        } else if (Double.isNaN(scaleY)) {
+            scale = scaleX;
+        } else {
+            scale = spec.fit() == Fit.COVER ? Math.max(scaleX, scaleY) : Math.min(scaleX, scaleY);
+        }
+        scale = Math.min(1, scale);
+        return new int[]{scaled(width, scale), scaled(height, scale)};
+    }
+
+    private static int scaled(int size, double scale) {
+        return Math.max(1, (int) Math.round(size * scale));
+    }
+
+    private static BufferedImage resize(BufferedImage image, Spec spec) {
+        int[] target = targetSize(image.getWidth(), image.getHeight(), spec);
+        BufferedImage scaled = image;
+
+        // halve with bilinear steps first, one bicubic pass from far away looks grainy
+        while (scaled.getWidth() / 2 >= target[0] && scaled.getHeight() / 2 >= target[1]) {
+            scaled = draw(scaled, scaled.getWidth() / 2, scaled.getHeight() / 2, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        }
+        if (scaled.getWidth() != target[0] || scaled.getHeight() != target[1]) {
+            scaled = draw(scaled, target[0], target[1], RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        }
+
+        if (spec.fit() == Fit.COVER && spec.width() != null && spec.height() != null) {
+            int cropWidth = Math.min(spec.width(), scaled.getWidth());
+            int cropHeight = Math.min(spec.height(), scaled.getHeight());
+            if (cropWidth < scaled.getWidth() || cropHeight < scaled.getHeight()) {
+                scaled = scaled.getSubimage((scaled.getWidth() - cropWidth) / 2, (scaled.getHeight() - cropHeight) / 2,
+                        cropWidth, cropHeight);
+            }
+        }
+        return scaled;
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height, Object interpolation) {
+        BufferedImage target = new BufferedImage(width, height,
+                source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, interpolation);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    // a fresh image written without metadata: no EXIF, GPS or thumbnails survive
+    private static void encode(BufferedImage image, Path target, boolean lossless, int quality) throws IOException {
+        if (lossless) {
+            if (!ImageIO.write(image, "png", target.toFile())) {
+                throw new IOException("No PNG writer available");
+            }
+            return;
+        }
+
+        BufferedImage rgb = image;
+        if (image.getType() != BufferedImage.TYPE_INT_RGB) {
+            // JPEG has no alpha, flatten onto white
+            rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = rgb.createGraphics();
+            try {
+                graphics.setColor(Color.WHITE);
+                graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+                graphics.drawImage(image, 0, 0, null);
+            } finally {
+                graphics.dispose();
+            }
+        }
+
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(target.toFile())) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality / 100f);
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            writer.write(null, new IIOImage(rgb, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    /*
+     * variants/<original's relative path>/<width>x<height>-<fit>-q<quality>.<ext>. Originals
+     * that can be replaced in place also carry their size and modification time in the name.
+     */
+    private Path variantPath(Path original, Spec spec, boolean lossless) throws IOException {
+        if (!original.startsWith(uploadRoot)) {
+            throw new IllegalArgumentException("Not an upload: " + original);
+        }
+        String name = (spec.width() != null ? spec.width() : 0) + "x" + (spec.height() != null ? spec.height() : 0)
+                + "-" + spec.fit().name().toLowerCase(Locale.ROOT) + "-q" + spec.quality();
+        if (!isImmutable(original)) {
+            BasicFileAttributes attributes = Files.readAttributes(original, BasicFileAttributes.class);
+            name += "-" + Long.toHexString(attributes.size()) + "-" + Long.toHexString(attributes.lastModifiedTime().toMillis());
+        }
+        if ("gif".equals(extension(original))) {
+            // only still GIFs get variants; earlier builds also rendered animated ones to their first
+            // frame, the new name stops serving those and the sweep evicts them as unused
+            name += "-still";
+        }
+        return variantRoot.resolve(uploadRoot.relativize(original)).resolve(name + (lossless ? ".png" : ".jpg"));
+    }
+
+    // reads headers only (every frame header of a GIF), no pixels
+    private boolean keepsOriginal(Path original, Spec spec) {
+        try (ImageInputStream input = ImageIO.createImageInputStream(original.toFile())) {
+            if (input == null) {
+                return false;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return false;
+            }
+            ImageReader reader = readers.next();
+            int width;
+            int height;
+            try {
+                // counting frames reads the whole stream, so only GIFs, the one format here with frames
+                boolean gif = "gif".equals(extension(original));
+                reader.setInput(input, !gif, true);
+                if (gif && reader.getNumImages(true) > 1) {
+                    return true;
+                }
+                width = reader.getWidth(0);
+                height = reader.getHeight(0);
+            } finally {
+                reader.dispose();
+            }
+
+            int orientation = ExifOrientation.read(original);
+            if (orientation != 1) {
+                return false;
+            }
+            int[] target = targetSize(width, height, spec);
+            boolean crops = spec.fit() == Fit.COVER && spec.width() != null && spec.height() != null
+                    && (width > spec.width() || height > spec.height());
+            return target[0] == width && target[1] == height && !crops;
+        } catch (IOException e) {
+            // let the render report it
+            return false;
+        }
+    }
+
+    private static void touch(Path variant) {
+        try {
+            FileTime now = FileTime.from(Instant.now());
+            if (Files.getLastModifiedTime(variant).toInstant().isBefore(now.toInstant().minus(TOUCH_INTERVAL))) {
+                Files.setLastModifiedTime(variant, now);
+            }
+        } catch (IOException e) {
+            // swept meanwhile, the caller still has it open or re-renders next time
+        }
+    }
+
+    /**
+     * Deletes variants whose original is gone and leftover temp files, then the least recently
+     * served variants until the directory is back under nine tenths of max-bytes.
+     */
+    @Scheduled(initialDelayString = "${upload.variants.sweep-initial-delay-ms:300000}",
+            fixedDelayString = "${upload.variants.sweep-interval-ms:3600000}")
+    public void sweep() {
+        if (!Files.isDirectory(variantRoot)) {
+            return;
+        }
+
+        long started = System.currentTimeMillis();
+        Instant tempCutoff = Instant.now().minus(TEMP_MAX_AGE);
+        Map<Path, Boolean> originalExists = new HashMap<>();
+        List<Variant> variants = new ArrayList<>();
+        long total = 0;
+        long orphaned = 0;
+        try (Stream<Path> stream = Files.walk(variantRoot)) {
+            Iterator<Path> files = stream.filter(path -> Files.isRegularFile(path, LinkOption.NOFOLLOW_LINKS)).iterator();
+            while (files.hasNext()) {
+                Path file = files.next();
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                    Instant modified = attributes.lastModifiedTime().toInstant();
+                    if (file.getFileName().toString().startsWith(TEMP_PREFIX)) {
+                        if (modified.isBefore(tempCutoff)) {
+                            Files.deleteIfExists(file);
+                        }
+                        continue;
+                    }
+                    Path directory = file.getParent();
+                    boolean exists = originalExists.computeIfAbsent(directory, dir -> !dir.equals(variantRoot)
+                            && Files.isRegularFile(uploadRoot.resolve(variantRoot.relativize(dir))));
+                    if (!exists) {
+                        Files.deleteIfExists(file);
+                        orphaned++;
+                        continue;
+                    }
+                    variants.add(new Variant(file, attributes.size(), modified));
+                    total += attributes.size();
+                } catch (IOException e) {
+                    log.debug("Skipping variant {}: {}", file, e.getMessage());
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Variant sweep failed: {}", e.getMessage());
+            return;
+        }
+
+        long evicted = 0;
+        if (total > maxBytes) {
+            variants.sort(Comparator.comparing(Variant::modified));
+            long target = maxBytes / 10 * 9;
+            for (Variant variant : variants) {
+                if (total <= target) {
+                    break;
+                }
+                try {
+                    if (Files.deleteIfExists(variant.file())) {
+                        total -= variant.size();
+                        evicted++;
+                    }
+                } catch (IOException e) {
+                    log.debug("Could not evict variant {}: {}", variant.file(), e.getMessage());
+                }
+            }
+        }
+        deleteEmptyDirectories();
+
+        if (orphaned > 0 || evicted > 0) {
+            log.info("Variant sweep: removed {} orphaned and {} least recently used variants, {} bytes left, in {} ms",
+                    orphaned, evicted, total, System.currentTimeMillis() - started);
+        }
+    }
+
+    private void deleteEmptyDirectories() {
+        List<Path> directories;
+        try (Stream<Path> stream = Files.walk(variantRoot)) {
+            directories = stream.filter(path -> Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS))
+                    .filter(path -> !path.equals(variantRoot))
+                    .sorted(Comparator.reverseOrder())
+                    .toList();
+        } catch (IOException | UncheckedIOException e) {
+            return;
+        }
+        for (Path directory : directories) {
+            try {
+                Files.deleteIfExists(directory);
+            } catch (IOException e) {
+                // not empty
+            }
+        }
+    }
+
+    private record Variant(Path file, long size, Instant modified) {
+    }
+
+    private static String extension(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? "" : name.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,103 @@
+package com.cagongu2.be.service;
+
+import com.cagongu2.be.model.Post;
+import com.cagongu2.be.repository.PostRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Moves article bodies from the legacy posts.content TEXT column into compressed
+ * post_contents rows, and clears the legacy value so InnoDB stops carrying it in the
+ * posts pages.
+ * <p>
+ * Opt-in with posts.content-migration.enabled: it then runs on a background thread once the
+ * application is ready, a batch of posts at a time with a pause in between, while the site
+ * keeps serving. Until a post has been moved, Post.getContent reads the legacy column, so
+ * detail pages and index runs see the same body before and after. Each batch commits on its
+ * own, an interrupted migration picks up where it stopped on the next start.
+ */
+@Slf4j
+@Component
+public class PostContentMigration {
+    private final PostRepository postRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long batchPauseMs;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public PostContentMigration(PostRepository postRepository,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${posts.content-migration.enabled:false}") boolean enabled,
+                                @Value("${posts.content-migration.batch-size:200}") int batchSize,
+                                @Value("${posts.content-migration.batch-pause-ms:200}") long batchPauseMs) {
+        this.postRepository = postRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.batchPauseMs = batchPauseMs;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled || !running.compareAndSet(false, true)) {
+            return;
+        }
+
+        Thread worker = new Thread(() -> {
+            try {
+                run();
+            } catch (RuntimeException e) {
+                log.error("Post content migration stopped", e);
+            } finally {
+                running.set(false);
+            }
+        }, "post-content-migration");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private void run() {
+        long lastId = 0;
+        long migrated = 0;
+        while (true) {
+            List<Long> ids = postRepository.findIdsWithLegacyContent(lastId, Limit.of(batchSize));
+            if (ids.isEmpty()) {
+                break;
+            }
+
+            transactionTemplate.executeWithoutResult(status -> migrateBatch(ids));
+            migrated += ids.size();
+            lastId = ids.get(ids.size() - 1);
+
+            try {
+                Thread.sleep(batchPauseMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        log.info("Post content migration finished, moved {} post bodies into post_contents", migrated);
+    }
+
+    private void migrateBatch(List<Long> ids) {
+        for (Post post : postRepository.findAllById(ids)) {
+            // a body written through the new mapping is newer than the legacy column
+            if (post.getBody() == null && post.getLegacyContent() != null) {
+                post.setContent(post.getLegacyContent());
+            }
+            post.setLegacyContent(null);
+        }
+    }
+}
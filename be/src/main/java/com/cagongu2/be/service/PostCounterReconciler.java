@@ -0,0 +1,198 @@
+package com.cagongu2.be.service;
+
+import com.cagongu2.be.model.PostCounter;
+import com.cagongu2.be.repository.PostCounterRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Recomputes post_counters from posts. Fills the table on first start and repairs drift from
+ * changes that do not go through PostServiceImpl, such as manual SQL.
+ * <p>
+ * Counting takes no locks. Each batch reads the posts counts and the counter values in one
+ * read-only REPEATABLE READ snapshot. Post writers change a post and its counters in the same
+ * transaction, so inside a snapshot the two differ only by the drift. That difference is then
+ * added to the counter rows in a short transaction of its own, so writes committed after the
+ * snapshot are neither lost nor counted twice. The write transaction touches counter rows only,
+ * in PostCounterService's lock order, and cannot form a lock cycle with a post writer.
+ */
+@Slf4j
+@Component
+public class PostCounterReconciler {
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final PostCounterRepository postCounterRepository;
+    private final TransactionTemplate snapshotTransaction;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    public PostCounterReconciler(NamedParameterJdbcTemplate jdbcTemplate,
+                                 PostCounterRepository postCounterRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${posts.counters.reconcile-batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.postCounterRepository = postCounterRepository;
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setReadOnly(true);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+    }
+
+    private record Batch<T>(T last, Map<String, Long> drift) {
+    }
+
+    @Scheduled(initialDelayString = "${posts.counters.reconcile-initial-delay-ms:10000}",
+            fixedDelayString = "${posts.counters.reconcile-interval-ms:3600000}")
+    public void reconcile() {
+        long started = System.currentTimeMillis();
+        try {
+            long corrected = reconcileTotal()
+                    + reconcile(PostCounter.Dimension.CATEGORY, "category_id", Long::valueOf)
+                    + reconcile(PostCounter.Dimension.AUTHOR, "author_id", Long::valueOf)
+                    + reconcile(PostCounter.Dimension.STATUS, "status", Function.identity());
+            log.debug("Reconciled post counters, {} corrected in {} ms", corrected, System.currentTimeMillis() - started);
+        } catch (RuntimeException e) {
+            log.error("Post counter reconciliation failed", e);
+        }
+    }
+
+    private long reconcileTotal() {
+        Map<String, Long> drift = snapshotTransaction.execute(status -> {
+            Long posts = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM posts", Map.of(), Long.class);
+            Map<String, Long> counters = counterValues(PostCounter.Dimension.ALL, List.of(PostCounterService.ALL_KEY));
+            return drift(Map.of(PostCounterService.ALL_KEY, posts != null ? posts : 0L), counters,
+                    List.of(PostCounterService.ALL_KEY));
+        });
+        return apply(PostCounter.Dimension.ALL, drift);
+    }
+
+    /*
+     * column comes from the fixed list in reconcile(), never from input. Walks the distinct
+     * values of the column in index order, then the counters of keys that no longer have posts.
+     */
+    private <T> long reconcile(PostCounter.Dimension dimension, String column, Function<String, T> parseKey) {
+        long corrected = 0;
+
+        Object after = null;
+        while (true) {
+            Object from = after;
+            Batch<Object> batch = snapshotTransaction.execute(status -> {
+                MapSqlParameterSource page = new MapSqlParameterSource("limit", batchSize).addValue("after", from);
+                List<Object> keys = jdbcTemplate.queryForList(
+                        "SELECT DISTINCT " + column + " FROM posts WHERE " + column + " IS NOT NULL " +
+                                (from != null ? "AND " + column + " > :after " : "") +
+                                "ORDER BY " + column + " LIMIT :limit",
+                        page,
+                        Object.class);
+                if (keys.isEmpty()) {
+                    return null;
+                }
+                List<String> counterKeys = keys.stream().map(key -> String.valueOf(key)).toList();
+                return new Batch<>(keys.get(keys.size() - 1),
+                        drift(countPosts(column, keys), counterValues(dimension, counterKeys), counterKeys));
+            });
+            if (batch == null) {
+                break;
+            }
+            corrected += apply(dimension, batch.drift());
+            after = batch.last();
+        }
+
+        String afterKey = "";
+        while (true) {
+            String from = afterKey;
+            Batch<String> batch = snapshotTransaction.execute(status -> {
+                Map<String, Long> counters = new LinkedHashMap<>();
+                jdbcTemplate.query("SELECT dimension_key, post_count FROM post_counters " +
+                                "WHERE dimension = :dimension AND post_count <> 0 AND dimension_key > :after " +
+                                "ORDER BY dimension_key LIMIT :limit",
+                        Map.of("dimension", dimension.name(), "after", from, "limit", batchSize),
+                        (RowCallbackHandler) rs -> counters.put(rs.getString("dimension_key"), rs.getLong("post_count")));
+                if (counters.isEmpty()) {
+                    return null;
+                }
+
+                // compared as the column's type, so the lookup can use its index
+                List<T> keys = new ArrayList<>();
+                for (String key : counters.keySet()) {
+                    try {
+                        keys.add(parseKey.apply(key));
+                    } catch (NumberFormatException e) {
+                        // not a valid key, it can have no posts
+                    }
+                }
+                Map<String, Long> posts = keys.isEmpty() ? Map.of() : countPosts(column, keys);
+
+                Map<String, Long> drift = new HashMap<>();
+                counters.forEach((key, value) -> {
+                    if (!posts.containsKey(key)) {
+                        drift.put(key, -value);
+                    }
+                });
+                return new Batch<>(List.copyOf(counters.keySet()).get(counters.size() - 1), drift);
+            });
+            if (batch == null) {
+                break;
+            }
+            corrected += apply(dimension, batch.drift());
+            afterKey = batch.last();
+        }
+        return corrected;
+    }
+
+    private Map<String, Long> countPosts(String column, Collection<?> keys) {
+        Map<String, Long> counts = new HashMap<>();
+        jdbcTemplate.query("SELECT " + column + " AS counter_key, COUNT(*) AS post_count FROM posts " +
+                        "WHERE " + column + " IN (:keys) GROUP BY " + column,
+                Map.of("keys", keys),
+                (RowCallbackHandler) rs -> counts.put(String.valueOf(rs.getObject("counter_key")), rs.getLong("post_count")));
+        return counts;
+    }
+
+    private Map<String, Long> counterValues(PostCounter.Dimension dimension, Collection<String> keys) {
+        Map<String, Long> values = new HashMap<>();
+        jdbcTemplate.query("SELECT dimension_key, post_count FROM post_counters " +
+                        "WHERE dimension = :dimension AND dimension_key IN (:keys)",
+                Map.of("dimension", dimension.name(), "keys", keys),
+                (RowCallbackHandler) rs -> values.put(rs.getString("dimension_key"), rs.getLong("post_count")));
+        return values;
+    }
+
+    private static Map<String, Long> drift(Map<String, Long> posts, Map<String, Long> counters, Collection<String> keys) {
+        Map<String, Long> drift = new HashMap<>();
+        for (String key : keys) {
+            long difference = posts.getOrDefault(key, 0L) - counters.getOrDefault(key, 0L);
+            if (difference != 0) {
+                drift.put(key, difference);
+            }
+        }
+        return drift;
+    }
+
+    // same key order as PostCounterService within a dimension
+    private long apply(PostCounter.Dimension dimension, Map<String, Long> drift) {
+        if (drift == null || drift.isEmpty()) {
+            return 0;
+        }
+        transactionTemplate.executeWithoutResult(status -> new TreeMap<>(drift).forEach((key, difference) ->
+                postCounterRepository.increment(dimension.name(), key, difference)));
+        return drift.size();
+    }
+}
@@ -0,0 +1,176 @@
+package com.cagongu2.be.service;
+
+import com.cagongu2.be.dto.ChangeStamp;
+import com.cagongu2.be.model.Post;
+import com.cagongu2.be.model.PostCounter;
+import com.cagongu2.be.repository.PostCounterRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Reads and maintains post_counters. The write methods join the transaction of the post
+ * change, so a counter moves exactly when the post row does.
+ */
+@Service
+@RequiredArgsConstructor
+public class PostCounterService {
+    static final String ALL_KEY = "";
+
+    // every write locks its counter rows in this order, two opposite moves cannot deadlock
+    private static final Comparator<Delta> LOCK_ORDER = Comparator
+            .comparing((Delta delta) -> delta.dimension().ordinal())
+            .thenComparing(Delta::key);
+
+    private final PostCounterRepository postCounterRepository;
+
+    /** The counted values of a post, taken before a change so the old counters can be decremented. */
+    public record Keys(Long categoryId, Long authorId, String status) {
+        public static Keys of(Post post) {
+            return new Keys(post.getCategory() != null ? post.getCategory().getId() : null,
+                    post.getAuthor() != null ? post.getAuthor().getId() : null,
+                    post.getStatus());
+        }
+    }
+
+    private record Delta(PostCounter.Dimension dimension, String key, long amount) {
+    }
+
+    private record Stamp(LocalDateTime lastModified, Long total, Long generation) implements ChangeStamp {
+        @Override
+        public LocalDateTime getLastModified() {
+            return lastModified;
+        }
+
+        @Override
+        public Long getTotal() {
+            return total;
+        }
+
+        @Override
+        public Long getGeneration() {
+            return generation;
+        }
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onCreated(Post post) {
+        List<Delta> deltas = new ArrayList<>();
+        deltas.add(new Delta(PostCounter.Dimension.ALL, ALL_KEY, 1));
+        add(deltas, Keys.of(post), 1);
+        apply(deltas);
+    }
+
+    // also called when nothing moved: the generations of the post's rows stamp the lists it is in
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onUpdated(Keys before, Post post) {
+        Keys after = Keys.of(post);
+
+        List<Delta> deltas = new ArrayList<>();
+        deltas.add(new Delta(PostCounter.Dimension.ALL, ALL_KEY, 0));
+        addMove(deltas, PostCounter.Dimension.CATEGORY, before.categoryId(), after.categoryId());
+        addMove(deltas, PostCounter.Dimension.AUTHOR, before.authorId(), after.authorId());
+        addMove(deltas, PostCounter.Dimension.STATUS, before.status(), after.status());
+        apply(deltas);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onDeleted(Keys keys) {
+        onDeleted(List.of(keys));
+    }
+
+    // one statement per counter row however many posts go, e.g. with a deleted category
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onDeleted(Collection<Keys> deleted) {
+        List<Delta> deltas = new ArrayList<>();
+        deltas.add(new Delta(PostCounter.Dimension.ALL, ALL_KEY, -deleted.size()));
+        deleted.forEach(keys -> add(deltas, keys, -1));
+
+        // keyed by the delta with its amount zeroed, i.e. by counter row
+        Map<Delta, Long> merged = new LinkedHashMap<>();
+        deltas.forEach(delta -> merged.merge(new Delta(delta.dimension(), delta.key(), 0), delta.amount(), Long::sum));
+        List<Delta> rows = new ArrayList<>();
+        merged.forEach((row, amount) -> rows.add(new Delta(row.dimension(), row.key(), amount)));
+        apply(rows);
+    }
+
+    /**
+     * For a category or author whose name is copied into post summaries: bumps the generations
+     * of the lists that can contain its posts.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onRenamed(PostCounter.Dimension dimension, Object key) {
+        List<Delta> deltas = new ArrayList<>();
+        deltas.add(new Delta(PostCounter.Dimension.ALL, ALL_KEY, 0));
+        addKey(deltas, dimension, key, 0);
+        apply(deltas);
+        // any status list can hold its posts, statuses come last in the lock order
+        postCounterRepository.touchAll(PostCounter.Dimension.STATUS.name());
+    }
+
+    /**
+     * For a change to what every post list may render (a thumbnail url): bumps the generation of
+     * every counter row, dimension by dimension in the lock order.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onListsChanged() {
+        for (PostCounter.Dimension dimension : PostCounter.Dimension.values()) {
+            postCounterRepository.touchAll(dimension.name());
+        }
+    }
+
+    public ChangeStamp stamp(PostCounter.Dimension dimension, Object key) {
+        return postCounterRepository.findById(new PostCounter.Key(dimension, toDimensionKey(dimension, key)))
+                .map(counter -> new Stamp(counter.getUpdatedAt(), counter.getPostCount(), counter.getGeneration()))
+                .orElseGet(() -> new Stamp(null, 0L, 0L));
+    }
+
+    public long count(PostCounter.Dimension dimension, Object key) {
+        return postCounterRepository.findById(new PostCounter.Key(dimension, toDimensionKey(dimension, key)))
+                .map(PostCounter::getPostCount)
+                .orElse(0L);
+    }
+
+    private static String toDimensionKey(PostCounter.Dimension dimension, Object key) {
+        return dimension == PostCounter.Dimension.ALL ? ALL_KEY : String.valueOf(key);
+    }
+
+    private static void add(List<Delta> deltas, Keys keys, long amount) {
+        addKey(deltas, PostCounter.Dimension.CATEGORY, keys.categoryId(), amount);
+        addKey(deltas, PostCounter.Dimension.AUTHOR, keys.authorId(), amount);
+        addKey(deltas, PostCounter.Dimension.STATUS, keys.status(), amount);
+    }
+
+    private static void addMove(List<Delta> deltas, PostCounter.Dimension dimension, Object before, Object after) {
+        if (!Objects.equals(before, after)) {
+            addKey(deltas, dimension, before, -1);
+            addKey(deltas, dimension, after, 1);
+        } else {
+            addKey(deltas, dimension, after, 0);
+        }
+    }
+
+    // posts without a category, author or status are only part of the total
+    private static void addKey(List<Delta> deltas, PostCounter.Dimension dimension, Object key, long amount) {
+        if (key != null) {
+            deltas.add(new Delta(dimension, String.valueOf(key), amount));
+        }
+    }
+
+    private void apply(List<Delta> deltas) {
+        deltas.sort(LOCK_ORDER);
+        for (Delta delta : deltas) {
+            postCounterRepository.increment(delta.dimension().name(), delta.key(), delta.amount());
+        }
+    }
+}
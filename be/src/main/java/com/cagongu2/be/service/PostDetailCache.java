@@ -0,0 +1,163 @@
+package com.cagongu2.be.service;
+
+import com.cagongu2.be.config.PostSingleFlightProperties;
+import com.cagongu2.be.dto.cache.response.CacheStatsResponse;
+import com.cagongu2.be.dto.post.response.PostResponse;
+import com.cagongu2.be.util.SingleFlight;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * In-process cache of article pages. Entries are PostResponse objects keyed by id,
+ * plus a small slug -> id index, and are bounded by their approximate size in bytes
+ * so a handful of huge articles cannot push out hundreds of normal ones.
+ * <p>
+ * Every eviction bumps a generation. A loaded post is only kept if no eviction happened
+ * between reading the generation and storing it, so a reader that loaded the row before
+ * a write committed cannot put the old version back after the write's eviction.
+ * <p>
+ * Misses go through a SingleFlight per key, so concurrent misses on a hot article share one
+ * database load; stats() reports those loads next to the cache counters.
+ */
+@Component
+public class PostDetailCache {
+    private static final int BASE_ENTRY_WEIGHT = 512;
+
+    private final Cache<Long, PostResponse> postsById;
+    private final Cache<String, Long> idsBySlug;
+    private final AtomicLong generation = new AtomicLong();
+    private final SingleFlight<Long, PostResponse> loadsById;
+    private final SingleFlight<String, PostResponse> loadsBySlug;
+
+    public PostDetailCache(PostSingleFlightProperties singleFlightProperties,
+                           @Value("${posts.cache.max-bytes:67108864}") long maxBytes,
+                           @Value("${posts.cache.max-slugs:100000}") long maxSlugs,
+                           @Value("${posts.cache.ttl-minutes:30}") long ttlMinutes) {
+        this.postsById = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((Long id, PostResponse post) -> weigh(post))
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .recordStats()
+                .build();
+        this.idsBySlug = Caffeine.newBuilder()
+                .maximumSize(maxSlugs)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .recordStats()
+                .build();
+        Duration timeout = Duration.ofMillis(singleFlightProperties.getTimeoutMs());
+        this.loadsById = new SingleFlight<>(timeout);
+        this.loadsBySlug = new SingleFlight<>(timeout);
+    }
+
+    public PostResponse getById(Long id, Supplier<PostResponse> loader) {
+        PostResponse cached = postsById.getIfPresent(id);
+        if (cached != null) {
+            return cached;
+        }
+        long expected = generation.get();
+        return put(loadsById.load(id, loader), expected);
+    }
+
+    public PostResponse getBySlug(String slug, Supplier<PostResponse> loader) {
+        Long id = idsBySlug.getIfPresent(slug);
+        if (id != null) {
+            PostResponse cached = postsById.getIfPresent(id);
+            // the slug may have moved to another post since the index entry was written
+            if (cached != null && slug.equals(cached.getSlug())) {
+                return cached;
+            }
+        }
+        long expected = generation.get();
+        return put(loadsBySlug.load(slug, loader), expected);
+    }
+
+    private PostResponse put(PostResponse post, long expected) {
+        if (post == null || post.getId() == null || generation.get() != expected) {
+            return post;
+        }
+        postsById.put(post.getId(), post);
+        if (post.getSlug() != null) {
+            idsBySlug.put(post.getSlug(), post.getId());
+        }
+        // an eviction bumps the generation before it invalidates, so one that ran between the
+        // check and the put is seen here; drop the entry unless a newer load replaced it
+        if (generation.get() != expected) {
+            postsById.asMap().remove(post.getId(), post);
+            if (post.getSlug() != null) {
+                idsBySlug.asMap().remove(post.getSlug(), post.getId());
+            }
+        }
+        return post;
+    }
+
+    /**
+     * Drops the post now and again after the surrounding transaction commits. Loads that
+     * started before the commit are not stored.
+     */
+    public void evict(Long id, String... slugs) {
+        evictNow(id, slugs);
+        afterCommit(() -> evictNow(id, slugs));
+    }
+
+    // category names and author names are copied into every cached post
+    public void evictAll() {
+        evictAllNow();
+        afterCommit(this::evictAllNow);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        }
+    }
+
+    private void evictNow(Long id, String... slugs) {
+        generation.incrementAndGet();
+        if (id != null) {
+            postsById.invalidate(id);
+        }
+        for (String slug : slugs) {
+            if (slug != null) {
+                idsBySlug.invalidate(slug);
+            }
+        }
+    }
+
+    private void evictAllNow() {
+        generation.incrementAndGet();
+        postsById.invalidateAll();
+        idsBySlug.invalidateAll();
+    }
+
+    public List<CacheStatsResponse> stats() {
+        return List.of(
+                CacheStatsResponse.of("posts-by-id", postsById.estimatedSize(), postsById.stats(), loadsById),
+                CacheStatsResponse.of("post-ids-by-slug", idsBySlug.estimatedSize(), idsBySlug.stats(), loadsBySlug));
+    }
+
+    private static int weigh(PostResponse post) {
+        long chars = length(post.getContent()) + length(post.getTitle()) + length(post.getName())
+                + length(post.getSlug()) + length(post.getThumbnail_url());
+        // two bytes per char in the worst case (non-latin1 strings), capped to fit the weigher contract
+        return (int) Math.min(Integer.MAX_VALUE, BASE_ENTRY_WEIGHT + chars * 2);
+    }
+
+    private static long length(String value) {
+        return Objects.requireNonNullElse(value, "").length();
+    }
+}
@@ -0,0 +1,104 @@
+package com.cagongu2.be.service;
+
+import com.cagongu2.be.mapper.PostMapper;
+import com.cagongu2.be.model.Post;
+import com.cagongu2.be.model.PostIndexOutbox;
+import com.cagongu2.be.model.elasticsearch.PostDocument;
+import com.cagongu2.be.repository.PostIndexOutboxRepository;
+import com.cagongu2.be.repository.PostRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Drains post_index_outbox into post-index (and the embedded Lucene index when enabled)
+ * with bulk requests.
+ * <p>
+ * Rows only say which post changed. The document is always rebuilt from the row
+ * currently in MySQL (or deleted if the post is gone), so applying a batch is
+ * idempotent and the latest committed state of a post always wins, whatever
+ * order its outbox rows are retried in.
+ */
+@Slf4j
+@Component
+public class PostIndexOutboxRelay {
+    private static final Duration MAX_BACKOFF = Duration.ofMinutes(5);
+
+    private final PostIndexOutboxRepository outboxRepository;
+    private final PostRepository postRepository;
+    private final PostSearchEngine postSearchEngine;
+    private final PostMapper postMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    public PostIndexOutboxRelay(PostIndexOutboxRepository outboxRepository,
+                                PostRepository postRepository,
+                                PostSearchEngine postSearchEngine,
+                                PostMapper postMapper,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${search.outbox.batch-size:500}") int batchSize) {
+        this.outboxRepository = outboxRepository;
+        this.postRepository = postRepository;
+        this.postSearchEngine = postSearchEngine;
+        this.postMapper = postMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${search.outbox.poll-interval-ms:1000}")
+    public void relay() {
+        // keep draining while batches come back full, a burst of writes should not wait for the next tick
+        Integer processed;
+        do {
+            processed = transactionTemplate.execute(status -> relayBatch());
+        } while (processed != null && processed == batchSize);
+    }
+
+    private int relayBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<PostIndexOutbox> entries = outboxRepository.findReady(now, Limit.of(batchSize));
+        if (entries.isEmpty()) {
+            return 0;
+        }
+
+        Set<Long> postIds = new LinkedHashSet<>();
+        entries.forEach(entry -> postIds.add(entry.getPostId()));
+
+        try {
+            List<Post> posts = postRepository.findAllForIndexing(postIds);
+            List<PostDocument> documents = posts.stream().map(postMapper::toPostDocument).toList();
+
+            Set<Long> deletedIds = new LinkedHashSet<>(postIds);
+            posts.forEach(post -> deletedIds.remove(post.getId()));
+
+            postSearchEngine.apply(documents, deletedIds);
+
+            outboxRepository.deleteAllInBatch(entries);
+        } catch (RuntimeException e) {
+            log.warn("Failed to relay {} post-index changes, will retry", entries.size(), e);
+            entries.forEach(entry -> scheduleRetry(entry, now, e));
+        }
+
+        return entries.size();
+    }
+
+    private void scheduleRetry(PostIndexOutbox entry, LocalDateTime now, RuntimeException e) {
+        int attempts = entry.getAttempts() + 1;
+        long backoffSeconds = Math.min(1L << Math.min(attempts, 20), MAX_BACKOFF.toSeconds());
+
+        entry.setAttempts(attempts);
+        entry.setNextAttemptAt(now.plusSeconds(backoffSeconds));
+        String message = String.valueOf(e.getMessage());
+        entry.setLastError(message.length() > 1000 ? message.substring(0, 1000) : message);
+    }
+}
@@ -0,0 +1,9 @@
+package com.cagongu2.be.service;
+
+import com.cagongu2.be.dto.search.response.ReindexStatusResponse;
+
+public interface PostReindexService {
+    ReindexStatusResponse start(boolean resume, boolean recreateIndex);
+
+    ReindexStatusResponse getStatus();
+}
@@ -0,0 +1,424 @@
+package com.cagongu2.be.service;
+
+import com.cagongu2.be.dto.search.response.ReindexStatusResponse;
+import com.cagongu2.be.mapper.PostMapper;
+import com.cagongu2.be.model.ReindexCheckpoint;
+import com.cagongu2.be.model.elasticsearch.PostDocument;
+import com.cagongu2.be.repository.PostRepository;
+import com.cagongu2.be.repository.ReindexCheckpointRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.data.elasticsearch.core.index.AliasAction;
+import org.springframework.data.elasticsearch.core.index.AliasActionParameters;
+import org.springframework.data.elasticsearch.core.index.AliasActions;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Rebuilds post-index from MySQL.
+ * <p>
+ * The id space is cut into ranges of batchSize ids. A coordinator thread hands them to
+ * a fixed pool of workers, at most maxInFlight at a time, and each worker reads its range
+ * and sends it as one bulk request. Ranges finish out of order, so the checkpoint only
+ * moves forward over a contiguous run of finished ranges: after a crash, resuming from it
+ * re-sends at most maxInFlight ranges.
+ * <p>
+ * The relay keeps writing while a range is in flight. Documents carry the post's updatedAt
+ * as an external version, so a range read before a post changed cannot overwrite the
+ * relay's newer document of it.
+ * <p>
+ * With recreateIndex the run builds a new versioned index (post-index-&lt;timestamp&gt;) next to
+ * the live one, which keeps serving searches. Relay writes go to both while it is built, and
+ * each range is checked for posts deleted meanwhile. When every range is in, one alias update
+ * points post-index at the new index and removes the previous one (the versioned index behind
+ * the alias, or post-index itself when it was created as a plain index). A failed rebuild
+ * deletes its index and leaves the live one as it was.
+ */
+@Slf4j
+@Service
+public class PostReindexServiceImpl implements PostReindexService {
+    static final String JOB_NAME = "post-index";
+
+    private static final String STATUS_RUNNING = "RUNNING";
+    private static final String STATUS_COMPLETED = "COMPLETED";
+    private static final String STATUS_FAILED = "FAILED";
+    private static final int MAX_ATTEMPTS = 3;
+    private static final DateTimeFormatter INDEX_VERSION = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final PostRepository postRepository;
+    private final PostSearchEngine postSearchEngine;
+    private final ReindexCheckpointRepository checkpointRepository;
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final PostMapper postMapper;
+    private final SearchResultCache searchResultCache;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int workerCount;
+    private final int batchSize;
+    private final int maxInFlight;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile Run currentRun;
+
+    public PostReindexServiceImpl(PostRepository postRepository,
+                                  PostSearchEngine postSearchEngine,
+                                  ReindexCheckpointRepository checkpointRepository,
+                                  ElasticsearchOperations elasticsearchOperations,
+                                  PostMapper postMapper,
+                                  SearchResultCache searchResultCache,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${search.reindex.workers:4}") int workerCount,
+                                  @Value("${search.reindex.batch-size:250}") int batchSize,
+                                  @Value("${search.reindex.max-in-flight:8}") int maxInFlight) {
+        this.postRepository = postRepository;
+        this.postSearchEngine = postSearchEngine;
+        this.checkpointRepository = checkpointRepository;
+        this.elasticsearchOperations = elasticsearchOperations;
+        this.postMapper = postMapper;
+        this.searchResultCache = searchResultCache;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.workerCount = workerCount;
+        this.batchSize = batchSize;
+        this.maxInFlight = maxInFlight;
+    }
+
+    @Override
+    public ReindexStatusResponse start(boolean resume, boolean recreateIndex) {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Reindex of " + JOB_NAME + " is already running");
+        }
+
+        try {
+            IndexCoordinates target = null;
+            if (recreateIndex) {
+                target = createVersionedIndex();
+                postSearchEngine.setRebuildTarget(target);
+            } else {
+                IndexOperations indexOps = elasticsearchOperations.indexOps(PostDocument.class);
+                if (!indexOps.exists()) {
+                    indexOps.createWithMapping();
+                } else {
+                    // fields added to PostDocument (e.g. suggest) can be added in place, changed types need recreateIndex
+                    indexOps.putMapping();
+                }
+            }
+
+            Run run = new Run(prepareCheckpoint(resume && !recreateIndex), target);
+            currentRun = run;
+
+            Thread coordinator = new Thread(() -> execute(run), "post-reindex");
+            coordinator.setDaemon(true);
+            coordinator.start();
+        } catch (RuntimeException e) {
+            postSearchEngine.setRebuildTarget(null);
+            running.set(false);
+            throw e;
+        }
+
+        return getStatus();
+    }
+
+    private IndexCoordinates createVersionedIndex() {
+        String alias = elasticsearchOperations.getIndexCoordinatesFor(PostDocument.class).getIndexName();
+        Set<String> live = liveIndices(alias);
+
+        // rebuilds that never went live, e.g. the process died while one ran
+        IndexOperations versions = elasticsearchOperations.indexOps(IndexCoordinates.of(alias + "-*"));
+        for (String index : versions.getAliasesForIndex(alias + "-*").keySet()) {
+            if (!live.contains(index)) {
+                elasticsearchOperations.indexOps(IndexCoordinates.of(index)).delete();
+                log.info("Deleted abandoned rebuild index {}", index);
+            }
+        }
+
+        IndexOperations definition = elasticsearchOperations.indexOps(PostDocument.class);
+        IndexCoordinates target = IndexCoordinates.of(alias + "-" + LocalDateTime.now().format(INDEX_VERSION));
+        elasticsearchOperations.indexOps(target).create(definition.createSettings(), definition.createMapping());
+        return target;
+    }
+
+    // the concrete indices post-index resolves to: the versioned index behind the alias, or itself
+    private Set<String> liveIndices(String alias) {
+        IndexOperations indexOps = elasticsearchOperations.indexOps(IndexCoordinates.of(alias));
+        return indexOps.exists() ? indexOps.getAliasesForIndex(alias).keySet() : Set.of();
+    }
+
+    /*
+     * Adding the alias and removing the previous index is one cluster state update, so a search
+     * sees either the old index or the new one, never none or both.
+     */
+    private void swapAlias(IndexCoordinates target) {
+        String alias = elasticsearchOperations.getIndexCoordinatesFor(PostDocument.class).getIndexName();
+        AliasActions actions = new AliasActions(new AliasAction.Add(AliasActionParameters.builder()
+                .withIndices(target.getIndexName())
+                .withAliases(alias)
+                .build()));
+        for (String previous : liveIndices(alias)) {
+            actions.add(new AliasAction.RemoveIndex(AliasActionParameters.builder()
+                    .withIndices(previous)
+                    .build()));
+        }
+        elasticsearchOperations.indexOps(target).alias(actions);
+        searchResultCache.bumpGeneration();
+        log.info("{} now points at {}", alias, target.getIndexName());
+    }
+
+    @Override
+    public ReindexStatusResponse getStatus() {
+        Run run = currentRun;
+        if (run != null) {
+            return run.toStatus(running.get());
+        }
+
+        return checkpointRepository.findById(JOB_NAME)
+                .map(checkpoint -> new Run(checkpoint, null).toStatus(false))
+                .orElseGet(() -> ReindexStatusResponse.builder().status("IDLE").build());
+    }
+
+    private ReindexCheckpoint prepareCheckpoint(boolean resume) {
+        LocalDateTime now = LocalDateTime.now();
+        Long maxId = postRepository.findMaxId();
+
+        ReindexCheckpoint checkpoint = checkpointRepository.findById(JOB_NAME)
+                .filter(existing -> resume && !STATUS_COMPLETED.equals(existing.getStatus()))
+                .orElseGet(() -> ReindexCheckpoint.builder()
+                        .jobName(JOB_NAME)
+                        .lastCompletedId(0L)
+                        .indexedCount(0L)
+                        .startedAt(now)
+                        .build());
+
+        checkpoint.setMaxId(maxId);
+        checkpoint.setStatus(STATUS_RUNNING);
+        checkpoint.setLastError(null);
+        checkpoint.setUpdatedAt(now);
+        return checkpointRepository.save(checkpoint);
+    }
+
+    private void execute(Run run) {
+        ExecutorService workers = Executors.newFixedThreadPool(workerCount);
+        Semaphore inFlight = new Semaphore(maxInFlight);
+
+        try {
+            long from = run.checkpoint.getLastCompletedId();
+            long maxId = run.checkpoint.getMaxId();
+            log.info("Reindexing {} from id {} to {}", JOB_NAME, from, maxId);
+
+            while (from < maxId && !run.failed.get()) {
+                long lo = from;
+                long hi = Math.min(from + batchSize, maxId);
+
+                inFlight.acquire();
+                run.inFlight.incrementAndGet();
+                workers.execute(() -> {
+                    try {
+                        indexRange(run, lo, hi);
+                    } finally {
+                        run.inFlight.decrementAndGet();
+                        inFlight.release();
+                    }
+                });
+                from = hi;
+            }
+
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+
+            if (run.target == null) {
+                elasticsearchOperations.indexOps(PostDocument.class).refresh();
+            } else if (!run.failed.get()) {
+                elasticsearchOperations.indexOps(run.target).refresh();
+                swapAlias(run.target);
+            }
+            run.finish();
+            log.info("Reindex of {} finished with status {}, {} documents at {} docs/s",
+                    JOB_NAME, run.checkpoint.getStatus(), run.indexedThisRun.get(), run.docsPerSecond());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            run.fail(e);
+            run.finish();
+        } catch (RuntimeException e) {
+            run.fail(e);
+            run.finish();
+        } finally {
+            workers.shutdownNow();
+            if (run.target != null) {
+                // after the swap the relay's writes to post-index reach the new index anyway
+                postSearchEngine.setRebuildTarget(null);
+                if (run.failed.get()) {
+                    dropRebuild(run.target);
+                }
+            }
+            running.set(false);
+        }
+    }
+
+    private void dropRebuild(IndexCoordinates target) {
+        try {
+            String alias = elasticsearchOperations.getIndexCoordinatesFor(PostDocument.class).getIndexName();
+            // an alias update that failed on the way back may still have been applied
+            if (liveIndices(alias).contains(target.getIndexName())) {
+                return;
+            }
+            elasticsearchOperations.indexOps(target).delete();
+        } catch (RuntimeException e) {
+            log.warn("Could not delete failed rebuild index {}, the next rebuild removes it: {}",
+                    target.getIndexName(), e.getMessage());
+        }
+    }
+
+    private void indexRange(Run run, long fromId, long toId) {
+        for (int attempt = 1; !run.failed.get(); attempt++) {
+            try {
+                List<PostDocument> documents = readOnlyTransaction.execute(status ->
+                        postRepository.findAllForIndexingInRange(fromId, toId).stream()
+                                .map(postMapper::toPostDocument)
+                                .toList());
+
+                if (documents != null && !documents.isEmpty()) {
+                    // versioned writes, a post changed by the relay meanwhile keeps its newer document
+                    if (run.target == null) {
+                        postSearchEngine.index(documents);
+                        searchResultCache.bumpGeneration();
+                    } else {
+                        postSearchEngine.index(documents, run.target);
+                        dropDeletedSince(documents, run.target);
+                    }
+                    run.indexedThisRun.addAndGet(documents.size());
+                }
+                run.completeRange(fromId, toId);
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= MAX_ATTEMPTS) {
+                    log.error("Giving up on ids ({}, {}] after {} attempts", fromId, toId, attempt, e);
+                    run.failedBatches.incrementAndGet();
+                    run.fail(e);
+                    return;
+                }
+                log.warn("Bulk indexing ids ({}, {}] failed, attempt {}", fromId, toId, attempt, e);
+                sleep(Duration.ofSeconds(1L << attempt));
+            }
+        }
+    }
+
+    /*
+     * The relay deletes from the rebuild as well, but a delete that arrived before this range was
+     * written had nothing to delete yet. The relay only runs after the delete committed, so every
+     * such post is already gone from MySQL when the range is checked here.
+     */
+    private void dropDeletedSince(List<PostDocument> documents, IndexCoordinates target) {
+        Set<Long> deleted = documents.stream().map(PostDocument::getId).collect(Collectors.toCollection(HashSet::new));
+        postRepository.findExistingIds(deleted).forEach(deleted::remove);
+        deleted.forEach(id -> elasticsearchOperations.delete(String.valueOf(id), target));
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Live state of one reindex run. The checkpoint row is updated whenever the
+     * contiguous watermark moves.
+     */
+    private class Run {
+        private final ReindexCheckpoint checkpoint;
+        // the versioned index a recreate run builds, null when the run writes to post-index
+        private final IndexCoordinates target;
+        private final long startNanos = System.nanoTime();
+        private final long indexedBefore;
+        private final TreeMap<Long, Long> finishedRanges = new TreeMap<>();
+        private final AtomicLong indexedThisRun = new AtomicLong();
+        private final AtomicLong completedBatches = new AtomicLong();
+        private final AtomicLong failedBatches = new AtomicLong();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicBoolean failed = new AtomicBoolean();
+
+        Run(ReindexCheckpoint checkpoint, IndexCoordinates target) {
+            this.checkpoint = checkpoint;
+            this.target = target;
+            this.indexedBefore = checkpoint.getIndexedCount();
+        }
+
+        synchronized void completeRange(long fromId, long toId) {
+            completedBatches.incrementAndGet();
+            finishedRanges.put(fromId, toId);
+
+            long watermark = checkpoint.getLastCompletedId();
+            Long next;
+            while ((next = finishedRanges.remove(watermark)) != null) {
+                watermark = next;
+            }
+
+            if (watermark != checkpoint.getLastCompletedId()) {
+                checkpoint.setLastCompletedId(watermark);
+                saveCheckpoint();
+            }
+        }
+
+        synchronized void fail(Exception e) {
+            failed.set(true);
+            String message = String.valueOf(e.getMessage());
+            checkpoint.setLastError(message.length() > 1000 ? message.substring(0, 1000) : message);
+        }
+
+        synchronized void finish() {
+            checkpoint.setStatus(failed.get() ? STATUS_FAILED : STATUS_COMPLETED);
+            saveCheckpoint();
+        }
+
+        private void saveCheckpoint() {
+            checkpoint.setIndexedCount(indexedBefore + indexedThisRun.get());
+            checkpoint.setUpdatedAt(LocalDateTime.now());
+            checkpointRepository.save(checkpoint);
+        }
+
+        double docsPerSecond() {
+            double seconds = (System.nanoTime() - startNanos) / 1_000_000_000.0;
+            return seconds > 0 ? indexedThisRun.get() / seconds : 0;
+        }
+
+        synchronized ReindexStatusResponse toStatus(boolean isRunning) {
+            long maxId = checkpoint.getMaxId();
+            long done = checkpoint.getLastCompletedId();
+            return ReindexStatusResponse.builder()
+                    .status(checkpoint.getStatus())
+                    .running(isRunning)
+                    .lastCompletedId(done)
+                    .maxId(maxId)
+                    .progressPercent(maxId > 0 ? Math.min(100.0, done * 100.0 / maxId) : 100.0)
+                    .indexedCount(indexedBefore + indexedThisRun.get())
+                    .completedBatches(completedBatches.get())
+                    .failedBatches(failedBatches.get())
+                    .inFlightBatches(inFlight.get())
+                    .docsPerSecond(isRunning ? docsPerSecond() : 0)
+                    .startedAt(checkpoint.getStartedAt())
+                    .updatedAt(checkpoint.getUpdatedAt())
+                    .lastError(checkpoint.getLastError())
+                    .build();
+        }
+    }
+}
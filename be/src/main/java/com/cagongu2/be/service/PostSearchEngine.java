@@ -0,0 +1,263 @@
+package com.cagongu2.be.service;
+
+import com.cagongu2.be.mapper.PostMapper;
+import com.cagongu2.be.model.elasticsearch.PostDocument;
+import com.cagongu2.be.repository.PostRepository;
+import com.cagongu2.be.repository.elasticsearch.PostSearchRepository;
+import com.cagongu2.be.repository.lucene.PostLuceneIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.elasticsearch.BulkFailureException;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Routes full-text search and index writes between Elasticsearch and the embedded Lucene index.
+ * <ul>
+ *     <li>search.engine=elasticsearch (default): Elasticsearch serves searches. With
+ *     search.lucene.enabled the Lucene index is kept up to date as well and answers while
+ *     Elasticsearch fails, for a cool-down period after each failure.</li>
+ *     <li>search.engine=lucene: Lucene serves searches and Elasticsearch is never called,
+ *     for small deployments that do not run a cluster.</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class PostSearchEngine {
+    private static final String LUCENE = "lucene";
+
+    private final PostSearchRepository postSearchRepository;
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final Optional<PostLuceneIndex> luceneIndex;
+    private final PostRepository postRepository;
+    private final PostMapper postMapper;
+    private final SearchResultCache searchResultCache;
+    private final TransactionTemplate readOnlyTransaction;
+    private final boolean lucenePrimary;
+    private final Duration fallbackCooldown;
+    private final int luceneMaxResults;
+    private final int rebuildBatchSize;
+
+    // lucene writes of the relay and of a rebuild batch never interleave, see rebuildLucene
+    private final ReentrantLock luceneWriteLock = new ReentrantLock();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private volatile long elasticsearchRetryAt;
+    // a post-index rebuild that is not live yet, relay writes go there too, see PostReindexServiceImpl
+    private volatile IndexCoordinates rebuildTarget;
+
+    public PostSearchEngine(PostSearchRepository postSearchRepository,
+                            ElasticsearchOperations elasticsearchOperations,
+                            Optional<PostLuceneIndex> luceneIndex,
+                            PostRepository postRepository,
+                            PostMapper postMapper,
+                            SearchResultCache searchResultCache,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${search.engine:elasticsearch}") String engine,
+                            @Value("${search.fallback.cooldown-ms:30000}") long fallbackCooldownMs,
+                            @Value("${search.lucene.max-results:100}") int luceneMaxResults,
+                            @Value("${search.lucene.rebuild-batch-size:500}") int rebuildBatchSize) {
+        this.postSearchRepository = postSearchRepository;
+        this.elasticsearchOperations = elasticsearchOperations;
+        this.luceneIndex = luceneIndex;
+        this.postRepository = postRepository;
+        this.postMapper = postMapper;
+        this.searchResultCache = searchResultCache;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.lucenePrimary = LUCENE.equalsIgnoreCase(engine);
+        this.fallbackCooldown = Duration.ofMillis(fallbackCooldownMs);
+        this.luceneMaxResults = luceneMaxResults;
+        this.rebuildBatchSize = rebuildBatchSize;
+    }
+
+    public List<PostDocument> search(String text) {
+        if (luceneIndex.isEmpty()) {
+            return postSearchRepository.searchPosts(text);
+        }
+        if (lucenePrimary || System.currentTimeMillis() < elasticsearchRetryAt) {
+            return luceneIndex.get().search(text, luceneMaxResults);
+        }
+
+        try {
+            return postSearchRepository.searchPosts(text);
+        } catch (RuntimeException e) {
+            elasticsearchRetryAt = System.currentTimeMillis() + fallbackCooldown.toMillis();
+            log.warn("Elasticsearch search failed, serving from Lucene for {}s: {}",
+                    fallbackCooldown.toSeconds(), e.getMessage());
+            return luceneIndex.get().search(text, luceneMaxResults);
+        }
+    }
+
+    /**
+     * Applies one relay batch to every enabled engine. Lucene goes first: it is local and,
+     * when Elasticsearch then fails, the retried batch is simply applied to it again.
+     */
+    public void apply(Collection<PostDocument> upserts, Collection<Long> deletedIds) {
+        luceneIndex.ifPresent(index -> {
+            luceneWriteLock.lock();
+            try {
+                if (!upserts.isEmpty()) {
+                    index.upsert(upserts);
+                }
+                if (!deletedIds.isEmpty()) {
+                    index.delete(deletedIds);
+                }
+                // the outbox rows are deleted right after, the change has to be durable first
+                index.publish(true);
+            } finally {
+                luceneWriteLock.unlock();
+            }
+        });
+
+        if (!lucenePrimary) {
+            if (!upserts.isEmpty()) {
+                index(upserts);
+            }
+            // a plain delete leaves a tombstone one version above the indexed document, so a stale
+            // reindex write of the post is rejected for index.gc_deletes (60s by default)
+            if (!deletedIds.isEmpty()) {
+                postSearchRepository.deleteAllById(deletedIds);
+            }
+
+            IndexCoordinates target = rebuildTarget;
+            if (target != null) {
+                if (!upserts.isEmpty()) {
+                    index(upserts, target);
+                }
+                deletedIds.forEach(id -> elasticsearchOperations.delete(String.valueOf(id), target));
+            }
+        }
+        searchResultCache.bumpGeneration();
+    }
+
+    /** Sends relay writes to the given index as well until it goes live, null stops that. */
+    public void setRebuildTarget(IndexCoordinates target) {
+        this.rebuildTarget = target;
+    }
+
+    /**
+     * Bulk-writes documents to Elasticsearch. A document whose write is rejected with a version
+     * conflict already holds the same or a newer state of the post, so that is not an error.
+     */
+    public void index(Collection<PostDocument> documents) {
+        ignoringVersionConflicts(() -> postSearchRepository.saveAll(documents));
+    }
+
+    /** Same as index, into a concrete index that is not behind post-index (yet). */
+    public void index(Collection<PostDocument> documents, IndexCoordinates target) {
+        ignoringVersionConflicts(() -> elasticsearchOperations.save(documents, target));
+    }
+
+    private static void ignoringVersionConflicts(Runnable write) {
+        try {
+            write.run();
+        } catch (BulkFailureException e) {
+            Map<String, BulkFailureException.FailureDetails> failures = e.getFailedDocuments();
+            boolean onlyConflicts = !failures.isEmpty() && failures.values().stream()
+                    .allMatch(failure -> Integer.valueOf(HttpStatus.CONFLICT.value()).equals(failure.status()));
+            if (!onlyConflicts) {
+                throw e;
+            }
+            log.debug("Skipped {} post-index writes older than the indexed documents", failures.size());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        // created here rather than by the repository, so the app starts without a reachable cluster
+        if (!lucenePrimary) {
+            try {
+                IndexOperations indexOps = elasticsearchOperations.indexOps(PostDocument.class);
+                if (!indexOps.exists()) {
+                    indexOps.createWithMapping();
+                } else {
+                    // fields added to PostDocument since the index was created (suggest, authorName)
+                    indexOps.putMapping();
+                }
+            } catch (RuntimeException e) {
+                log.warn("Could not check post-index in Elasticsearch: {}", e.getMessage());
+            }
+        }
+
+        // a fresh data directory (new node, wiped disk) is filled from MySQL without an admin call
+        if (luceneIndex.isPresent() && luceneIndex.get().count() == 0 && postRepository.count() > 0) {
+            startLuceneRebuild();
+        }
+    }
+
+    /** Starts a rebuild in the background, false when Lucene is disabled or one is running. */
+    public boolean startLuceneRebuild() {
+        if (luceneIndex.isEmpty() || !rebuilding.compareAndSet(false, true)) {
+            return false;
+        }
+
+        Thread thread = new Thread(() -> {
+            try {
+                rebuildLucene(luceneIndex.get());
+            } catch (RuntimeException e) {
+                log.error("Lucene rebuild failed", e);
+            } finally {
+                rebuilding.set(false);
+            }
+        }, "lucene-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    /*
+     * Replaces the index range by range instead of clearing it first, so searches never see an
+     * empty index. Each range is read and written under luceneWriteLock: a relay write for a post
+     * is either applied before the range is read (and then re-read with the same state) or after
+     * it is written, so a rebuild can never put back an older version of a post.
+     */
+    private void rebuildLucene(PostLuceneIndex index) {
+        long started = System.currentTimeMillis();
+        long maxId = postRepository.findMaxId();
+        long fromId = 0;
+        long indexed = 0;
+
+        while (true) {
+            long from = fromId;
+            // the last range is open ended, posts created during the rebuild fall into it
+            long to = from + rebuildBatchSize >= maxId ? Long.MAX_VALUE : from + rebuildBatchSize;
+
+            luceneWriteLock.lock();
+            try {
+                List<PostDocument> documents = readOnlyTransaction.execute(status ->
+                        postRepository.findAllForIndexingInRange(from, to).stream()
+                                .map(postMapper::toPostDocument)
+                                .toList());
+                index.replaceRange(from, to, documents);
+                index.publish(false);
+                searchResultCache.bumpGeneration();
+                indexed += documents.size();
+            } finally {
+                luceneWriteLock.unlock();
+            }
+
+            if (to == Long.MAX_VALUE) {
+                break;
+            }
+            fromId = to;
+        }
+
+        index.publish(true);
+        log.info("Rebuilt Lucene post index: {} posts in {} ms", indexed, System.currentTimeMillis() - started);
+    }
+}
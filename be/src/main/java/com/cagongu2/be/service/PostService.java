@@ -1,13 +1,20 @@
 package com.cagongu2.be.service;
 
+import com.cagongu2.be.dto.ChangeStamp;
+import com.cagongu2.be.dto.CursorPage;
+import com.cagongu2.be.dto.post.response.PostCountResponse;
 import com.cagongu2.be.dto.post.response.PostResponse;
+import com.cagongu2.be.dto.post.response.PostSummary;
 import com.cagongu2.be.dto.post.request.PostRequest;
+import com.cagongu2.be.dto.search.response.PostSearchHit;
+import com.cagongu2.be.dto.search.response.PostSuggestion;
 import com.cagongu2.be.model.Post;
 import com.cagongu2.be.model.elasticsearch.PostDocument;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.List;
 
 public interface PostService {
@@ -15,21 +22,48 @@ public interface PostService {
 
     List<PostDocument> searchPosts(String text);
 
-    Page<PostResponse> getAllPosts(Pageable pageable);
+    CursorPage<PostSearchHit> searchPostsPage(String text, String cursor, int size);
 
-    Page<PostResponse> searchPostResponsesByTitle(String keyword, Pageable pageable);
+    List<PostSuggestion> suggestPosts(String prefix, int size);
+
+    Page<PostSummary> getAllPosts(Pageable pageable);
+
+    Page<PostSummary> searchPostResponsesByTitle(String keyword, Pageable pageable);
+
+    CursorPage<PostSummary> getPostsByCursor(String cursor, int size, boolean withTotal);
+
+    CursorPage<PostSummary> searchPostResponsesByTitleCursor(String keyword, String cursor, int size, boolean withTotal);
 
     PostResponse getPostById(Long id);
 
     PostResponse getPostBySlug(String slug);
 
-    List<PostResponse> getPostsByCategory(Long categoryId);
+    List<PostSummary> getPostsByCategory(Long categoryId);
+
+    List<PostSummary> getPostsByAuthor(Long authorId);
+
+    List<PostSummary> getPostsByStatus(String status);
+
+    PostCountResponse countPosts();
 
-    List<PostResponse> getPostsByAuthor(Long authorId);
+    PostCountResponse countPostsByCategory(Long categoryId);
 
-    List<PostResponse> getPostsByStatus(String status);
+    PostCountResponse countPostsByAuthor(Long authorId);
+
+    PostCountResponse countPostsByStatus(String status);
+
+    ChangeStamp getPostsStamp();
+
+    ChangeStamp getPostsStampByCategory(Long categoryId);
+
+    ChangeStamp getPostsStampByAuthor(Long authorId);
+
+    ChangeStamp getPostsStampByStatus(String status);
 
     PostResponse updatePost(Long id, PostRequest request) throws IOException;
 
     void deletePost(Long id);
+
+    /** Deletes every post of the categories, with the same index, counter and upload bookkeeping as deletePost. */
+    void deletePostsByCategories(Collection<Long> categoryIds);
 }
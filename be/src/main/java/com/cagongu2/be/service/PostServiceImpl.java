@@ -1,26 +1,49 @@
 package com.cagongu2.be.service;
 
+import com.cagongu2.be.config.PostSingleFlightProperties;
+import com.cagongu2.be.dto.ChangeStamp;
+import com.cagongu2.be.dto.CursorPage;
+import com.cagongu2.be.dto.post.request.PostCursor;
+import com.cagongu2.be.dto.post.response.PostCountResponse;
 import com.cagongu2.be.dto.post.response.PostResponse;
+import com.cagongu2.be.dto.post.response.PostSummary;
 import com.cagongu2.be.dto.post.request.PostRequest;
+import com.cagongu2.be.dto.search.request.SearchCursor;
+import com.cagongu2.be.dto.search.response.PostSearchHit;
+import com.cagongu2.be.dto.search.response.PostSuggestion;
 import com.cagongu2.be.mapper.PostMapper;
 import com.cagongu2.be.model.Category;
 import com.cagongu2.be.model.Image;
 import com.cagongu2.be.model.Post;
+import com.cagongu2.be.model.PostCounter;
+import com.cagongu2.be.model.PostIndexOutbox;
 import com.cagongu2.be.model.User;
 import com.cagongu2.be.model.elasticsearch.PostDocument;
 import com.cagongu2.be.repository.CategoryRepository;
+import com.cagongu2.be.repository.PostIndexOutboxRepository;
 import com.cagongu2.be.repository.PostRepository;
 import com.cagongu2.be.repository.UserRepository;
 import com.cagongu2.be.repository.elasticsearch.PostSearchRepository;
+import com.cagongu2.be.util.SingleFlight;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.TotalHitsRelation;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.NoSuchElementException;
 
@@ -29,10 +52,26 @@ import java.util.NoSuchElementException;
 public class PostServiceImpl implements PostService {
     private final PostRepository postRepository;
     private final PostSearchRepository postSearchRepository;
+    private final PostIndexOutboxRepository postIndexOutboxRepository;
     private final CategoryRepository categoryRepository;
     private final UserRepository userRepository;
     private final FileUploadService fileUploadService;
     private final PostMapper postMapper;
+    private final PostDetailCache postDetailCache;
+    private final PostTitleFulltextIndex postTitleFulltextIndex;
+    private final PostSearchEngine postSearchEngine;
+    private final SearchResultCache searchResultCache;
+    private final PostCounterService postCounterService;
+    private final SiteBootstrapCache siteBootstrapCache;
+    private final PostSingleFlightProperties singleFlightProperties;
+
+    // one database load per category at a time, concurrent requests for a busy listing share it
+    private SingleFlight<Long, List<PostSummary>> postsByCategoryFlight;
+
+    @PostConstruct
+    void createFlights() {
+        postsByCategoryFlight = new SingleFlight<>(Duration.ofMillis(singleFlightProperties.getTimeoutMs()));
+    }
 
     @Override
     @Transactional
@@ -67,70 +106,235 @@ public class PostServiceImpl implements PostService {
         post.setUpdatedAt(LocalDateTime.now());
 
         var saved = postRepository.save(post);
+        enqueueIndexing(saved.getId(), PostIndexOutbox.Operation.UPSERT);
+        postCounterService.onCreated(saved);
+        // the bootstrap's menu and footer list post names and slugs
+        siteBootstrapCache.invalidateAfterCommit();
 
         PostResponse response = postMapper.toPostResponse(saved);
         if (image != null) {
             response.setThumbnail_url(image.getUrl());
         }
 
-        PostDocument document = PostDocument.builder()
-                .id(saved.getId())
-                .name(request.getName())
-                .title(request.getTitle())
-                .content(request.getContent())
-                .slug(request.getSlug())
-                .thumbnail_url(response.getThumbnail_url())
-                .build();
-
         return response;
     }
 
     @Override
     public List<PostDocument> searchPosts(String text) {
-        return postSearchRepository.searchPosts(text);
+        return searchResultCache.get("posts", text, List.of(), () -> postSearchEngine.search(text));
     }
 
     @Override
-    public Page<PostResponse> getAllPosts(Pageable pageable) {
-        return postRepository.findAll(pageable).map(postMapper::toPostResponse);
+    public CursorPage<PostSearchHit> searchPostsPage(String text, String cursor, int size) {
+        return searchResultCache.get("posts-page", text, Arrays.asList(cursor, size), () -> loadSearchPage(text, cursor, size));
+    }
+
+    private CursorPage<PostSearchHit> loadSearchPage(String text, String cursor, int size) {
+        List<Object> searchAfter = StringUtils.hasText(cursor) ? SearchCursor.decode(cursor).toSearchAfter() : null;
+        SearchHits<PostDocument> hits = postSearchRepository.searchPage(text, searchAfter, size + 1);
+
+        List<SearchHit<PostDocument>> found = hits.getSearchHits();
+        boolean hasNext = found.size() > size;
+        List<SearchHit<PostDocument>> page = hasNext ? found.subList(0, size) : found;
+
+        String nextCursor = null;
+        if (hasNext) {
+            SearchHit<PostDocument> last = page.get(page.size() - 1);
+            nextCursor = new SearchCursor(last.getScore(), last.getContent().getId()).encode();
+        }
+
+        return CursorPage.<PostSearchHit>builder()
+                .content(page.stream().map(PostServiceImpl::toSearchHit).toList())
+                .size(page.size())
+                .hasNext(hasNext)
+                .nextCursor(nextCursor)
+                .totalElements(hits.getTotalHits())
+                .totalExact(hits.getTotalHitsRelation() == TotalHitsRelation.EQUAL_TO)
+                .build();
     }
 
     @Override
-    public Page<PostResponse> searchPostResponsesByTitle(String keyword, Pageable pageable) {
-        return postRepository.findAllByTitleContainingIgnoreCase(keyword, pageable).map(postMapper::toPostResponse);
+    public List<PostSuggestion> suggestPosts(String prefix, int size) {
+        return searchResultCache.get("suggest", prefix, List.of(size), () -> loadSuggestions(prefix, size));
     }
 
+    private List<PostSuggestion> loadSuggestions(String prefix, int size) {
+        return postSearchRepository.suggest(prefix, size).stream()
+                .filter(option -> option.getSearchHit() != null)
+                .map(option -> {
+                    PostDocument document = option.getSearchHit().getContent();
+                    return PostSuggestion.builder()
+                            .id(document.getId())
+                            .title(document.getTitle())
+                            .slug(document.getSlug())
+                            .text(option.getText())
+                            .build();
+                })
+                .toList();
+    }
+
+    private static PostSearchHit toSearchHit(SearchHit<PostDocument> hit) {
+        PostDocument document = hit.getContent();
+        return PostSearchHit.builder()
+                .id(document.getId())
+                .name(document.getName())
+                .title(document.getTitle())
+                .slug(document.getSlug())
+                .authorName(document.getAuthorName())
+                .thumbnail_url(document.getThumbnail_url())
+                .score(hit.getScore())
+                .highlights(hit.getHighlightFields())
+                .build();
+    }
+
+    @Override
+    public Page<PostSummary> getAllPosts(Pageable pageable) {
+        return postRepository.findAllSummaries(pageable);
+    }
+
+    @Override
+    public Page<PostSummary> searchPostResponsesByTitle(String keyword, Pageable pageable) {
+        String match = postTitleFulltextIndex.toBooleanQuery(keyword);
+        if (match != null) {
+            // the native query orders by relevance itself, a sort would be appended after it
+            return postRepository.searchSummariesByTitle(match,
+                    PageRequest.of(pageable.getPageNumber(), pageable.getPageSize()));
+        }
+        return postRepository.findSummariesByTitle(keyword, pageable);
+    }
+
+
+    @Override
+    public CursorPage<PostSummary> getPostsByCursor(String cursor, int size, boolean withTotal) {
+        Limit limit = Limit.of(size + 1);
+        List<PostSummary> posts;
+        if (StringUtils.hasText(cursor)) {
+            PostCursor after = PostCursor.decode(cursor);
+            posts = postRepository.findLatestBefore(after.getCreatedAt(), after.getId(), limit);
+        } else {
+            posts = postRepository.findLatest(limit);
+        }
+
+        return toCursorPage(posts, size, withTotal ? postCounterService.count(PostCounter.Dimension.ALL, null) : null);
+    }
+
+    @Override
+    public CursorPage<PostSummary> searchPostResponsesByTitleCursor(String keyword, String cursor, int size, boolean withTotal) {
+        Limit limit = Limit.of(size + 1);
+        List<PostSummary> posts;
+        if (StringUtils.hasText(cursor)) {
+            PostCursor after = PostCursor.decode(cursor);
+            posts = postRepository.findLatestByTitleBefore(keyword, after.getCreatedAt(), after.getId(), limit);
+        } else {
+            posts = postRepository.findLatestByTitle(keyword, limit);
+        }
+
+        return toCursorPage(posts, size, withTotal ? postRepository.countByTitleContainingIgnoreCase(keyword) : null);
+    }
+
+    // posts holds up to size + 1 rows, the extra one only tells us whether another page exists
+    private CursorPage<PostSummary> toCursorPage(List<PostSummary> posts, int size, Long total) {
+        boolean hasNext = posts.size() > size;
+        List<PostSummary> pageContent = hasNext ? posts.subList(0, size) : posts;
+
+        String nextCursor = null;
+        if (hasNext) {
+            PostSummary last = pageContent.get(pageContent.size() - 1);
+            nextCursor = new PostCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+
+        return CursorPage.<PostSummary>builder()
+                .content(pageContent)
+                .size(pageContent.size())
+                .hasNext(hasNext)
+                .nextCursor(nextCursor)
+                .totalElements(total)
+                .build();
+    }
 
     @Override
     public PostResponse getPostById(Long id) {
-        return postMapper.toPostResponse( postRepository.findById(id)
-                .orElseThrow(() -> new NoSuchElementException("Post not found with ID: " + id)));
+        return postDetailCache.getById(id, () ->
+                postMapper.toPostResponse(postRepository.findDetailById(id)
+                        .orElseThrow(() -> new NoSuchElementException("Post not found with ID: " + id))));
     }
 
     @Override
     public PostResponse getPostBySlug(String slug) {
-        return postMapper.toPostResponse(postRepository.findBySlug(slug).orElseThrow(() -> new RuntimeException("Not found post has slug: " + slug)));
+        return postDetailCache.getBySlug(slug, () ->
+                postMapper.toPostResponse(postRepository.findBySlug(slug)
+                        .orElseThrow(() -> new RuntimeException("Not found post has slug: " + slug))));
     }
 
     @Override
-    public List<PostResponse> getPostsByCategory(Long categoryId) {
-        return postRepository.findByCategoryId(categoryId).stream().map(postMapper::toPostResponse).toList();
+    public List<PostSummary> getPostsByCategory(Long categoryId) {
+        return postsByCategoryFlight.load(categoryId, () -> postRepository.findSummariesByCategoryId(categoryId));
     }
 
     @Override
-    public List<PostResponse> getPostsByAuthor(Long authorId) {
-        return postRepository.findByAuthorId(authorId).stream().map(postMapper::toPostResponse).toList();
+    public List<PostSummary> getPostsByAuthor(Long authorId) {
+        return postRepository.findSummariesByAuthorId(authorId);
     }
 
     @Override
-    public List<PostResponse> getPostsByStatus(String status) {
-        return postRepository.findByStatus(status).stream().map(postMapper::toPostResponse).toList();
+    public List<PostSummary> getPostsByStatus(String status) {
+        return postRepository.findSummariesByStatus(status);
+    }
+
+    @Override
+    public PostCountResponse countPosts() {
+        return toCountResponse(PostCounter.Dimension.ALL, null);
+    }
+
+    @Override
+    public PostCountResponse countPostsByCategory(Long categoryId) {
+        return toCountResponse(PostCounter.Dimension.CATEGORY, categoryId);
+    }
+
+    @Override
+    public PostCountResponse countPostsByAuthor(Long authorId) {
+        return toCountResponse(PostCounter.Dimension.AUTHOR, authorId);
+    }
+
+    @Override
+    public PostCountResponse countPostsByStatus(String status) {
+        return toCountResponse(PostCounter.Dimension.STATUS, status);
+    }
+
+    private PostCountResponse toCountResponse(PostCounter.Dimension dimension, Object key) {
+        return PostCountResponse.builder()
+                .dimension(dimension.name().toLowerCase())
+                .key(key != null ? String.valueOf(key) : null)
+                .count(postCounterService.count(dimension, key))
+                .build();
+    }
+
+    @Override
+    public ChangeStamp getPostsStamp() {
+        return postCounterService.stamp(PostCounter.Dimension.ALL, null);
+    }
+
+    @Override
+    public ChangeStamp getPostsStampByCategory(Long categoryId) {
+        return postCounterService.stamp(PostCounter.Dimension.CATEGORY, categoryId);
+    }
+
+    @Override
+    public ChangeStamp getPostsStampByAuthor(Long authorId) {
+        return postCounterService.stamp(PostCounter.Dimension.AUTHOR, authorId);
+    }
+
+    @Override
+    public ChangeStamp getPostsStampByStatus(String status) {
+        return postCounterService.stamp(PostCounter.Dimension.STATUS, status);
     }
 
     @Override
     @Transactional
     public PostResponse updatePost(Long id, PostRequest request) throws IOException {
         Post post = postRepository.findById(id).orElseThrow(() -> new IllegalArgumentException("Not found post has ID: " + id));
+        String oldSlug = post.getSlug();
+        PostCounterService.Keys oldKeys = PostCounterService.Keys.of(post);
 
         if (StringUtils.hasText(request.getTitle())) {
             post.setTitle(request.getTitle());
@@ -170,29 +374,23 @@ public class PostServiceImpl implements PostService {
                     .url(thumbnailUrl)
                     .type("thumbnail")
                     .build();
+            // the old row goes with orphanRemoval, UploadGarbageCollector removes its file once nothing links it
             post.setThumbnail(newImage);
         }
 
         post.setUpdatedAt(LocalDateTime.now());
 
         var updated = postRepository.save(post);
+        enqueueIndexing(updated.getId(), PostIndexOutbox.Operation.UPSERT);
+        postCounterService.onUpdated(oldKeys, updated);
+        siteBootstrapCache.invalidateAfterCommit();
+        postDetailCache.evict(updated.getId(), oldSlug, updated.getSlug());
 
         PostResponse response = postMapper.toPostResponse(updated);
         if (updated.getThumbnail() != null) {
             response.setThumbnail_url(updated.getThumbnail().getUrl());
         }
 
-        PostDocument document = PostDocument.builder()
-                .id(updated.getId())
-                .title(request.getTitle())
-                .name(request.getName())
-                .content(request.getContent())
-                .slug(request.getSlug())
-                .thumbnail_url(response.getThumbnail_url())
-                .build();
-
-        postSearchRepository.save(document);
-
         return response;
     }
 
@@ -200,7 +398,43 @@ public class PostServiceImpl implements PostService {
     @Transactional
     public void deletePost(Long id) {
         Post post = postRepository.findById(id).orElseThrow(() -> new IllegalArgumentException("Not found post has ID: " + id));
+        PostCounterService.Keys keys = PostCounterService.Keys.of(post);
         postRepository.delete(post);
-        postSearchRepository.deleteById(post.getId());
+        enqueueIndexing(post.getId(), PostIndexOutbox.Operation.DELETE);
+        postCounterService.onDeleted(keys);
+        siteBootstrapCache.invalidateAfterCommit();
+        postDetailCache.evict(post.getId(), post.getSlug());
+    }
+
+    @Override
+    @Transactional
+    public void deletePostsByCategories(Collection<Long> categoryIds) {
+        List<Post> posts = postRepository.findAllByCategoryIdIn(categoryIds);
+        if (posts.isEmpty()) {
+            return;
+        }
+
+        List<PostCounterService.Keys> keys = new ArrayList<>(posts.size());
+        for (Post post : posts) {
+            keys.add(PostCounterService.Keys.of(post));
+            enqueueIndexing(post.getId(), PostIndexOutbox.Operation.DELETE);
+        }
+        postRepository.deleteAll(posts);
+        // gone before the caller deletes the category, its cascade has nothing left to remove
+        postRepository.flush();
+        postCounterService.onDeleted(keys);
+        siteBootstrapCache.invalidateAfterCommit();
+        postDetailCache.evictAll();
+    }
+
+    // committed together with the post, PostIndexOutboxRelay pushes it to post-index afterwards
+    private void enqueueIndexing(Long postId, PostIndexOutbox.Operation operation) {
+        LocalDateTime now = LocalDateTime.now();
+        postIndexOutboxRepository.save(PostIndexOutbox.builder()
+                .postId(postId)
+                .operation(operation)
+                .createdAt(now)
+                .nextAttemptAt(now)
+                .build());
     }
 }
@@ -0,0 +1,82 @@
+package com.cagongu2.be.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+/**
+ * Tracks the FULLTEXT index on posts.title (ngram parser, so Vietnamese titles are split into
+ * n-grams instead of relying on word boundaries). The index is built by the one-off migration
+ * db/ftx_posts_title.sql, without stopwords; title search uses it once it exists and falls
+ * back to LIKE otherwise (migration not run, another database, or the feature switched off).
+ * <p>
+ * The index name carries the parser setup: ftx_posts_title, which older versions created at
+ * startup with the default stopword list, is ignored.
+ */
+@Slf4j
+@Component
+public class PostTitleFulltextIndex implements SmartInitializingSingleton {
+    private static final String INDEX_NAME = "ftx_posts_title_ngram";
+
+    // innodb ngram_token_size default, shorter keywords produce no tokens to match
+    private static final int MIN_KEYWORD_LENGTH = 2;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private volatile boolean available;
+
+    public PostTitleFulltextIndex(JdbcTemplate jdbcTemplate,
+                                  @Value("${posts.title-fulltext.enabled:true}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            available = indexExists();
+            if (!available) {
+                log.info("FULLTEXT index {} not found, title search uses LIKE until db/ftx_posts_title.sql is run",
+                        INDEX_NAME);
+            }
+        } catch (DataAccessException e) {
+            log.warn("FULLTEXT title search unavailable, falling back to LIKE: {}", e.getMessage());
+            available = false;
+        }
+    }
+
+    /**
+     * The keyword as a BOOLEAN MODE phrase, which ngram matches as consecutive n-grams
+     * (the "contains" semantics of LIKE for keywords of two or more characters, given the
+     * index has no stopwords), or null when the LIKE path has to be used.
+     */
+    public String toBooleanQuery(String keyword) {
+        if (!available || keyword == null) {
+            return null;
+        }
+
+        // boolean mode operators would change the meaning of the query or make it invalid
+        String phrase = keyword.replaceAll("[\"+\\-<>()~*@]", " ").trim().replaceAll("\\s+", " ");
+        if (!StringUtils.hasText(phrase) || phrase.replace(" ", "").length() < MIN_KEYWORD_LENGTH) {
+            return null;
+        }
+        return "\"" + phrase + "\"";
+    }
+
+    private boolean indexExists() {
+        Integer indexes = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.STATISTICS " +
+                        "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'posts' " +
+                        "AND INDEX_NAME = ? AND INDEX_TYPE = 'FULLTEXT'",
+                Integer.class, INDEX_NAME);
+        return indexes != null && indexes > 0;
+    }
+}
@@ -0,0 +1,75 @@
+package com.cagongu2.be.service;
+
+import com.cagongu2.be.dto.cache.response.CacheStatsResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Results of search endpoints keyed by endpoint, normalized query, page parameters and the
+ * index generation. Every write applied to a search index bumps the generation, so entries
+ * computed against an older index are never returned again and simply age out.
+ * <p>
+ * The query is NFC-normalized, lower-cased and whitespace-collapsed. Diacritics are kept:
+ * the index analyzer does not fold them, "dau" and "đau" return different posts.
+ */
+@Component
+public class SearchResultCache {
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final Cache<Key, Object> results;
+    private final AtomicLong generation = new AtomicLong();
+
+    public SearchResultCache(@Value("${search.cache.max-entries:10000}") long maxEntries,
+                             @Value("${search.cache.ttl-seconds:60}") long ttlSeconds) {
+        this.results = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(String endpoint, String query, List<?> params, Supplier<T> loader) {
+        // read before loading: a bump during the load files the result under the old generation
+        Key key = new Key(endpoint, normalize(query), params, generation.get());
+        Object cached = results.getIfPresent(key);
+        if (cached != null) {
+            return (T) cached;
+        }
+
+        T loaded = loader.get();
+        if (loaded != null) {
+            results.put(key, loaded);
+        }
+        return loaded;
+    }
+
+    public void bumpGeneration() {
+        generation.incrementAndGet();
+    }
+
+    public List<CacheStatsResponse> stats() {
+        return List.of(CacheStatsResponse.of("search-results", results.estimatedSize(), results.stats()));
+    }
+
+    private static String normalize(String query) {
+        if (query == null) {
+            return "";
+        }
+        String normalized = Normalizer.normalize(query, Normalizer.Form.NFC).toLowerCase(Locale.ROOT);
+        return WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+    }
+
+    private record Key(String endpoint, String query, List<?> params, long generation) {
+    }
+}
@@ -0,0 +1,77 @@
+package com.cagongu2.be.service;
+
+import com.cagongu2.be.util.ETags;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Holds the serialized site bootstrap. Writes to anything it contains mark it stale once their
+ * transaction commits; the next read serializes it again. Has no dependencies of its own, so
+ * the services whose data it holds can inject it.
+ */
+@Component
+public class SiteBootstrapCache {
+    private final long maxAgeMillis;
+
+    private final AtomicLong version = new AtomicLong();
+    private volatile Snapshot current;
+
+    /** body is shared by every request and must not be modified. */
+    public record Payload(byte[] body, String etag) {
+    }
+
+    private record Snapshot(Payload payload, long version, long builtAt) {
+    }
+
+    public SiteBootstrapCache(@Value("${site.bootstrap.max-age-seconds:60}") long maxAgeSeconds) {
+        this.maxAgeMillis = Duration.ofSeconds(maxAgeSeconds).toMillis();
+    }
+
+    public Payload get(Supplier<byte[]> serializer) {
+        Snapshot snapshot = current;
+        if (isFresh(snapshot, version.get())) {
+            return snapshot.payload;
+        }
+        return rebuild(serializer);
+    }
+
+    private synchronized Payload rebuild(Supplier<byte[]> serializer) {
+        long expected = version.get();
+        Snapshot snapshot = current;
+        // another reader rebuilt it while this one waited
+        if (isFresh(snapshot, expected)) {
+            return snapshot.payload;
+        }
+
+        byte[] body = serializer.get();
+        Payload payload = new Payload(body, ETags.ofContent(body));
+        // a write committed during serialization bumped the version, the next read rebuilds again
+        current = new Snapshot(payload, expected, System.currentTimeMillis());
+        return payload;
+    }
+
+    private boolean isFresh(Snapshot snapshot, long expectedVersion) {
+        return snapshot != null && snapshot.version == expectedVersion
+                && System.currentTimeMillis() - snapshot.builtAt < maxAgeMillis;
+    }
+
+    /** Marks the payload stale after the surrounding transaction commits (or now, without one). */
+    public void invalidateAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    version.incrementAndGet();
+                }
+            });
+        } else {
+            version.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.cagongu2.be.service;
+
+import com.cagongu2.be.dto.site.response.SiteBootstrapResponse;
+import com.cagongu2.be.model.Image;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the site bootstrap from the footer, image and category services and keeps it
+ * serialized in SiteBootstrapCache, so a page load costs one memory copy instead of a
+ * request (and queries) per piece of site chrome.
+ */
+@Service
+public class SiteBootstrapService {
+    private final FooterService footerService;
+    private final ImageService imageService;
+    private final CategoryService categoryService;
+    private final SiteBootstrapCache siteBootstrapCache;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+    private final List<String> imageTypes;
+    private final int menuLinks;
+
+    public SiteBootstrapService(FooterService footerService,
+                                ImageService imageService,
+                                CategoryService categoryService,
+                                SiteBootstrapCache siteBootstrapCache,
+                                ObjectMapper objectMapper,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${site.bootstrap.image-types:logo,banner,favicon}") List<String> imageTypes,
+                                @Value("${site.bootstrap.menu-links:8}") int menuLinks) {
+        this.footerService = footerService;
+        this.imageService = imageService;
+        this.categoryService = categoryService;
+        this.siteBootstrapCache = siteBootstrapCache;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.imageTypes = imageTypes;
+        this.menuLinks = menuLinks;
+    }
+
+    public SiteBootstrapCache.Payload getBootstrap() {
+        return siteBootstrapCache.get(this::serialize);
+    }
+
+    private byte[] serialize() {
+        // one transaction, so the footer's post list is read from the same session as the rest
+        SiteBootstrapResponse bootstrap = readOnlyTransaction.execute(status -> {
+            Map<String, Image> images = new LinkedHashMap<>();
+            for (String type : imageTypes) {
+                Image image = imageService.getCurrentImageByType(type);
+                if (image != null) {
+                    images.put(type, image);
+                }
+            }
+
+            return SiteBootstrapResponse.builder()
+                    .footers(footerService.getFooterByStatus(true))
+                    .images(images)
+                    // the menu shows seven links and a "more" link past that, so a few per category is enough
+                    .categories(categoryService.getCategoryMenu(menuLinks))
+                    .build();
+        });
+
+        try {
+            return objectMapper.writeValueAsBytes(bootstrap);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize the site bootstrap", e);
+        }
+    }
+}
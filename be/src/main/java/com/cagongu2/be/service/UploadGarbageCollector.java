@@ -0,0 +1,428 @@
+package com.cagongu2.be.service;
+
+import com.cagongu2.be.dto.upload.response.UploadGcReport;
+import com.cagongu2.be.model.ImageBlob;
+import com.cagongu2.be.repository.ImageBlobRepository;
+import com.cagongu2.be.repository.ImageRepository;
+import com.cagongu2.be.util.CompressedTextConverter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Finds uploads nothing references any more and moves them to upload.base-path/.quarantine,
+ * which ImageFileController never serves. Quarantined files are deleted once they have sat
+ * there for the retention period, so a wrong call can still be undone by moving the file back.
+ * <p>
+ * Each run examines at most files-per-run files in name order and continues after the last
+ * one on the next run, pausing between batches so a large tree never becomes a burst of disk
+ * and database load. A file is kept while it is younger than the grace period (its upload may
+ * not be committed yet, and storing the same bytes again restarts it), named by an image row,
+ * or linked from a post body. Nothing counts references ahead of time, these two are looked up
+ * when the decision is made.
+ * <p>
+ * Post bodies are stored compressed, so the urls they link are collected once per pass and
+ * then topped up from the posts changed since. The final move happens under the image_blobs
+ * row lock with the image rows and the file's age checked again: an upload of the same bytes
+ * holds that lock until its file is in place with a fresh modification time, and inside the
+ * caller's transaction until its image row commits, so it either keeps the file or puts it back.
+ */
+@Slf4j
+@Component
+public class UploadGarbageCollector {
+    static final String QUARANTINE_DIR = ".quarantine";
+
+    private static final Pattern UPLOAD_URL = Pattern.compile("images/[A-Za-z0-9_./-]+");
+    private static final Comparator<Path> BY_NAME = Comparator.comparing(path -> path.getFileName().toString());
+    // posts are re-read from a little before the last scan, a save in flight then is not missed
+    private static final Duration LINK_SCAN_OVERLAP = Duration.ofMinutes(5);
+
+    private final ImageRepository imageRepository;
+    private final ImageBlobRepository imageBlobRepository;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CompressedTextConverter textConverter = new CompressedTextConverter();
+    private final Path root;
+    private final Path quarantineRoot;
+    private final Path variantRoot;
+    private final boolean enabled;
+    private final Duration gracePeriod;
+    private final Duration quarantineRetention;
+    private final int filesPerRun;
+    private final int batchSize;
+    private final long batchPauseMs;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong purgedBytesTotal = new AtomicLong();
+    // relative path of the last file examined, the next run continues after it
+    private volatile String cursor;
+    private volatile UploadGcReport lastReport;
+    // urls linked from post bodies, built once per pass
+    private LinkedUrls linkedUrls;
+
+    private record LinkedUrls(Set<String> urls, LocalDateTime scannedFrom) {
+    }
+
+    public UploadGarbageCollector(ImageRepository imageRepository,
+                                  ImageBlobRepository imageBlobRepository,
+                                  NamedParameterJdbcTemplate jdbcTemplate,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${upload.base-path}") String basePath,
+                                  @Value("${upload.variants.path:data/image-variants}") String variantPath,
+                                  @Value("${upload.gc.enabled:true}") boolean enabled,
+                                  @Value("${upload.gc.grace-period-hours:24}") long gracePeriodHours,
+                                  @Value("${upload.gc.quarantine-retention-days:7}") long quarantineRetentionDays,
+                                  @Value("${upload.gc.files-per-run:5000}") int filesPerRun,
+                                  @Value("${upload.gc.batch-size:200}") int batchSize,
+                                  @Value("${upload.gc.batch-pause-ms:100}") long batchPauseMs) {
+        this.imageRepository = imageRepository;
+        this.imageBlobRepository = imageBlobRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.root = Paths.get(basePath).toAbsolutePath().normalize();
+        this.quarantineRoot = root.resolve(QUARANTINE_DIR);
+        this.variantRoot = Paths.get(variantPath).toAbsolutePath().normalize();
+        this.enabled = enabled;
+        this.gracePeriod = Duration.ofHours(gracePeriodHours);
+        this.quarantineRetention = Duration.ofDays(quarantineRetentionDays);
+        this.filesPerRun = filesPerRun;
+        this.batchSize = batchSize;
+        this.batchPauseMs = batchPauseMs;
+    }
+
+    /** The last finished run, null before the first one. */
+    public UploadGcReport getLastReport() {
+        return lastReport;
+    }
+
+    @Scheduled(initialDelayString = "${upload.gc.initial-delay-ms:120000}",
+            fixedDelayString = "${upload.gc.interval-ms:600000}")
+    public void collect() {
+        if (!enabled || !Files.isDirectory(root) || !running.compareAndSet(false, true)) {
+            return;
+        }
+
+        LocalDateTime startedAt = LocalDateTime.now();
+        long started = System.currentTimeMillis();
+        Run run = new Run();
+        try {
+            if (cursor == null) {
+                // a new pass reads every body again, links removed since the last one stop counting
+                linkedUrls = null;
+            }
+            List<Path> files = new ArrayList<>();
+            List<String> resumeAfter = cursor != null ? Arrays.asList(cursor.split("/")) : List.of();
+            run.passCompleted = list(root, resumeAfter, files);
+
+            Instant cutoff = Instant.now().minus(gracePeriod);
+            Map<String, Path> unreferenced = new LinkedHashMap<>();
+            for (int from = 0; from < files.size(); from += batchSize) {
+                List<Path> batch = files.subList(from, Math.min(from + batchSize, files.size()));
+                unreferenced.putAll(unreferenced(batch, cutoff, run));
+                if (!pause()) {
+                    return;
+                }
+            }
+
+            if (!unreferenced.isEmpty()) {
+                Set<String> linked = linkedFromPosts();
+                if (linked == null) {
+                    return;
+                }
+                unreferenced.keySet().removeAll(linked);
+                unreferenced.forEach((url, file) -> quarantine(url, file, cutoff, run));
+            }
+            purgeQuarantine(run);
+
+            // only now: an interrupted run examines the same files again
+            cursor = run.passCompleted || files.isEmpty() ? null : relative(files.get(files.size() - 1));
+            report(run, startedAt, System.currentTimeMillis() - started);
+        } catch (IOException | RuntimeException e) {
+            log.error("Upload garbage collection failed", e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /*
+     * Adds the regular files below dir in name order, skipping everything up to and including
+     * resumeAfter. False when files-per-run was reached before the end of the tree.
+     */
+    private boolean list(Path dir, List<String> resumeAfter, List<Path> out) throws IOException {
+        List<Path> children;
+        try (Stream<Path> stream = Files.list(dir)) {
+            children = stream.sorted(BY_NAME).toList();
+        }
+
+        String resumeName = resumeAfter.isEmpty() ? null : resumeAfter.get(0);
+        for (Path child : children) {
+            String name = child.getFileName().toString();
+            int position = resumeName != null ? name.compareTo(resumeName) : 1;
+            if (position < 0 || child.equals(variantRoot)) {
+                continue;
+            }
+
+            if (Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                if (name.startsWith(".")) {
+                    continue;
+                }
+                List<String> rest = position == 0 ? resumeAfter.subList(1, resumeAfter.size()) : List.of();
+                if (!list(child, rest, out)) {
+                    return false;
+                }
+            } else if (position > 0 && Files.isRegularFile(child, LinkOption.NOFOLLOW_LINKS)) {
+                // dot files are not uploads, except temp files a crashed upload left behind
+                if (name.startsWith(".") && !name.startsWith(FileUploadServiceImpl.TEMP_PREFIX)) {
+                    continue;
+                }
+                if (out.size() >= filesPerRun) {
+                    return false;
+                }
+                out.add(child);
+            }
+        }
+        return true;
+    }
+
+    // the files of the batch that are past the grace period and not named by an image row
+    private Map<String, Path> unreferenced(List<Path> batch, Instant cutoff, Run run) {
+        Map<String, Path> candidates = new LinkedHashMap<>();
+        for (Path file : batch) {
+            run.scanned++;
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                if (attributes.lastModifiedTime().toInstant().isAfter(cutoff)) {
+                    continue;
+                }
+                if (file.getFileName().toString().startsWith(FileUploadServiceImpl.TEMP_PREFIX)) {
+                    Files.deleteIfExists(file);
+                    run.purged++;
+                    run.purgedBytes += attributes.size();
+                    continue;
+                }
+                candidates.put(FileUploadServiceImpl.URL_PREFIX + relative(file), file);
+            } catch (IOException e) {
+                // deleted or replaced since it was listed
+                log.debug("Skipping {}: {}", file, e.getMessage());
+            }
+        }
+        if (candidates.isEmpty()) {
+            return candidates;
+        }
+
+        Map<String, Long> imageRows = new HashMap<>();
+        jdbcTemplate.query("SELECT url, COUNT(*) AS total FROM image WHERE url IN (:urls) GROUP BY url",
+                Map.of("urls", candidates.keySet()),
+                (RowCallbackHandler) rs -> imageRows.put(rs.getString("url"), rs.getLong("total")));
+
+        candidates.keySet().removeAll(imageRows.keySet());
+        return candidates;
+    }
+
+    /*
+     * Inline images of an article are only referenced from its body. The first call of a pass
+     * reads every body in id batches, later calls only the bodies of posts saved since.
+     * Null when interrupted.
+     */
+    private Set<String> linkedFromPosts() {
+        LocalDateTime scannedFrom = LocalDateTime.now().minus(LINK_SCAN_OVERLAP);
+        if (linkedUrls == null) {
+            Set<String> urls = new HashSet<>();
+            // bodies PostContentMigration has not moved yet, read first: a body moved after this
+            // gets a new post_contents row, which the id scan below still reaches
+            long lastId = 0;
+            while (true) {
+                List<Long> ids = new ArrayList<>();
+                jdbcTemplate.query("SELECT id, content FROM posts WHERE id > :lastId AND content IS NOT NULL ORDER BY id LIMIT :limit",
+                        Map.of("lastId", lastId, "limit", batchSize),
+                        (RowCallbackHandler) rs -> {
+                            ids.add(rs.getLong("id"));
+                            collectLinks(rs.getString("content"), urls);
+                        });
+                if (ids.isEmpty()) {
+                    break;
+                }
+                lastId = ids.get(ids.size() - 1);
+                if (!pause()) {
+                    return null;
+                }
+            }
+            lastId = 0;
+            while (true) {
+                List<Long> ids = new ArrayList<>();
+                jdbcTemplate.query("SELECT id, body FROM post_contents WHERE id > :lastId ORDER BY id LIMIT :limit",
+                        Map.of("lastId", lastId, "limit", batchSize),
+                        (RowCallbackHandler) rs -> {
+                            ids.add(rs.getLong("id"));
+                            collectLinks(textConverter.convertToEntityAttribute(rs.getBytes("body")), urls);
+                        });
+                if (ids.isEmpty()) {
+                    break;
+                }
+                lastId = ids.get(ids.size() - 1);
+                if (!pause()) {
+                    return null;
+                }
+            }
+            linkedUrls = new LinkedUrls(urls, scannedFrom);
+        } else {
+            Set<String> urls = linkedUrls.urls();
+            jdbcTemplate.query("SELECT pc.body FROM posts p JOIN post_contents pc ON pc.id = p.content_id " +
+                            "WHERE p.updated_at >= :since",
+                    Map.of("since", linkedUrls.scannedFrom()),
+                    (RowCallbackHandler) rs -> collectLinks(textConverter.convertToEntityAttribute(rs.getBytes("body")), urls));
+            linkedUrls = new LinkedUrls(urls, scannedFrom);
+        }
+        return linkedUrls.urls();
+    }
+
+    private static void collectLinks(String text, Set<String> urls) {
+        if (text != null) {
+            Matcher matcher = UPLOAD_URL.matcher(text);
+            while (matcher.find()) {
+                urls.add(matcher.group());
+            }
+        }
+    }
+
+    private void quarantine(String url, Path file, Instant cutoff, Run run) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Optional<ImageBlob> blob = imageBlobRepository.findForUpdate(url);
+                // stored again or given an image row since the lookup
+                if (imageRepository.countByUrl(url) > 0 || !modifiedBefore(file, cutoff)) {
+                    return;
+                }
+                try {
+                    long size = Files.size(file);
+                    Path target = quarantineRoot.resolve(root.relativize(file));
+                    Files.createDirectories(target.getParent());
+                    Files.move(file, target, StandardCopyOption.REPLACE_EXISTING);
+                    // retention counts from the quarantine, not from the upload
+                    Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+                    run.quarantined++;
+                    run.quarantinedBytes += size;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                blob.ifPresent(imageBlobRepository::delete);
+            });
+        } catch (RuntimeException e) {
+            log.warn("Could not quarantine {}: {}", url, e.getMessage());
+        }
+    }
+
+    private void purgeQuarantine(Run run) throws IOException {
+        if (!Files.isDirectory(quarantineRoot)) {
+            return;
+        }
+
+        Instant cutoff = Instant.now().minus(quarantineRetention);
+        List<Path> expired;
+        try (Stream<Path> stream = Files.walk(quarantineRoot)) {
+            expired = stream
+                    .filter(path -> Files.isRegularFile(path, LinkOption.NOFOLLOW_LINKS))
+                    .filter(path -> modifiedBefore(path, cutoff))
+                    .limit(filesPerRun)
+                    .toList();
+        }
+        for (Path file : expired) {
+            try {
+                long size = Files.size(file);
+                if (Files.deleteIfExists(file)) {
+                    run.purged++;
+                    run.purgedBytes += size;
+                }
+            } catch (IOException e) {
+                log.debug("Could not purge {}: {}", file, e.getMessage());
+            }
+        }
+    }
+
+    private static boolean modifiedBefore(Path file, Instant cutoff) {
+        try {
+            return Files.getLastModifiedTime(file).toInstant().isBefore(cutoff);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private boolean pause() {
+        if (batchPauseMs <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(batchPauseMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void report(Run run, LocalDateTime startedAt, long durationMs) {
+        long total = purgedBytesTotal.addAndGet(run.purgedBytes);
+        lastReport = UploadGcReport.builder()
+                .startedAt(startedAt)
+                .durationMs(durationMs)
+                .scannedFiles(run.scanned)
+                .quarantinedFiles(run.quarantined)
+                .quarantinedBytes(run.quarantinedBytes)
+                .purgedFiles(run.purged)
+                .purgedBytes(run.purgedBytes)
+                .passCompleted(run.passCompleted)
+                .purgedBytesTotal(total)
+                .build();
+
+        if (run.quarantined > 0 || run.purged > 0) {
+            log.info("Upload GC: scanned {} files, quarantined {} ({} bytes), purged {} ({} bytes) in {} ms",
+                    run.scanned, run.quarantined, run.quarantinedBytes, run.purged, run.purgedBytes, durationMs);
+        }
+    }
+
+    private String relative(Path file) {
+        return root.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+    }
+
+    private static class Run {
+        long scanned;
+        long quarantined;
+        long quarantinedBytes;
+        long purged;
+        long purgedBytes;
+        boolean passCompleted;
+    }
+}
@@ -0,0 +1,226 @@
+package com.cagongu2.be.service;
+
+import com.cagongu2.be.model.Image;
+import com.cagongu2.be.model.ImageBlob;
+import com.cagongu2.be.model.PostIndexOutbox;
+import com.cagongu2.be.repository.ImageBlobRepository;
+import com.cagongu2.be.repository.ImageRepository;
+import com.cagongu2.be.repository.PostIndexOutboxRepository;
+import com.cagongu2.be.repository.PostRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Moves uploads referenced by image rows from the old flat layout (images/&lt;type&gt;/&lt;uuid&gt;.ext
+ * and images/&lt;type&gt;/&lt;sha256&gt;.ext) into the hashed fan-out FileUploadServiceImpl writes,
+ * rewriting image.url and image_blobs in the same transaction and re-indexing the posts whose
+ * thumbnail moved. Those posts get a new mediaUpdatedAt rather than a new updatedAt, the move
+ * is not an edit; post list generations are bumped after each batch that moved a thumbnail.
+ * <p>
+ * Opt-in with upload.layout-migration.enabled: it then runs on a background thread once the
+ * application is ready, a batch of image rows at a time with a pause in between, while the
+ * site keeps serving. The old file is left in place with its modification time reset, so both
+ * urls resolve during the migration and for UploadGarbageCollector's grace period after it;
+ * cached pages and post bodies that still link the old url keep working, and the collector
+ * removes the file once nothing references it. Every url commits on its own, an interrupted
+ * migration picks up where it stopped on the next start.
+ */
+@Slf4j
+@Component
+public class UploadLayoutMigration {
+    private final ImageRepository imageRepository;
+    private final ImageBlobRepository imageBlobRepository;
+    private final PostRepository postRepository;
+    private final PostIndexOutboxRepository postIndexOutboxRepository;
+    private final PostCounterService postCounterService;
+    private final PostDetailCache postDetailCache;
+    private final SiteBootstrapCache siteBootstrapCache;
+    private final TransactionTemplate transactionTemplate;
+    private final Path root;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long batchPauseMs;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public UploadLayoutMigration(ImageRepository imageRepository,
+                                 ImageBlobRepository imageBlobRepository,
+                                 PostRepository postRepository,
+                                 PostIndexOutboxRepository postIndexOutboxRepository,
+                                 PostCounterService postCounterService,
+                                 PostDetailCache postDetailCache,
+                                 SiteBootstrapCache siteBootstrapCache,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${upload.base-path}") String basePath,
+                                 @Value("${upload.layout-migration.enabled:false}") boolean enabled,
+                                 @Value("${upload.layout-migration.batch-size:500}") int batchSize,
+                                 @Value("${upload.layout-migration.batch-pause-ms:200}") long batchPauseMs) {
+        this.imageRepository = imageRepository;
+        this.imageBlobRepository = imageBlobRepository;
+        this.postRepository = postRepository;
+        this.postIndexOutboxRepository = postIndexOutboxRepository;
+        this.postCounterService = postCounterService;
+        this.postDetailCache = postDetailCache;
+        this.siteBootstrapCache = siteBootstrapCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.root = Paths.get(basePath).toAbsolutePath().normalize();
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.batchPauseMs = batchPauseMs;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled || !running.compareAndSet(false, true)) {
+            return;
+        }
+
+        Thread worker = new Thread(() -> {
+            try {
+                run();
+            } catch (RuntimeException e) {
+                log.error("Upload layout migration stopped", e);
+            } finally {
+                running.set(false);
+            }
+        }, "upload-layout-migration");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private void run() {
+        long lastId = 0;
+        long migrated = 0;
+        while (true) {
+            List<Image> images = imageRepository.findByIdGreaterThanOrderByIdAsc(lastId, Limit.of(batchSize));
+            if (images.isEmpty()) {
+                break;
+            }
+
+            Set<String> urls = new LinkedHashSet<>();
+            for (Image image : images) {
+                String url = image.getUrl();
+                if (url != null && url.startsWith(FileUploadServiceImpl.URL_PREFIX)
+                        && !FileUploadServiceImpl.SHARDED_URL.matcher(url).matches()) {
+                    urls.add(url);
+                }
+            }
+            long moved = 0;
+            List<Long> movedThumbnailPosts = new ArrayList<>();
+            for (String url : urls) {
+                try {
+                    if (migrate(url, movedThumbnailPosts)) {
+                        moved++;
+                    }
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Could not move upload {} to the sharded layout: {}", url, e.getMessage());
+                }
+            }
+            if (moved > 0) {
+                // cached post details and the bootstrap carry image urls
+                postDetailCache.evictAll();
+                siteBootstrapCache.invalidateAfterCommit();
+                migrated += moved;
+            }
+            if (!movedThumbnailPosts.isEmpty()) {
+                // list ETags are stamped with the counter generations, summaries carry thumbnail urls
+                transactionTemplate.executeWithoutResult(status -> postCounterService.onListsChanged());
+            }
+            lastId = images.get(images.size() - 1).getId();
+
+            try {
+                Thread.sleep(batchPauseMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        log.info("Upload layout migration finished, moved {} uploads to the sharded layout", migrated);
+    }
+
+    private boolean migrate(String url, List<Long> movedThumbnailPosts) throws IOException {
+        Path source = FileUploadServiceImpl.resolve(root, url);
+        String[] segments = url.split("/");
+        if (source == null || segments.length != 3 || !Files.isRegularFile(source)) {
+            // a dangling row, nothing to move
+            return false;
+        }
+
+        Path temp = Files.createTempFile(source.getParent(), FileUploadServiceImpl.TEMP_PREFIX, ".tmp");
+        try {
+            String hash;
+            try (InputStream in = Files.newInputStream(source)) {
+                hash = FileUploadServiceImpl.copyHashed(in, temp);
+            }
+            String newUrl = FileUploadServiceImpl.relativeUrl(segments[1], hash,
+                    FileUploadServiceImpl.extension(source.getFileName().toString()));
+            Path target = FileUploadServiceImpl.resolve(root, newUrl);
+            long size = Files.size(temp);
+
+            List<Long> thumbnailPosts = transactionTemplate.execute(status -> {
+                // files from before image_blobs have no row
+                Optional<ImageBlob> blob = imageBlobRepository.findForUpdate(url);
+
+                imageRepository.updateUrl(url, newUrl);
+                imageBlobRepository.register(newUrl, hash, size);
+                blob.ifPresent(imageBlobRepository::delete);
+                // post-index documents carry the thumbnail url, mediaUpdatedAt raises their index version
+                List<Long> postIds = postRepository.findIdsByThumbnailUrl(newUrl);
+                if (!postIds.isEmpty()) {
+                    postRepository.markMediaUpdated(postIds, LocalDateTime.now());
+                    postIds.forEach(this::enqueueIndexing);
+                }
+
+                try {
+                    if (!Files.exists(target)) {
+                        Files.createDirectories(target.getParent());
+                        FileUploadServiceImpl.moveIntoPlace(temp, target);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return postIds;
+            });
+            movedThumbnailPosts.addAll(thumbnailPosts);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        // the old url keeps serving for the collector's grace period, which starts now
+        Files.setLastModifiedTime(source, FileTime.from(Instant.now()));
+        return true;
+    }
+
+    private void enqueueIndexing(Long postId) {
+        LocalDateTime now = LocalDateTime.now();
+        postIndexOutboxRepository.save(PostIndexOutbox.builder()
+                .postId(postId)
+                .operation(PostIndexOutbox.Operation.UPSERT)
+                .createdAt(now)
+                .nextAttemptAt(now)
+                .build());
+    }
+}
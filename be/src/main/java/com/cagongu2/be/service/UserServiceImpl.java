@@ -4,6 +4,7 @@ import com.cagongu2.be.dto.user.request.UserRequest;
 import com.cagongu2.be.dto.user.response.UserResponse;
 import com.cagongu2.be.mapper.UserMapper;
 import com.cagongu2.be.model.Image;
+import com.cagongu2.be.model.PostCounter;
 import com.cagongu2.be.model.User;
 import com.cagongu2.be.repository.UserRepository;
 import lombok.AllArgsConstructor;
@@ -23,6 +24,8 @@ public class UserServiceImpl implements UserService {
     FileUploadService fileUploadService;
     PasswordEncoder passwordEncoder;
     UserMapper userMapper;
+    PostDetailCache postDetailCache;
+    PostCounterService postCounterService;
 
     @Override
     @Transactional
@@ -69,11 +72,16 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
+    @Transactional
     public UserResponse updateUser(Long id, UserRequest request) throws IOException {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
-        if (request.getUsername() != null) user.setUsername(request.getUsername());
+        if (request.getUsername() != null && !request.getUsername().equals(user.getUsername())) {
+            user.setUsername(request.getUsername());
+            // post lists carry the author's username
+            postCounterService.onRenamed(PostCounter.Dimension.AUTHOR, user.getId());
+        }
         if (request.getEmail() != null) user.setEmail(request.getEmail());
         if (request.getPassword() != null) user.setPassword(passwordEncoder.encode(request.getPassword()));
         if (request.getPhone() != null) user.setPhone(request.getPhone());
@@ -91,6 +99,8 @@ public class UserServiceImpl implements UserService {
         user.setUpdatedAt(LocalDateTime.now());
 
         var updated = userRepository.save(user);
+        // cached articles carry the author's username
+        postDetailCache.evictAll();
 
         UserResponse response = userMapper.toUserResponse(updated);
         if (updated.getAvatar() != null) {
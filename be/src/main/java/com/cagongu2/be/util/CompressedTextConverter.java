@@ -0,0 +1,136 @@
+package com.cagongu2.be.util;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Stores long text as deflate-compressed bytes. Every value starts with a format byte,
+ * followed by the uncompressed length, so readers can size the output buffer up front and
+ * older rows stay readable when the dictionary is replaced by a new format version.
+ */
+@Converter
+public class CompressedTextConverter implements AttributeConverter<String, byte[]> {
+    private static final byte FORMAT_PLAIN = 0;
+    private static final byte FORMAT_DEFLATE_DICT_V1 = 1;
+
+    private static final int HEADER_LENGTH = 1 + Integer.BYTES;
+    // below this the deflate block and header overhead eat the savings
+    private static final int MIN_COMPRESS_LENGTH = 256;
+
+    /*
+     * Preset dictionary for FORMAT_DEFLATE_DICT_V1: markup and phrases that repeat across the
+     * crawled articles. Deflate prefers short distances, so the most frequent strings go last.
+     * Never edit this, rows written with it could no longer be inflated; add a new format instead.
+     */
+    private static final byte[] DICTIONARY_V1 = (
+            "<table><tbody><tr><td></td></tr></tbody></table><figure class=\"image\"><figcaption></figcaption></figure>"
+                    + "<blockquote><em></em></blockquote><a href=\"https://\" target=\"_blank\" rel=\"noopener\"></a>"
+                    + "<img src=\"\" alt=\"\" width=\"\" height=\"\" /><h3></h3><h4></h4><ol><li></li></ol>"
+                    + "Tài liệu tham khảo Bài viết chỉ mang tính chất tham khảo, không thay thế cho việc chẩn đoán "
+                    + "hoặc điều trị y khoa. Hãy tham khảo ý kiến bác sĩ chuyên khoa. "
+                    + "hệ miễn dịch, huyết áp, đường huyết, tim mạch, hô hấp, tiêu hóa, thần kinh, nội tiết, "
+                    + "viêm, nhiễm trùng, virus, vi khuẩn, kháng sinh, thuốc, liều dùng, tác dụng phụ, xét nghiệm, "
+                    + "trẻ em, phụ nữ mang thai, người cao tuổi, cơ thể, sức khỏe, bệnh viện, phẫu thuật, "
+                    + "Triệu chứng Nguyên nhân Chẩn đoán Điều trị Phòng ngừa Biến chứng Đối tượng nguy cơ "
+                    + "triệu chứng nguyên nhân chẩn đoán điều trị phòng ngừa biến chứng người bệnh bệnh nhân bác sĩ "
+                    + "có thể gây ra dẫn đến tình trạng trường hợp thường gặp các loại những ngoài ra tuy nhiên "
+                    + "<span style=\"font-weight: 400;\"></span><p style=\"text-align: justify;\"></p>"
+                    + "<h2></h2><ul><li></li></ul><strong></strong><br />&nbsp;"
+                    + " của và các được không khi nếu trong cho với là một này người bệnh có "
+                    + "</p><p>"
+    ).getBytes(StandardCharsets.UTF_8);
+
+    @Override
+    public byte[] convertToDatabaseColumn(String text) {
+        if (text == null) {
+            return null;
+        }
+
+        byte[] raw = text.getBytes(StandardCharsets.UTF_8);
+        if (raw.length < MIN_COMPRESS_LENGTH) {
+            return withHeader(FORMAT_PLAIN, raw.length, raw, raw.length);
+        }
+
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setDictionary(DICTIONARY_V1);
+            deflater.setInput(raw);
+            deflater.finish();
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 3 + 64);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                out.write(buffer, 0, n);
+            }
+
+            // incompressible input (already compressed, base64 blobs) is kept as is
+            if (out.size() >= raw.length) {
+                return withHeader(FORMAT_PLAIN, raw.length, raw, raw.length);
+            }
+            return withHeader(FORMAT_DEFLATE_DICT_V1, raw.length, out.toByteArray(), out.size());
+        } finally {
+            deflater.end();
+        }
+    }
+
+    @Override
+    public String convertToEntityAttribute(byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        if (data.length < HEADER_LENGTH) {
+            throw new IllegalStateException("Compressed text is truncated");
+        }
+
+        ByteBuffer header = ByteBuffer.wrap(data, 0, HEADER_LENGTH);
+        byte format = header.get();
+        int length = header.getInt();
+
+        return switch (format) {
+            case FORMAT_PLAIN -> new String(data, HEADER_LENGTH, length, StandardCharsets.UTF_8);
+            case FORMAT_DEFLATE_DICT_V1 -> new String(inflate(data, length, DICTIONARY_V1), StandardCharsets.UTF_8);
+            default -> throw new IllegalStateException("Unknown compressed text format: " + format);
+        };
+    }
+
+    private static byte[] inflate(byte[] data, int length, byte[] dictionary) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, HEADER_LENGTH, data.length - HEADER_LENGTH);
+            byte[] out = new byte[length];
+            int written = 0;
+            while (written < length) {
+                int n = inflater.inflate(out, written, length - written);
+                if (n == 0) {
+                    if (inflater.needsDictionary()) {
+                        inflater.setDictionary(dictionary);
+                    } else if (inflater.finished() || inflater.needsInput()) {
+                        throw new IllegalStateException("Compressed text is truncated");
+                    }
+                }
+                written += n;
+            }
+            return out;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Compressed text is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static byte[] withHeader(byte format, int length, byte[] payload, int payloadLength) {
+        return ByteBuffer.allocate(HEADER_LENGTH + payloadLength)
+                .put(format)
+                .putInt(length)
+                .put(payload, 0, payloadLength)
+                .array();
+    }
+}
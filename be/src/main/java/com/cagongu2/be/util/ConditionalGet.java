@@ -0,0 +1,43 @@
+package com.cagongu2.be.util;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.function.Supplier;
+
+/**
+ * Answers a GET from its validators alone when the client already has the current
+ * representation. The body supplier only runs (and the body is only serialized) on a miss.
+ */
+public final class ConditionalGet {
+    private ConditionalGet() {
+    }
+
+    public static <T> ResponseEntity<T> respond(WebRequest request,
+                                                String etag,
+                                                long lastModified,
+                                                CacheControl cacheControl,
+                                                Supplier<T> body) {
+        // also writes ETag / Last-Modified on the response, for the 200 case as well
+        if (request.checkNotModified(etag, lastModified)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl).build();
+        }
+        return ResponseEntity.ok().cacheControl(cacheControl).body(body.get());
+    }
+
+    /** Same as above for bodies Spring cannot infer a content type for (bytes, streams). */
+    public static <T> ResponseEntity<T> respond(WebRequest request,
+                                                String etag,
+                                                long lastModified,
+                                                CacheControl cacheControl,
+                                                MediaType contentType,
+                                                Supplier<T> body) {
+        if (request.checkNotModified(etag, lastModified)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl).build();
+        }
+        return ResponseEntity.ok().cacheControl(cacheControl).contentType(contentType).body(body.get());
+    }
+}
@@ -0,0 +1,49 @@
+package com.cagongu2.be.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HexFormat;
+import java.util.StringJoiner;
+
+/**
+ * Validators for conditional GETs. Strong ETags are a digest of whatever identifies the
+ * representation (ids, update times, counts, request parameters), so they can be
+ * computed before the body is loaded or serialized.
+ */
+public final class ETags {
+    private ETags() {
+    }
+
+    public static String of(Object... parts) {
+        StringJoiner joiner = new StringJoiner("|");
+        for (Object part : parts) {
+            joiner.add(String.valueOf(part));
+        }
+
+        return ofContent(joiner.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    // for bodies that are serialized ahead of time: the tag changes exactly when the bytes do
+    public static String ofContent(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // -1 tells WebRequest.checkNotModified there is no Last-Modified to compare
+    public static long lastModified(LocalDateTime... times) {
+        long latest = -1;
+        for (LocalDateTime time : times) {
+            if (time != null) {
+                latest = Math.max(latest, time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+            }
+        }
+        return latest;
+    }
+}
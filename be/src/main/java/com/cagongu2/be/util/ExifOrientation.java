@@ -0,0 +1,150 @@
+package com.cagongu2.be.util;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Reads the EXIF orientation of a JPEG and applies it to decoded pixels. ImageIO ignores the
+ * tag, and resized variants are written without metadata, so without this a phone photo
+ * shown upright by the browser would come out of the resizer rotated.
+ */
+public final class ExifOrientation {
+    public static final int NORMAL = 1;
+
+    private static final int ORIENTATION_TAG = 0x0112;
+    private static final int MAX_SEGMENTS = 32;
+
+    private ExifOrientation() {
+    }
+
+    /** 1 to 8 as defined by EXIF, NORMAL when the file is not a JPEG or has no tag. */
+    public static int read(Path file) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            return read(in);
+        } catch (IOException e) {
+            return NORMAL;
+        }
+    }
+
+    private static int read(DataInputStream in) throws IOException {
+        if (in.readUnsignedShort() != 0xFFD8) {
+            return NORMAL;
+        }
+        // APP1 sits right after SOI in practice, give up once the image data starts
+        for (int i = 0; i < MAX_SEGMENTS; i++) {
+            int marker = in.readUnsignedShort();
+            if ((marker & 0xFF00) != 0xFF00 || marker == 0xFFDA || marker == 0xFFD9) {
+                return NORMAL;
+            }
+            int length = in.readUnsignedShort() - 2;
+            if (length < 0) {
+                return NORMAL;
+            }
+            if (marker == 0xFFE1) {
+                byte[] segment = new byte[length];
+                in.readFully(segment);
+                int orientation = fromExif(segment);
+                if (orientation != 0) {
+                    return orientation;
+                }
+            } else {
+                skipFully(in, length);
+            }
+        }
+        return NORMAL;
+    }
+
+    private static int fromExif(byte[] segment) {
+        if (segment.length < 14 || !"Exif\0\0".equals(new String(segment, 0, 6, StandardCharsets.ISO_8859_1))) {
+            return 0;
+        }
+        ByteBuffer tiff = ByteBuffer.wrap(segment, 6, segment.length - 6).slice();
+        if (tiff.get(0) == 'I' && tiff.get(1) == 'I') {
+            tiff.order(ByteOrder.LITTLE_ENDIAN);
+        } else if (tiff.get(0) == 'M' && tiff.get(1) == 'M') {
+            tiff.order(ByteOrder.BIG_ENDIAN);
+        } else {
+            return 0;
+        }
+
+        try {
+            int ifd = tiff.getInt(4);
+            int entries = Short.toUnsignedInt(tiff.getShort(ifd));
+            for (int i = 0; i < entries; i++) {
+                int entry = ifd + 2 + i * 12;
+                if (Short.toUnsignedInt(tiff.getShort(entry)) == ORIENTATION_TAG) {
+                    int value = Short.toUnsignedInt(tiff.getShort(entry + 8));
+                    return value >= 1 && value <= 8 ? value : 0;
+                }
+            }
+        } catch (IndexOutOfBoundsException e) {
+            // truncated or corrupt EXIF block
+        }
+        return 0;
+    }
+
+    private static void skipFully(InputStream in, long n) throws IOException {
+        while (n > 0) {
+            long skipped = in.skip(n);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    throw new EOFException();
+                }
+                skipped = 1;
+            }
+            n -= skipped;
+        }
+    }
+
+    /** True when the orientation swaps width and height. */
+    public static boolean swapsAxes(int orientation) {
+        return orientation >= 5 && orientation <= 8;
+    }
+
+    /** Returns the image as it should be displayed; the input is returned as is for NORMAL. */
+    public static BufferedImage apply(BufferedImage image, int orientation) {
+        if (orientation <= NORMAL || orientation > 8) {
+            return image;
+        }
+
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] source = image.getRGB(0, 0, width, height, null, 0, width);
+
+        boolean swap = swapsAxes(orientation);
+        int targetWidth = swap ? height : width;
+        int targetHeight = swap ? width : height;
+        int[] target = new int[source.length];
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int tx;
+                int ty;
+                switch (orientation) {
+                    case 2 -> { tx = width - 1 - x; ty = y; }
+                    case 3 -> { tx = width - 1 - x; ty = height - 1 - y; }
+                    case 4 -> { tx = x; ty = height - 1 - y; }
+                    case 5 -> { tx = y; ty = x; }
+                    case 6 -> { tx = height - 1 - y; ty = x; }
+                    case 7 -> { tx = height - 1 - y; ty = width - 1 - x; }
+                    default -> { tx = y; ty = width - 1 - x; }
+                }
+                target[ty * targetWidth + tx] = source[y * width + x];
+            }
+        }
+
+        BufferedImage oriented = new BufferedImage(targetWidth, targetHeight,
+                image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        oriented.setRGB(0, 0, targetWidth, targetHeight, target, 0, targetWidth);
+        return oriented;
+    }
+}
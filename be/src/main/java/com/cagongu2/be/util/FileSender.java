@@ -0,0 +1,170 @@
+package com.cagongu2.be.util;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Writes a file to the response without copying it through the heap.
+ * <p>
+ * On Tomcat's NIO connectors the body is handed to the connector as a sendfile request, so
+ * the kernel copies it straight from the page cache to the socket once the handler returns.
+ * Elsewhere it falls back to FileChannel.transferTo. Supports If-None-Match /
+ * If-Modified-Since, a single byte range (with If-Range) and HEAD. Multi-range requests get
+ * the whole file, which the spec allows, and so do malformed ones (bytes=5-3), whose Range
+ * header the spec says to ignore.
+ * <p>
+ * The validators come from the file's name, length and modification time, unless the caller
+ * passes an immutable key: a name that changes whenever the content does (a content hash).
+ * The ETag is then derived from the key alone and no Last-Modified is sent, so touching the
+ * file (a duplicate upload restarting the garbage collector's grace period) keeps every cached
+ * copy valid.
+ */
+public final class FileSender {
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final Pattern SINGLE_RANGE = Pattern.compile("^bytes=(\\d*)-(\\d*)$");
+
+    private FileSender() {
+    }
+
+    /** The file must exist and be readable; callers resolve and check the path. */
+    public static void send(HttpServletRequest request,
+                            HttpServletResponse response,
+                            Path file,
+                            MediaType contentType,
+                            CacheControl cacheControl) throws IOException {
+        send(request, response, file, contentType, cacheControl, null);
+    }
+
+    /** Same as above; a non-null immutableKey identifies the content for as long as it exists. */
+    public static void send(HttpServletRequest request,
+                            HttpServletResponse response,
+                            Path file,
+                            MediaType contentType,
+                            CacheControl cacheControl,
+                            String immutableKey) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        long length = attributes.size();
+        // -1: no Last-Modified, the modification time of an immutable file says nothing about its content
+        long lastModified = immutableKey != null ? -1 : attributes.lastModifiedTime().toMillis();
+        String etag = immutableKey != null
+                ? ETags.of("immutable-file", immutableKey)
+                : ETags.of("file", file.getFileName(), length, lastModified);
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        // also writes ETag / Last-Modified, and the 304 status on a match
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return;
+        }
+
+        response.setContentType(contentType.toString());
+        response.setHeader("X-Content-Type-Options", "nosniff");
+
+        long start = 0;
+        long end = length;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range != null && rangeApplies(request, etag, lastModified)) {
+            Matcher matcher = SINGLE_RANGE.matcher(range.trim());
+            if (matcher.matches() && isWellFormed(matcher.group(1), matcher.group(2))) {
+                long[] bounds = resolve(matcher.group(1), matcher.group(2), length);
+                if (bounds == null) {
+                    response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    return;
+                }
+                start = bounds[0];
+                end = bounds[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + (end - 1) + "/" + length);
+            }
+        }
+
+        response.setContentLengthLong(end - start);
+        if ("HEAD".equals(request.getMethod()) || end == start) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            while (position < end) {
+                long written = channel.transferTo(position, end - position, out);
+                if (written <= 0) {
+                    break;
+                }
+                position += written;
+            }
+        }
+    }
+
+    // If-Range: the range only applies while the client's copy is still the current one
+    private static boolean rangeApplies(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        long since = request.getDateHeader(HttpHeaders.IF_RANGE);
+        return since != -1 && lastModified != -1 && lastModified / 1000 <= since / 1000;
+    }
+
+    // bytes=- and a last position before the first are not ranges at all, the header is ignored
+    private static boolean isWellFormed(String first, String last) {
+        if (first.isEmpty() || last.isEmpty()) {
+            return !(first.isEmpty() && last.isEmpty());
+        }
+        return new BigInteger(first).compareTo(new BigInteger(last)) <= 0;
+    }
+
+    /*
+     * Start inclusive and end exclusive, or null when the range cannot be satisfied. Positions
+     * are compared as BigIntegers, a client may send more digits than a long holds.
+     */
+    private static long[] resolve(String first, String last, long length) {
+        BigInteger size = BigInteger.valueOf(length);
+        if (first.isEmpty()) {
+            // suffix range: the last n bytes
+            BigInteger suffix = new BigInteger(last);
+            if (suffix.signum() == 0 || length == 0) {
+                return null;
+            }
+            return new long[]{length - suffix.min(size).longValue(), length};
+        }
+
+        BigInteger start = new BigInteger(first);
+        if (start.compareTo(size) >= 0) {
+            return null;
+        }
+        long end = last.isEmpty() ? length : new BigInteger(last).add(BigInteger.ONE).min(size).longValue();
+        return new long[]{start.longValue(), end};
+    }
+}
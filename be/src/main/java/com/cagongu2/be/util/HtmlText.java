@@ -0,0 +1,38 @@
+package com.cagongu2.be.util;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Plain text of an article body. Post content is HTML; search indexes and highlighting should
+ * only see the words, not tag names, attribute values or entities.
+ */
+public final class HtmlText {
+    private static final Pattern SCRIPT_OR_STYLE = Pattern.compile("(?is)<(script|style)[^>]*>.*?</\\1>");
+    private static final Pattern TAG = Pattern.compile("<[^>]+>");
+    private static final Pattern NUMERIC_ENTITY = Pattern.compile("&#(?:[xX]([0-9a-fA-F]{1,6})|([0-9]{1,7}));");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private HtmlText() {
+    }
+
+    public static String toPlainText(String html) {
+        if (html == null) {
+            return null;
+        }
+        String text = SCRIPT_OR_STYLE.matcher(html).replaceAll(" ");
+        text = TAG.matcher(text).replaceAll(" ");
+        text = NUMERIC_ENTITY.matcher(text).replaceAll(match -> {
+            int codePoint = match.group(1) != null ? Integer.parseInt(match.group(1), 16) : Integer.parseInt(match.group(2));
+            return Character.isValidCodePoint(codePoint) ? Matcher.quoteReplacement(Character.toString(codePoint)) : " ";
+        });
+        text = text.replace("&nbsp;", " ")
+                .replace("&lt;", "<")
+                .replace("&gt;", ">")
+                .replace("&quot;", "\"")
+                .replace("&apos;", "'")
+                .replace("&amp;", "&");
+        // snippets are cut from this text, runs of blank lines between tags would show up in them
+        return WHITESPACE.matcher(text).replaceAll(" ").trim();
+    }
+}
@@ -0,0 +1,28 @@
+-- One-off migration: FULLTEXT index for title search (PostTitleFulltextIndex).
+--
+-- Run once against the application database, e.g. mysql <db> < ftx_posts_title.sql. It
+-- rebuilds the index, so it is safe to run again.
+--
+-- The default InnoDB stopword list contains single letters such as "a" and "i", and the ngram
+-- parser drops every token that contains a stopword. Built with it, bigrams like "đa", "au",
+-- "ti" and "im" (from "đau", "tim") are never indexed and those titles cannot be found. The
+-- stopword setting is read when the index is built, so it is switched off for this session only.
+
+-- an index created by earlier application versions was built with stopwords
+SET @drop_old := (SELECT IF(COUNT(*) > 0, 'ALTER TABLE posts DROP INDEX ftx_posts_title', 'DO 0')
+                  FROM information_schema.STATISTICS
+                  WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'posts' AND INDEX_NAME = 'ftx_posts_title');
+PREPARE drop_old FROM @drop_old;
+EXECUTE drop_old;
+DEALLOCATE PREPARE drop_old;
+
+SET @drop_current := (SELECT IF(COUNT(*) > 0, 'ALTER TABLE posts DROP INDEX ftx_posts_title_ngram', 'DO 0')
+                      FROM information_schema.STATISTICS
+                      WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'posts' AND INDEX_NAME = 'ftx_posts_title_ngram');
+PREPARE drop_current FROM @drop_current;
+EXECUTE drop_current;
+DEALLOCATE PREPARE drop_current;
+
+SET SESSION innodb_ft_enable_stopword = OFF;
+ALTER TABLE posts ADD FULLTEXT INDEX ftx_posts_title_ngram (title) WITH PARSER ngram;
+SET SESSION innodb_ft_enable_stopword = ON;
@@ -0,0 +1,16 @@
+-- One-off migration: drops image_blobs.ref_count (FileUploadServiceImpl, UploadGarbageCollector).
+--
+-- Run once against the application database before deploying the version that stops writing
+-- the column, e.g. mysql <db> < image_blobs_drop_ref_count.sql. It checks for the column
+-- first, so it is safe to run again.
+--
+-- Whether an upload is still used is decided by UploadGarbageCollector from the image rows and
+-- post bodies; the column is NOT NULL without a default, so inserts that leave it out fail
+-- while it exists.
+
+SET @drop_ref_count := (SELECT IF(COUNT(*) > 0, 'ALTER TABLE image_blobs DROP COLUMN ref_count', 'DO 0')
+                        FROM information_schema.COLUMNS
+                        WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'image_blobs' AND COLUMN_NAME = 'ref_count');
+PREPARE drop_ref_count FROM @drop_ref_count;
+EXECUTE drop_ref_count;
+DEALLOCATE PREPARE drop_ref_count;
@@ -0,0 +1,92 @@
+package com.cagongu2.be.controller;
+
+import com.cagongu2.be.dto.ChangeStamp;
+import com.cagongu2.be.dto.CursorPage;
+import com.cagongu2.be.dto.post.request.PostCursor;
+import com.cagongu2.be.dto.post.response.PostSummary;
+import com.cagongu2.be.service.PostService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.LocalDateTime;
+
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Cursor paging of PostController on a standalone MockMvc with a mocked PostService: a cursor
+ * the client tampered with is a 400, a cursor the server handed out is passed on as it is.
+ */
+class PostControllerTest {
+    private static final LocalDateTime UPDATED = LocalDateTime.of(2024, 5, 1, 10, 15);
+
+    private PostService postService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        postService = mock(PostService.class);
+        mockMvc = MockMvcBuilders.standaloneSetup(new PostController(postService)).build();
+    }
+
+    @Test
+    void malformedCursorIsABadRequest() throws Exception {
+        mockMvc.perform(get("/api/posts/cursor").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/posts/search/cursor").param("keyword", "java").param("cursor", "bm90LWEtY3Vyc29y"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(postService);
+    }
+
+    @Test
+    void validCursorIsPassedToTheService() throws Exception {
+        String cursor = new PostCursor(UPDATED, 42L).encode();
+        when(postService.getPostsStamp()).thenReturn(stamp());
+        when(postService.getPostsByCursor(cursor, 10, false))
+                .thenReturn(CursorPage.<PostSummary>builder().size(10).nextCursor("next").build());
+
+        mockMvc.perform(get("/api/posts/cursor").param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+
+        verify(postService).getPostsByCursor(cursor, 10, false);
+    }
+
+    @Test
+    void firstPageNeedsNoCursor() throws Exception {
+        when(postService.getPostsStamp()).thenReturn(stamp());
+        when(postService.getPostsByCursor(null, 10, false)).thenReturn(new CursorPage<>());
+
+        mockMvc.perform(get("/api/posts/cursor"))
+                .andExpect(status().isOk());
+
+        verify(postService, never()).getPostsByCursor(anyString(), anyInt(), anyBoolean());
+        verify(postService).getPostsByCursor(null, 10, false);
+    }
+
+    private static ChangeStamp stamp() {
+        return new ChangeStamp() {
+            @Override
+            public LocalDateTime getLastModified() {
+                return UPDATED;
+            }
+
+            @Override
+            public Long getTotal() {
+                return 3L;
+            }
+        };
+    }
+}
@@ -0,0 +1,68 @@
+package com.cagongu2.be.dto.post.request;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * The encoded cursor is what clients hold on to between pages: it has to decode to the same
+ * position, and anything else a client sends back has to fail as an IllegalArgumentException,
+ * which PostController answers with 400.
+ */
+class PostCursorTest {
+
+    @Test
+    void decodesToTheSamePosition() {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 5, 1, 10, 15, 30, 123_456_789);
+
+        PostCursor decoded = PostCursor.decode(new PostCursor(createdAt, 42L).encode());
+
+        assertThat(decoded.getCreatedAt()).isEqualTo(createdAt);
+        assertThat(decoded.getId()).isEqualTo(42L);
+    }
+
+    // LocalDateTime.toString leaves out zero seconds
+    @Test
+    void decodesWholeMinutes() {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 5, 1, 10, 15);
+
+        assertThat(PostCursor.decode(new PostCursor(createdAt, 7L).encode()).getCreatedAt()).isEqualTo(createdAt);
+    }
+
+    @Test
+    void encodedFormIsSafeInAQueryString() {
+        String encoded = new PostCursor(LocalDateTime.of(2024, 5, 1, 10, 15, 30), Long.MAX_VALUE).encode();
+
+        assertThat(encoded).matches("[A-Za-z0-9_-]+");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"garbage", "|42", "2024-05-01T10:15|", "2024-13-01T10:15|42", "2024-05-01T10:15|4x2"})
+    void malformedPayloadsAreRejected(String raw) {
+        String cursor = encode(raw);
+
+        assertThatThrownBy(() -> PostCursor.decode(cursor))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Invalid cursor");
+    }
+
+    // includes the raw form without the Base64 layer
+    @ParameterizedTest
+    @ValueSource(strings = {"not a cursor!", "2024-05-01T10:15|42", "abc*"})
+    void cursorsThatAreNotBase64AreRejected(String cursor) {
+        assertThatThrownBy(() -> PostCursor.decode(cursor))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Invalid cursor");
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,198 @@
+package com.cagongu2.be.repository;
+
+import com.cagongu2.be.dto.post.response.PostResponse;
+import com.cagongu2.be.dto.post.response.PostSummary;
+import com.cagongu2.be.dto.user.response.UserResponse;
+import com.cagongu2.be.mapper.PostMapper;
+import com.cagongu2.be.mapper.UserMapper;
+import com.cagongu2.be.model.*;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Every read use case must cost a fixed number of SQL statements no matter how
+ * many posts, categories or authors are on the page.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class PostFetchPlanTest {
+    private static final int POST_COUNT = 60;
+    private static final int PAGE_SIZE = 50;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final PostMapper postMapper = Mappers.getMapper(PostMapper.class);
+    private final UserMapper userMapper = Mappers.getMapper(UserMapper.class);
+
+    private Statistics statistics;
+    private Long categoryId;
+    private Long authorId;
+    private Long postId;
+
+    @BeforeEach
+    void setUp() {
+        Permission permission = Permission.builder().name("Read").slug("read").build();
+        entityManager.persist(permission);
+
+        Role role = Role.builder().name("Admin").slug("admin").permissions(new HashSet<>(Set.of(permission))).build();
+        entityManager.persist(role);
+
+        List<Category> categories = new ArrayList<>();
+        List<User> authors = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Category category = Category.builder()
+                    .name("Category " + i)
+                    .slug("category-" + i)
+                    .level(0)
+                    .isActive(true)
+                    .build();
+            entityManager.persist(category);
+            categories.add(category);
+
+            User author = User.builder()
+                    .username("author" + i)
+                    .email("author" + i + "@example.com")
+                    .phone("090000000" + i)
+                    .password("secret")
+                    .isActive(true)
+                    .roles(new ArrayList<>(List.of(role)))
+                    .avatar(Image.builder().type("avatar").url("images/avatar/" + i + ".png").build())
+                    .build();
+            entityManager.persist(author);
+            authors.add(author);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < POST_COUNT; i++) {
+            Post post = Post.builder()
+                    .name("Post " + i)
+                    .title("Title " + i)
+                    .slug("post-" + i)
+                    .content("<p>content " + i + "</p>")
+                    .status("published")
+                    .category(categories.get(i % categories.size()))
+                    .author(authors.get(i % authors.size()))
+                    .thumbnail(Image.builder().type("thumbnail").url("images/thumbnail/" + i + ".png").build())
+                    .createdAt(now.minusMinutes(i))
+                    .updatedAt(now.minusMinutes(i))
+                    .build();
+            entityManager.persist(post);
+            postId = post.getId();
+        }
+
+        categoryId = categories.get(0).getId();
+        authorId = authors.get(0).getId();
+
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void getAllPostsRunsOnePageQueryAndOneCount() {
+        Page<PostSummary> page = postRepository.findAllSummaries(PageRequest.of(0, PAGE_SIZE));
+        page.getContent().forEach(this::touch);
+
+        assertThat(page.getContent()).hasSize(PAGE_SIZE);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void searchByTitleRunsOnePageQueryAndOneCount() {
+        Page<PostSummary> page = postRepository.findSummariesByTitle("title", PageRequest.of(0, PAGE_SIZE));
+        page.getContent().forEach(this::touch);
+
+        assertThat(page.getContent()).hasSize(PAGE_SIZE);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void cursorPageRunsOneQuery() {
+        List<PostSummary> posts = postRepository.findLatest(Limit.of(PAGE_SIZE + 1));
+        posts.forEach(this::touch);
+
+        assertThat(posts).hasSize(PAGE_SIZE + 1);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void postsByCategoryAuthorAndStatusRunOneQueryEach() {
+        postRepository.findSummariesByCategoryId(categoryId).forEach(this::touch);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+        postRepository.findSummariesByAuthorId(authorId).forEach(this::touch);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+
+        List<PostSummary> published = postRepository.findSummariesByStatus("published");
+        published.forEach(this::touch);
+        assertThat(published).hasSize(POST_COUNT);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+    }
+
+    @Test
+    void postDetailBySlugRunsOneQuery() {
+        PostResponse response = postMapper.toPostResponse(postRepository.findBySlug("post-0").orElseThrow());
+
+        assertThat(response.getCategoryName()).isEqualTo("Category 0");
+        assertThat(response.getAuthorName()).isEqualTo("author0");
+        assertThat(response.getThumbnail_url()).isEqualTo("images/thumbnail/0.png");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void postDetailByIdRunsOneQuery() {
+        PostResponse response = postMapper.toPostResponse(postRepository.findDetailById(postId).orElseThrow());
+
+        assertThat(response.getAuthorName()).isNotNull();
+        assertThat(response.getThumbnail_url()).isNotNull();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void allUsersRunsOneQueryPlusOnePostBatch() {
+        List<UserResponse> users = userRepository.findAll().stream().map(userMapper::toUserResponse).toList();
+
+        assertThat(users).hasSize(5);
+        assertThat(users).allSatisfy(user -> {
+            assertThat(user.getRoleSlugs()).containsExactly("admin");
+            assertThat(user.getAvatar_url()).isNotNull();
+            assertThat(user.getPostIds()).hasSize(POST_COUNT / 5);
+        });
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    private void touch(PostSummary post) {
+        post.getCategoryName();
+        post.getAuthorName();
+        post.getThumbnailUrl();
+    }
+}
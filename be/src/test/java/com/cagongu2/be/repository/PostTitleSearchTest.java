@@ -0,0 +1,118 @@
+package com.cagongu2.be.repository;
+
+import com.cagongu2.be.dto.post.response.PostSummary;
+import com.cagongu2.be.model.Post;
+import com.cagongu2.be.service.PostTitleFulltextIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Title search on a real MySQL, H2 has no ngram FULLTEXT. The index comes from the same
+ * migration script operators run. Tests do not run in a transaction: InnoDB adds rows to a
+ * FULLTEXT index only when they commit.
+ */
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=create-drop")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Testcontainers(disabledWithoutDocker = true)
+class PostTitleSearchTest {
+
+    @Container
+    @ServiceConnection
+    static MySQLContainer<?> mysql = new MySQLContainer<>("mysql:8.0");
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    private PostTitleFulltextIndex fulltextIndex;
+
+    @BeforeEach
+    void setUp() {
+        save("dau-dau", "Đau đầu kéo dài: nguyên nhân và cách điều trị");
+        save("benh-tim-mach", "Bệnh tim mạch ở người cao tuổi");
+        save("viem-hong", "Viêm họng cấp ở trẻ em");
+        save("dinh-duong", "Dinh dưỡng cho phụ nữ mang thai");
+
+        new ResourceDatabasePopulator(new ClassPathResource("db/ftx_posts_title.sql")).execute(dataSource);
+        fulltextIndex = new PostTitleFulltextIndex(new JdbcTemplate(dataSource), true);
+        fulltextIndex.afterSingletonsInstantiated();
+    }
+
+    @AfterEach
+    void tearDown() {
+        postRepository.deleteAll();
+    }
+
+    @Test
+    void indexFromMigrationIsUsed() {
+        assertThat(fulltextIndex.toBooleanQuery("tim")).isEqualTo("\"tim\"");
+    }
+
+    @Test
+    void findsBigramsThatContainDefaultStopwords() {
+        // "ti", "im", "đa" and "au" all contain "a" or "i" from the default stopword list
+        assertThat(search("tim")).containsExactly("benh-tim-mach");
+        assertThat(search("đau")).containsExactly("dau-dau");
+    }
+
+    @Test
+    void matchesPhrasesAcrossWords() {
+        assertThat(search("đau đầu")).containsExactly("dau-dau");
+        assertThat(search("cao tuổi")).containsExactly("benh-tim-mach");
+        assertThat(search("mang thai")).containsExactly("dinh-duong");
+    }
+
+    @Test
+    void matchesInsideWordsLikeLike() {
+        assertThat(search("ưỡng")).containsExactly("dinh-duong");
+        assertThat(search("họng cấp")).containsExactly("viem-hong");
+    }
+
+    @Test
+    void unknownKeywordMatchesNothing() {
+        assertThat(search("ung thư")).isEmpty();
+    }
+
+    private List<String> search(String keyword) {
+        String query = fulltextIndex.toBooleanQuery(keyword);
+        assertThat(query).isNotNull();
+        return postRepository.searchSummariesByTitle(query, PageRequest.of(0, 10)).getContent().stream()
+                .map(PostSummary::getSlug)
+                .toList();
+    }
+
+    private void save(String slug, String title) {
+        LocalDateTime now = LocalDateTime.now();
+        postRepository.save(Post.builder()
+                .name(title)
+                .title(title)
+                .slug(slug)
+                .status("published")
+                .createdAt(now)
+                .updatedAt(now)
+                .build());
+    }
+}
@@ -0,0 +1,235 @@
+package com.cagongu2.be.service;
+
+import com.cagongu2.be.dto.upload.response.ChunkedUploadResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Chunk bookkeeping of ChunkedUploadService on a temporary upload root, with 4-byte chunks
+ * and a FileUploadService stub that keeps what complete hands it.
+ */
+class ChunkedUploadServiceTest {
+    private static final byte[] CONTENT = "0123456789".getBytes(StandardCharsets.US_ASCII);
+    private static final int CHUNK_SIZE = 4;
+
+    @TempDir
+    Path root;
+
+    private StubUploads uploads;
+    private ChunkedUploadService service;
+
+    @BeforeEach
+    void setUp() {
+        uploads = new StubUploads();
+        service = new ChunkedUploadService(uploads, root.toString(), 1024, CHUNK_SIZE, 1, 64, 60, 10);
+    }
+
+    @Test
+    void chunksArrivingOutOfOrderAssembleTheFile() throws IOException {
+        String id = initiate();
+
+        write(id, 2);
+        write(id, 0);
+        ChunkedUploadResponse status = write(id, 1);
+
+        assertThat(status.getChunkCount()).isEqualTo(3);
+        assertThat(status.getReceivedChunks()).containsExactly(0, 1, 2);
+        assertThat(service.complete(id)).isEqualTo("images/document/stored");
+        assertThat(uploads.stored).containsExactly(CONTENT);
+    }
+
+    @Test
+    void missingChunksBlockCompletion() throws IOException {
+        String id = initiate();
+        write(id, 0);
+        write(id, 2);
+
+        assertThatThrownBy(() -> service.complete(id))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("missing 1 chunks");
+        assertThat(service.getStatus(id).getReceivedChunks()).containsExactly(0, 2);
+    }
+
+    @Test
+    void chunkSentTwiceCountsOnce() throws IOException {
+        String id = initiate();
+        write(id, 0);
+        write(id, 0);
+        write(id, 1);
+
+        assertThat(service.getStatus(id).getReceivedChunks()).containsExactly(0, 1);
+
+        write(id, 2);
+        service.complete(id);
+        assertThat(uploads.stored).containsExactly(CONTENT);
+    }
+
+    @Test
+    void failedRewriteDropsTheChunk() throws IOException {
+        String id = initiate();
+        write(id, 0);
+
+        byte[] wrong = "abcd".getBytes(StandardCharsets.US_ASCII);
+        assertThatThrownBy(() -> service.writeChunk(id, 0, sha256(chunk(0)), new ByteArrayInputStream(wrong)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Checksum mismatch");
+
+        // the region was overwritten with bytes that do not match, the chunk has to be sent again
+        assertThat(service.getStatus(id).getReceivedChunks()).isEmpty();
+    }
+
+    @Test
+    void chunkOfTheWrongLengthIsRejected() throws IOException {
+        String id = initiate();
+        byte[] tooLong = "012345".getBytes(StandardCharsets.US_ASCII);
+        byte[] tooShort = "01".getBytes(StandardCharsets.US_ASCII);
+
+        assertThatThrownBy(() -> service.writeChunk(id, 0, sha256(tooLong), new ByteArrayInputStream(tooLong)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("longer than");
+        assertThatThrownBy(() -> service.writeChunk(id, 0, sha256(tooShort), new ByteArrayInputStream(tooShort)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("has 2 of 4 bytes");
+        assertThat(service.getStatus(id).getReceivedChunks()).isEmpty();
+    }
+
+    @Test
+    void concurrentWriteOfTheSameChunkIsRejected() throws Exception {
+        String id = initiate();
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        InputStream slow = new InputStream() {
+            private final InputStream data = new ByteArrayInputStream(chunk(0));
+
+            @Override
+            public int read() throws IOException {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                reading.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return data.read(buffer, offset, length);
+            }
+        };
+
+        CompletableFuture<ChunkedUploadResponse> first = CompletableFuture.supplyAsync(() -> {
+            try {
+                return service.writeChunk(id, 0, sha256(chunk(0)), slow);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertThat(reading.await(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThatThrownBy(() -> write(id, 0))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("already being written");
+        assertThatThrownBy(() -> service.complete(id)).isInstanceOf(IllegalStateException.class);
+
+        release.countDown();
+        assertThat(first.get(10, TimeUnit.SECONDS).getReceivedChunks()).containsExactly(0);
+        // once the first write is done the chunk may be sent again
+        assertThat(write(id, 0).getReceivedChunks()).containsExactly(0);
+    }
+
+    @Test
+    void failedCompleteKeepsTheSessionForARetry() throws IOException {
+        String id = initiate();
+        for (int index = 0; index < 3; index++) {
+            write(id, index);
+        }
+        uploads.failNext = true;
+
+        assertThatThrownBy(() -> service.complete(id)).isInstanceOf(IOException.class);
+        assertThat(service.getStatus(id).getReceivedChunks()).containsExactly(0, 1, 2);
+
+        assertThat(service.complete(id)).isEqualTo("images/document/stored");
+        assertThat(uploads.stored).containsExactly(CONTENT);
+        assertThatThrownBy(() -> service.getStatus(id)).isInstanceOf(NoSuchElementException.class);
+    }
+
+    @Test
+    void abortDeletesThePartFile() throws IOException {
+        String id = initiate();
+        write(id, 0);
+        Path part = root.resolve(ChunkedUploadService.SESSION_DIR).resolve(id + ".part");
+        assertThat(part).exists();
+
+        service.abort(id);
+
+        assertThat(part).doesNotExist();
+        assertThatThrownBy(() -> write(id, 1)).isInstanceOf(NoSuchElementException.class);
+    }
+
+    private String initiate() throws IOException {
+        return service.initiate("document", "digits.txt", (long) CONTENT.length, CHUNK_SIZE).getUploadId();
+    }
+
+    private ChunkedUploadResponse write(String id, int index) throws IOException {
+        byte[] chunk = chunk(index);
+        return service.writeChunk(id, index, sha256(chunk), new ByteArrayInputStream(chunk));
+    }
+
+    private static byte[] chunk(int index) {
+        int from = index * CHUNK_SIZE;
+        return Arrays.copyOfRange(CONTENT, from, Math.min(from + CHUNK_SIZE, CONTENT.length));
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // keeps the bytes of every stored file; like FileUploadServiceImpl, a failure leaves the source in place
+    private static class StubUploads implements FileUploadService {
+        final List<byte[]> stored = new ArrayList<>();
+        boolean failNext;
+
+        @Override
+        public String uploadFile(MultipartFile file, String type) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String storeFile(Path file, String type, String originalFilename) throws IOException {
+            if (failNext) {
+                failNext = false;
+                throw new IOException("disk full");
+            }
+            stored.add(Files.readAllBytes(file));
+            Files.delete(file);
+            return "images/" + type + "/stored";
+        }
+    }
+}
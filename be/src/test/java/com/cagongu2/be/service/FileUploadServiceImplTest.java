@@ -0,0 +1,161 @@
+package com.cagongu2.be.service;
+
+import com.cagongu2.be.repository.ImageBlobRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Content-addressed storage and image_blobs registration on a real MySQL, register is an
+ * INSERT ... ON DUPLICATE KEY UPDATE. Tests do not run in a transaction, every repository call
+ * commits like in the service.
+ */
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=create-drop")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Testcontainers(disabledWithoutDocker = true)
+class FileUploadServiceImplTest {
+
+    @Container
+    @ServiceConnection
+    static MySQLContainer<?> mysql = new MySQLContainer<>("mysql:8.0");
+
+    @Autowired
+    private ImageBlobRepository imageBlobRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path root;
+
+    private FileUploadServiceImpl fileUploadService;
+
+    @BeforeEach
+    void setUp() {
+        fileUploadService = new FileUploadServiceImpl(imageBlobRepository, transactionManager, root.toString());
+    }
+
+    @AfterEach
+    void tearDown() {
+        imageBlobRepository.deleteAll();
+    }
+
+    @Test
+    void sameBytesAreStoredAndRegisteredOnce() throws IOException {
+        String first = fileUploadService.uploadFile(image("a.png", "same bytes"), "thumbnail");
+        String second = fileUploadService.uploadFile(image("b.PNG", "same bytes"), "thumbnail");
+
+        assertThat(second).isEqualTo(first);
+        assertThat(first).matches(FileUploadServiceImpl.SHARDED_URL.pattern()).endsWith(".png");
+        assertThat(FileUploadServiceImpl.resolve(root, first)).hasContent("same bytes");
+        assertThat(imageBlobRepository.findAll()).singleElement()
+                .satisfies(blob -> {
+                    assertThat(blob.getPath()).isEqualTo(first);
+                    assertThat(blob.getSizeBytes()).isEqualTo(10L);
+                });
+        // nothing but the stored file, the temp files are gone
+        try (var files = Files.walk(root)) {
+            assertThat(files.filter(Files::isRegularFile)).hasSize(1);
+        }
+    }
+
+    @Test
+    void differentBytesGetDifferentUrls() throws IOException {
+        String first = fileUploadService.uploadFile(image("a.png", "first"), "thumbnail");
+        String second = fileUploadService.uploadFile(image("a.png", "second"), "thumbnail");
+
+        assertThat(second).isNotEqualTo(first);
+        assertThat(imageBlobRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    void storingKnownBytesRestartsTheGracePeriod() throws IOException {
+        String url = fileUploadService.uploadFile(image("a.png", "old upload"), "thumbnail");
+        Path file = FileUploadServiceImpl.resolve(root, url);
+        Instant old = Instant.now().minus(30, ChronoUnit.DAYS);
+        Files.setLastModifiedTime(file, FileTime.from(old));
+
+        fileUploadService.uploadFile(image("a.png", "old upload"), "thumbnail");
+
+        assertThat(Files.getLastModifiedTime(file).toInstant()).isAfter(old.plus(1, ChronoUnit.DAYS));
+    }
+
+    @Test
+    void storeFileMovesTheSourceIntoTheStore() throws IOException {
+        Path source = Files.writeString(root.resolve("assembled.part"), "assembled");
+
+        String url = fileUploadService.storeFile(source, "document", "report.pdf");
+
+        assertThat(source).doesNotExist();
+        assertThat(FileUploadServiceImpl.resolve(root, url)).hasContent("assembled");
+        assertThat(url).endsWith(".pdf");
+        assertThat(imageBlobRepository.findById(url)).isPresent();
+    }
+
+    @Test
+    void storingWaitsForTheCollectorsRowLock() throws Exception {
+        String url = fileUploadService.uploadFile(image("a.png", "locked"), "thumbnail");
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch unlock = new CountDownLatch(1);
+
+        // what UploadGarbageCollector.quarantine holds while it decides
+        CompletableFuture<Void> collector = CompletableFuture.runAsync(() ->
+                new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                    imageBlobRepository.findForUpdate(url);
+                    locked.countDown();
+                    try {
+                        unlock.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }));
+        assertThat(locked.await(10, TimeUnit.SECONDS)).isTrue();
+
+        // no transaction of its own, like the editor upload endpoint
+        CompletableFuture<String> upload = CompletableFuture.supplyAsync(() -> {
+            try {
+                return fileUploadService.uploadFile(image("b.png", "locked"), "thumbnail");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        Thread.sleep(500);
+        assertThat(upload).isNotDone();
+
+        unlock.countDown();
+        collector.get(10, TimeUnit.SECONDS);
+        assertThat(upload.get(10, TimeUnit.SECONDS)).isEqualTo(url);
+    }
+
+    private static MockMultipartFile image(String name, String content) {
+        return new MockMultipartFile("file", name, "application/octet-stream", content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,190 @@
+package com.cagongu2.be.service;
+
+import com.cagongu2.be.model.Category;
+import com.cagongu2.be.model.Post;
+import com.cagongu2.be.model.PostCounter;
+import com.cagongu2.be.model.User;
+import com.cagongu2.be.repository.CategoryRepository;
+import com.cagongu2.be.repository.PostCounterRepository;
+import com.cagongu2.be.repository.PostRepository;
+import com.cagongu2.be.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * PostCounterReconciler against posts written behind PostCounterService's back on a real
+ * MySQL, with a batch size of two so every dimension takes several snapshots. Drift is made
+ * the way it happens in production: posts saved without the service, and counters changed by
+ * hand.
+ */
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=create-drop")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Testcontainers(disabledWithoutDocker = true)
+class PostCounterReconcilerTest {
+
+    @Container
+    @ServiceConnection
+    static MySQLContainer<?> mysql = new MySQLContainer<>("mysql:8.0");
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private PostCounterRepository postCounterRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private NamedParameterJdbcTemplate jdbcTemplate;
+    private PostCounterService postCounterService;
+    private PostCounterReconciler reconciler;
+    private Category news;
+    private Category guides;
+    private User author;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        postCounterService = new PostCounterService(postCounterRepository);
+        reconciler = new PostCounterReconciler(jdbcTemplate, postCounterRepository, transactionManager, 2);
+        news = categoryRepository.save(Category.builder().name("News").slug("news").build());
+        guides = categoryRepository.save(Category.builder().name("Guides").slug("guides").build());
+        author = userRepository.save(User.builder().username("writer").email("writer@example.com").build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        postRepository.deleteAll();
+        postCounterRepository.deleteAll();
+        categoryRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void fillsAnEmptyTableFromThePosts() {
+        savePost(news, "published");
+        savePost(news, "published");
+        savePost(guides, "draft");
+        savePost(null, "draft");
+
+        reconciler.reconcile();
+
+        assertThat(count(PostCounter.Dimension.ALL, null)).isEqualTo(4);
+        assertThat(count(PostCounter.Dimension.CATEGORY, news.getId())).isEqualTo(2);
+        assertThat(count(PostCounter.Dimension.CATEGORY, guides.getId())).isEqualTo(1);
+        assertThat(count(PostCounter.Dimension.AUTHOR, author.getId())).isEqualTo(4);
+        assertThat(count(PostCounter.Dimension.STATUS, "published")).isEqualTo(2);
+        assertThat(count(PostCounter.Dimension.STATUS, "draft")).isEqualTo(2);
+    }
+
+    @Test
+    void correctsOnlyTheCountersThatDrifted() {
+        savePost(news, "published");
+        savePost(guides, "published");
+        reconciler.reconcile();
+        long newsGeneration = generation(PostCounter.Dimension.CATEGORY, news.getId());
+        long guidesGeneration = generation(PostCounter.Dimension.CATEGORY, guides.getId());
+        long allGeneration = generation(PostCounter.Dimension.ALL, null);
+
+        setCount(PostCounter.Dimension.CATEGORY, news.getId(), 7);
+        reconciler.reconcile();
+
+        assertThat(count(PostCounter.Dimension.CATEGORY, news.getId())).isEqualTo(1);
+        assertThat(generation(PostCounter.Dimension.CATEGORY, news.getId())).isEqualTo(newsGeneration + 1);
+        // counters that were right are not written, their list ETags stay valid
+        assertThat(generation(PostCounter.Dimension.CATEGORY, guides.getId())).isEqualTo(guidesGeneration);
+        assertThat(generation(PostCounter.Dimension.ALL, null)).isEqualTo(allGeneration);
+    }
+
+    @Test
+    void zeroesCountersOfKeysWithoutPosts() {
+        savePost(news, "published");
+        reconciler.reconcile();
+        jdbcTemplate.update("UPDATE posts SET status = 'archived'", Map.of());
+
+        reconciler.reconcile();
+
+        assertThat(count(PostCounter.Dimension.STATUS, "published")).isZero();
+        assertThat(count(PostCounter.Dimension.STATUS, "archived")).isEqualTo(1);
+    }
+
+    @Test
+    void clampedCounterIsStillRepaired() {
+        Post first = savePost(news, "published");
+        savePost(news, "published");
+        reconciler.reconcile();
+
+        // the counter lost both posts, the delete below would take it to -1 and is clamped at 0
+        setCount(PostCounter.Dimension.CATEGORY, news.getId(), 0);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            postRepository.deleteById(first.getId());
+            postCounterService.onDeleted(new PostCounterService.Keys(news.getId(), author.getId(), "published"));
+        });
+        assertThat(count(PostCounter.Dimension.CATEGORY, news.getId())).isZero();
+
+        reconciler.reconcile();
+
+        assertThat(count(PostCounter.Dimension.CATEGORY, news.getId())).isEqualTo(1);
+        assertThat(count(PostCounter.Dimension.ALL, null)).isEqualTo(1);
+        assertThat(count(PostCounter.Dimension.STATUS, "published")).isEqualTo(1);
+    }
+
+    private long count(PostCounter.Dimension dimension, Object key) {
+        return postCounterService.count(dimension, key);
+    }
+
+    private long generation(PostCounter.Dimension dimension, Object key) {
+        return postCounterService.stamp(dimension, key).getGeneration();
+    }
+
+    // manual SQL, the drift the reconciler exists for
+    private void setCount(PostCounter.Dimension dimension, Object key, long postCount) {
+        jdbcTemplate.update("UPDATE post_counters SET post_count = :postCount " +
+                        "WHERE dimension = :dimension AND dimension_key = :key",
+                Map.of("postCount", postCount, "dimension", dimension.name(), "key", String.valueOf(key)));
+    }
+
+    private Post savePost(Category category, String status) {
+        LocalDateTime now = LocalDateTime.now();
+        return postRepository.save(Post.builder()
+                .name("Post")
+                .title("Post")
+                .slug("post-" + System.nanoTime())
+                .status(status)
+                .category(category)
+                .author(author)
+                .content("<p>body</p>")
+                .createdAt(now)
+                .updatedAt(now)
+                .build());
+    }
+}
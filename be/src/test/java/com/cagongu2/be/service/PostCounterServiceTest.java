@@ -0,0 +1,161 @@
+package com.cagongu2.be.service;
+
+import com.cagongu2.be.model.Category;
+import com.cagongu2.be.model.Post;
+import com.cagongu2.be.model.PostCounter;
+import com.cagongu2.be.model.User;
+import com.cagongu2.be.repository.PostCounterRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * post_counters maintenance of PostCounterService on a real MySQL, increment is an
+ * INSERT ... ON DUPLICATE KEY UPDATE. The service only needs the ids on the post, so posts
+ * here are never stored; every call runs in a transaction of its own, like the post change
+ * it joins.
+ */
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=create-drop")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Testcontainers(disabledWithoutDocker = true)
+class PostCounterServiceTest {
+
+    @Container
+    @ServiceConnection
+    static MySQLContainer<?> mysql = new MySQLContainer<>("mysql:8.0");
+
+    @Autowired
+    private PostCounterRepository postCounterRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private PostCounterService postCounterService;
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        postCounterService = new PostCounterService(postCounterRepository);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        postCounterRepository.deleteAll();
+    }
+
+    @Test
+    void createdPostCountsInEveryDimension() {
+        inTransaction(() -> postCounterService.onCreated(post(1L, 10L, "published")));
+
+        assertThat(count(PostCounter.Dimension.ALL, null)).isEqualTo(1);
+        assertThat(count(PostCounter.Dimension.CATEGORY, 1L)).isEqualTo(1);
+        assertThat(count(PostCounter.Dimension.AUTHOR, 10L)).isEqualTo(1);
+        assertThat(count(PostCounter.Dimension.STATUS, "published")).isEqualTo(1);
+    }
+
+    @Test
+    void movedPostLeavesItsOldCountersForTheNewOnes() {
+        Post post = post(1L, 10L, "draft");
+        inTransaction(() -> postCounterService.onCreated(post));
+        PostCounterService.Keys before = PostCounterService.Keys.of(post);
+
+        Post moved = post(2L, 11L, "published");
+        inTransaction(() -> postCounterService.onUpdated(before, moved));
+
+        assertThat(count(PostCounter.Dimension.ALL, null)).isEqualTo(1);
+        assertThat(count(PostCounter.Dimension.CATEGORY, 1L)).isZero();
+        assertThat(count(PostCounter.Dimension.CATEGORY, 2L)).isEqualTo(1);
+        assertThat(count(PostCounter.Dimension.AUTHOR, 10L)).isZero();
+        assertThat(count(PostCounter.Dimension.AUTHOR, 11L)).isEqualTo(1);
+        assertThat(count(PostCounter.Dimension.STATUS, "draft")).isZero();
+        assertThat(count(PostCounter.Dimension.STATUS, "published")).isEqualTo(1);
+    }
+
+    @Test
+    void updateWithoutAMoveOnlyBumpsTheGenerations() {
+        Post post = post(1L, 10L, "published");
+        inTransaction(() -> postCounterService.onCreated(post));
+        long allGeneration = generation(PostCounter.Dimension.ALL, null);
+        long categoryGeneration = generation(PostCounter.Dimension.CATEGORY, 1L);
+
+        inTransaction(() -> postCounterService.onUpdated(PostCounterService.Keys.of(post), post));
+
+        assertThat(count(PostCounter.Dimension.CATEGORY, 1L)).isEqualTo(1);
+        assertThat(generation(PostCounter.Dimension.ALL, null)).isEqualTo(allGeneration + 1);
+        assertThat(generation(PostCounter.Dimension.CATEGORY, 1L)).isEqualTo(categoryGeneration + 1);
+    }
+
+    @Test
+    void batchedDeleteWritesEachCounterRowOnce() {
+        List<Post> posts = List.of(post(1L, 10L, "published"), post(1L, 10L, "published"), post(2L, 10L, "draft"));
+        inTransaction(() -> posts.forEach(postCounterService::onCreated));
+        long categoryGeneration = generation(PostCounter.Dimension.CATEGORY, 1L);
+        long authorGeneration = generation(PostCounter.Dimension.AUTHOR, 10L);
+
+        inTransaction(() -> postCounterService.onDeleted(posts.stream().map(PostCounterService.Keys::of).toList()));
+
+        assertThat(count(PostCounter.Dimension.ALL, null)).isZero();
+        assertThat(count(PostCounter.Dimension.CATEGORY, 1L)).isZero();
+        assertThat(count(PostCounter.Dimension.CATEGORY, 2L)).isZero();
+        assertThat(count(PostCounter.Dimension.AUTHOR, 10L)).isZero();
+        assertThat(count(PostCounter.Dimension.STATUS, "published")).isZero();
+        assertThat(count(PostCounter.Dimension.STATUS, "draft")).isZero();
+        // one increment by the summed amount, not one per deleted post
+        assertThat(generation(PostCounter.Dimension.CATEGORY, 1L)).isEqualTo(categoryGeneration + 1);
+        assertThat(generation(PostCounter.Dimension.AUTHOR, 10L)).isEqualTo(authorGeneration + 1);
+    }
+
+    @Test
+    void postsWithoutACategoryOnlyCountInTheTotal() {
+        inTransaction(() -> postCounterService.onCreated(post(null, null, null)));
+
+        assertThat(count(PostCounter.Dimension.ALL, null)).isEqualTo(1);
+        assertThat(postCounterRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void countersDoNotGoBelowZero() {
+        inTransaction(() -> postCounterService.onDeleted(PostCounterService.Keys.of(post(1L, 10L, "published"))));
+
+        assertThat(count(PostCounter.Dimension.ALL, null)).isZero();
+        assertThat(count(PostCounter.Dimension.CATEGORY, 1L)).isZero();
+        assertThat(generation(PostCounter.Dimension.CATEGORY, 1L)).isEqualTo(1);
+    }
+
+    private void inTransaction(Runnable action) {
+        transactionTemplate.executeWithoutResult(status -> action.run());
+    }
+
+    private long count(PostCounter.Dimension dimension, Object key) {
+        return postCounterService.count(dimension, key);
+    }
+
+    private long generation(PostCounter.Dimension dimension, Object key) {
+        return postCounterService.stamp(dimension, key).getGeneration();
+    }
+
+    private static Post post(Long categoryId, Long authorId, String status) {
+        return Post.builder()
+                .category(categoryId != null ? Category.builder().id(categoryId).build() : null)
+                .author(authorId != null ? User.builder().id(authorId).build() : null)
+                .status(status)
+                .build();
+    }
+}
@@ -0,0 +1,188 @@
+package com.cagongu2.be.service;
+
+import com.cagongu2.be.dto.upload.response.UploadGcReport;
+import com.cagongu2.be.model.Image;
+import com.cagongu2.be.model.ImageBlob;
+import com.cagongu2.be.model.Post;
+import com.cagongu2.be.repository.ImageBlobRepository;
+import com.cagongu2.be.repository.ImageRepository;
+import com.cagongu2.be.repository.PostRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Keep and quarantine decisions of UploadGarbageCollector on a real MySQL: a file stays while
+ * it is in its grace period, named by an image row or linked from a post body; anything else
+ * moves to the quarantine, and the quarantine is emptied after the retention period.
+ */
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=create-drop")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Testcontainers(disabledWithoutDocker = true)
+class UploadGarbageCollectorTest {
+    private static final Instant OLD = Instant.now().minus(Duration.ofHours(2));
+
+    @Container
+    @ServiceConnection
+    static MySQLContainer<?> mysql = new MySQLContainer<>("mysql:8.0");
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ImageRepository imageRepository;
+
+    @Autowired
+    private ImageBlobRepository imageBlobRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @TempDir
+    Path root;
+
+    @TempDir
+    Path variants;
+
+    private UploadGarbageCollector collector;
+
+    @BeforeEach
+    void setUp() {
+        // one hour of grace and seven days of retention, no pauses
+        collector = new UploadGarbageCollector(imageRepository, imageBlobRepository,
+                new NamedParameterJdbcTemplate(dataSource), transactionManager,
+                root.toString(), variants.toString(), true, 1, 7, 1000, 100, 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        postRepository.deleteAll();
+        imageRepository.deleteAll();
+        imageBlobRepository.deleteAll();
+    }
+
+    @Test
+    void keepsFilesNamedByAnImageRow() throws IOException {
+        Path file = upload("thumbnail/row.png", OLD);
+        imageRepository.save(Image.builder().type("thumbnail").url("images/thumbnail/row.png").build());
+
+        UploadGcReport report = collect();
+
+        assertThat(file).exists();
+        assertThat(report.getQuarantinedFiles()).isZero();
+    }
+
+    @Test
+    void keepsFilesLinkedFromAPostBody() throws IOException {
+        Path file = upload("post/linked.png", OLD);
+        savePost("<p><img src=\"/images/post/linked.png\" alt=\"\"></p>");
+
+        collect();
+
+        assertThat(file).exists();
+    }
+
+    @Test
+    void keepsUnreferencedFilesDuringTheGracePeriod() throws IOException {
+        Path file = upload("post/young.png", Instant.now());
+
+        collect();
+
+        assertThat(file).exists();
+    }
+
+    @Test
+    void quarantinesUnreferencedFilesAndDropsTheirBlob() throws IOException {
+        Path file = upload("post/orphan.png", OLD);
+        blob("images/post/orphan.png");
+
+        UploadGcReport report = collect();
+
+        assertThat(file).doesNotExist();
+        assertThat(root.resolve(UploadGarbageCollector.QUARANTINE_DIR).resolve("post/orphan.png")).hasContent("post/orphan.png");
+        assertThat(imageBlobRepository.findById("images/post/orphan.png")).isEmpty();
+        assertThat(report.getQuarantinedFiles()).isEqualTo(1);
+    }
+
+    @Test
+    void deletesLeftoverTempFilesAndExpiredQuarantine() throws IOException {
+        Path temp = upload("post/" + FileUploadServiceImpl.TEMP_PREFIX + "123.tmp", OLD);
+        Path expired = upload(UploadGarbageCollector.QUARANTINE_DIR + "/post/expired.png",
+                Instant.now().minus(Duration.ofDays(8)));
+        Path recent = upload(UploadGarbageCollector.QUARANTINE_DIR + "/post/recent.png",
+                Instant.now().minus(Duration.ofDays(1)));
+
+        UploadGcReport report = collect();
+
+        assertThat(temp).doesNotExist();
+        assertThat(expired).doesNotExist();
+        assertThat(recent).exists();
+        assertThat(report.getPurgedFiles()).isEqualTo(2);
+        assertThat(report.getQuarantinedFiles()).isZero();
+    }
+
+    private UploadGcReport collect() {
+        collector.collect();
+        UploadGcReport report = collector.getLastReport();
+        assertThat(report).isNotNull();
+        return report;
+    }
+
+    // the file's content is its relative path
+    private Path upload(String relative, Instant modified) throws IOException {
+        Path file = root.resolve(relative);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, relative);
+        Files.setLastModifiedTime(file, FileTime.from(modified));
+        return file;
+    }
+
+    private void blob(String path) {
+        imageBlobRepository.save(ImageBlob.builder()
+                .path(path)
+                .sha256("0".repeat(64))
+                .sizeBytes(1L)
+                .createdAt(LocalDateTime.now())
+                .build());
+    }
+
+    private void savePost(String content) {
+        LocalDateTime now = LocalDateTime.now();
+        postRepository.save(Post.builder()
+                .name("Post")
+                .title("Post")
+                .slug("post-" + System.nanoTime())
+                .status("published")
+                .content(content)
+                .createdAt(now)
+                .updatedAt(now)
+                .build());
+    }
+}
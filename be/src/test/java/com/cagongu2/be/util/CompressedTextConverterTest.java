@@ -0,0 +1,96 @@
+package com.cagongu2.be.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Storage format of post bodies: every branch has to read back what it wrote, and rows written
+ * by an earlier build have to stay readable for as long as they exist.
+ */
+class CompressedTextConverterTest {
+    private static final byte FORMAT_PLAIN = 0;
+    private static final byte FORMAT_DEFLATE_DICT_V1 = 1;
+
+    private static final String ARTICLE =
+            "<p style=\"text-align: justify;\">Stored with the V1 dictionary.</p><ul><li>one</li><li>two</li></ul>";
+
+    /*
+     * ARTICLE repeated four times, as written by the first build with the V1 dictionary. Fixed
+     * here rather than produced by convertToDatabaseColumn, so a change to DICTIONARY_V1 or to
+     * the header fails this test instead of silently breaking the rows already in the database.
+     */
+    private static final String V1_BLOB =
+            "AQAAAYx4+fUFYF8j5P7gkvyi1BRg2VUCDOOMVIUwQ4WUzGRQGZpYVKkHNgTqqfy8VIi/gLikPB/Jj6NWEGcFADo/iaU=";
+
+    private final CompressedTextConverter converter = new CompressedTextConverter();
+
+    @Test
+    void longMarkupIsCompressedWithTheDictionary() {
+        String text = ARTICLE.repeat(20);
+
+        byte[] stored = converter.convertToDatabaseColumn(text);
+
+        assertThat(stored[0]).isEqualTo(FORMAT_DEFLATE_DICT_V1);
+        assertThat(stored.length).isLessThan(text.length() / 4);
+        assertThat(converter.convertToEntityAttribute(stored)).isEqualTo(text);
+    }
+
+    @Test
+    void multiByteTextRoundTrips() {
+        String text = "<p>Triệu chứng và nguyên nhân, hãy tham khảo ý kiến bác sĩ chuyên khoa.</p>".repeat(10);
+
+        byte[] stored = converter.convertToDatabaseColumn(text);
+
+        assertThat(stored[0]).isEqualTo(FORMAT_DEFLATE_DICT_V1);
+        assertThat(converter.convertToEntityAttribute(stored)).isEqualTo(text);
+    }
+
+    // UTF-8 text long enough to compress always deflates smaller, short values are what stays plain
+    @Test
+    void shortTextIsStoredPlain() {
+        String text = "<p>short</p>";
+
+        byte[] stored = converter.convertToDatabaseColumn(text);
+
+        assertThat(stored[0]).isEqualTo(FORMAT_PLAIN);
+        assertThat(stored).hasSize(5 + text.length());
+        assertThat(converter.convertToEntityAttribute(stored)).isEqualTo(text);
+    }
+
+    @Test
+    void emptyAndNullValues() {
+        byte[] empty = converter.convertToDatabaseColumn("");
+
+        assertThat(empty).containsExactly(FORMAT_PLAIN, 0, 0, 0, 0);
+        assertThat(converter.convertToEntityAttribute(empty)).isEmpty();
+        assertThat(converter.convertToDatabaseColumn(null)).isNull();
+        assertThat(converter.convertToEntityAttribute(null)).isNull();
+    }
+
+    @Test
+    void readsRowsWrittenWithTheV1Dictionary() {
+        byte[] stored = Base64.getDecoder().decode(V1_BLOB);
+
+        assertThat(stored[0]).isEqualTo(FORMAT_DEFLATE_DICT_V1);
+        assertThat(converter.convertToEntityAttribute(stored)).isEqualTo(ARTICLE.repeat(4));
+    }
+
+    @Test
+    void truncatedOrUnknownValuesAreRejected() {
+        byte[] stored = converter.convertToDatabaseColumn(ARTICLE.repeat(20));
+        byte[] truncated = Arrays.copyOf(stored, stored.length / 2);
+        byte[] unknown = "\u0007\u0000\u0000\u0000\u0001x".getBytes(StandardCharsets.ISO_8859_1);
+
+        assertThatThrownBy(() -> converter.convertToEntityAttribute(truncated)).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> converter.convertToEntityAttribute(unknown))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Unknown compressed text format");
+        assertThatThrownBy(() -> converter.convertToEntityAttribute(new byte[2])).isInstanceOf(IllegalStateException.class);
+    }
+}
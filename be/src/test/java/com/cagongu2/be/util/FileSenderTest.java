@@ -0,0 +1,263 @@
+package com.cagongu2.be.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Range and conditional handling of FileSender against a 26-byte file, through the
+ * FileChannel path (mock requests do not offer sendfile), with validators from the file's
+ * attributes and from an immutable key.
+ */
+class FileSenderTest {
+    private static final String CONTENT = "abcdefghijklmnopqrstuvwxyz";
+    private static final Instant MODIFIED = Instant.parse("2024-05-01T10:00:00Z");
+
+    @TempDir
+    Path dir;
+
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = Files.writeString(dir.resolve("letters.txt"), CONTENT);
+        Files.setLastModifiedTime(file, FileTime.from(MODIFIED));
+    }
+
+    @Test
+    void sendsTheWholeFileWithoutRange() throws IOException {
+        MockHttpServletResponse response = send(get());
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+        assertThat(response.getContentLengthLong()).isEqualTo(26);
+        assertThat(response.getHeader(HttpHeaders.ACCEPT_RANGES)).isEqualTo("bytes");
+    }
+
+    @Test
+    void sendsABoundedRange() throws IOException {
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+
+        MockHttpServletResponse response = send(request);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 2-5/26");
+        assertThat(response.getContentAsString()).isEqualTo("cdef");
+    }
+
+    @Test
+    void openRangeRunsToTheEnd() throws IOException {
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.RANGE, "bytes=20-");
+
+        MockHttpServletResponse response = send(request);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 20-25/26");
+        assertThat(response.getContentAsString()).isEqualTo("uvwxyz");
+    }
+
+    @Test
+    void suffixRangeSendsTheLastBytes() throws IOException {
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.RANGE, "bytes=-3");
+
+        MockHttpServletResponse response = send(request);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getContentAsString()).isEqualTo("xyz");
+    }
+
+    @Test
+    void endPastTheFileIsClamped() throws IOException {
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.RANGE, "bytes=24-1000");
+
+        MockHttpServletResponse response = send(request);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 24-25/26");
+        assertThat(response.getContentAsString()).isEqualTo("yz");
+    }
+
+    @Test
+    void startPastTheFileIsNotSatisfiable() throws IOException {
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.RANGE, "bytes=26-");
+
+        MockHttpServletResponse response = send(request);
+
+        assertThat(response.getStatus()).isEqualTo(416);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */26");
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void emptyAndOverflowingRangesAreNotSatisfiable() throws IOException {
+        for (String range : new String[]{"bytes=-0", "bytes=99999999999999999999-"}) {
+            MockHttpServletRequest request = get();
+            request.addHeader(HttpHeaders.RANGE, range);
+
+            assertThat(send(request).getStatus()).as(range).isEqualTo(416);
+        }
+    }
+
+    @Test
+    void malformedRangesAreIgnored() throws IOException {
+        for (String range : new String[]{"bytes=5-2", "bytes=-", "items=0-2"}) {
+            MockHttpServletRequest request = get();
+            request.addHeader(HttpHeaders.RANGE, range);
+
+            MockHttpServletResponse response = send(request);
+
+            assertThat(response.getStatus()).as(range).isEqualTo(200);
+            assertThat(response.getContentAsString()).as(range).isEqualTo(CONTENT);
+        }
+    }
+
+    @Test
+    void hugeEndAndSuffixAreClamped() throws IOException {
+        MockHttpServletRequest end = get();
+        end.addHeader(HttpHeaders.RANGE, "bytes=24-99999999999999999999");
+        assertThat(send(end).getContentAsString()).isEqualTo("yz");
+
+        MockHttpServletRequest suffix = get();
+        suffix.addHeader(HttpHeaders.RANGE, "bytes=-99999999999999999999");
+        MockHttpServletResponse response = send(suffix);
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+    }
+
+    @Test
+    void multipleRangesGetTheWholeFile() throws IOException {
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-1,4-5");
+
+        MockHttpServletResponse response = send(request);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+    }
+
+    @Test
+    void ifRangeWithTheCurrentETagKeepsTheRange() throws IOException {
+        String etag = send(get()).getHeader(HttpHeaders.ETAG);
+
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-2");
+        request.addHeader(HttpHeaders.IF_RANGE, etag);
+
+        MockHttpServletResponse response = send(request);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getContentAsString()).isEqualTo("abc");
+    }
+
+    @Test
+    void ifRangeWithAStaleETagSendsTheWholeFile() throws IOException {
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-2");
+        request.addHeader(HttpHeaders.IF_RANGE, "\"stale\"");
+
+        MockHttpServletResponse response = send(request);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+    }
+
+    @Test
+    void ifRangeWithADateComparesTheModificationTime() throws IOException {
+        MockHttpServletRequest current = get();
+        current.addHeader(HttpHeaders.RANGE, "bytes=0-2");
+        current.addHeader(HttpHeaders.IF_RANGE, MODIFIED.toEpochMilli());
+        assertThat(send(current).getStatus()).isEqualTo(206);
+
+        MockHttpServletRequest older = get();
+        older.addHeader(HttpHeaders.RANGE, "bytes=0-2");
+        older.addHeader(HttpHeaders.IF_RANGE, MODIFIED.minusSeconds(60).toEpochMilli());
+        assertThat(send(older).getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void matchingIfNoneMatchIsNotModified() throws IOException {
+        String etag = send(get()).getHeader(HttpHeaders.ETAG);
+
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+
+        MockHttpServletResponse response = send(request);
+
+        assertThat(response.getStatus()).isEqualTo(304);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void immutableFilesKeepTheirValidatorsWhenTouched() throws IOException {
+        MockHttpServletResponse first = sendImmutable(get());
+        String attributeTag = send(get()).getHeader(HttpHeaders.ETAG);
+        assertThat(first.getHeader(HttpHeaders.LAST_MODIFIED)).isNull();
+
+        // a duplicate upload of the same bytes resets the modification time
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, first.getHeader(HttpHeaders.ETAG));
+
+        assertThat(sendImmutable(request).getStatus()).isEqualTo(304);
+        // without the key the touch looks like a new file
+        assertThat(send(get()).getHeader(HttpHeaders.ETAG)).isNotEqualTo(attributeTag);
+    }
+
+    @Test
+    void immutableFilesIgnoreADateIfRange() throws IOException {
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-2");
+        request.addHeader(HttpHeaders.IF_RANGE, MODIFIED.toEpochMilli());
+
+        // without a Last-Modified there is nothing to compare the date with
+        assertThat(sendImmutable(request).getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void headSendsHeadersOnly() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("HEAD", "/images/letters.txt");
+
+        MockHttpServletResponse response = send(request);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentLengthLong()).isEqualTo(26);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    private static MockHttpServletRequest get() {
+        return new MockHttpServletRequest("GET", "/images/letters.txt");
+    }
+
+    private MockHttpServletResponse send(MockHttpServletRequest request) throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        FileSender.send(request, response, file, MediaType.TEXT_PLAIN, CacheControl.noCache());
+        return response;
+    }
+
+    private MockHttpServletResponse sendImmutable(MockHttpServletRequest request) throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        FileSender.send(request, response, file, MediaType.TEXT_PLAIN, CacheControl.noCache(), "/letters.txt");
+        return response;
+    }
+}
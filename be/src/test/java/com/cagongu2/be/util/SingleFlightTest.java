@@ -0,0 +1,133 @@
+package com.cagongu2.be.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Concurrent callers of SingleFlight: the first one runs a loader that blocks until every
+ * other caller is waiting on it, so all of them are known to have arrived during the load.
+ */
+class SingleFlightTest {
+    private static final int CALLERS = 8;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentCallersShareOneLoad() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>(Duration.ofSeconds(10));
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+
+        List<Future<String>> results = callConcurrently(flight, () -> {
+            calls.incrementAndGet();
+            await(release);
+            return "loaded";
+        });
+        awaitWaiters(flight);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertThat(result.get(10, TimeUnit.SECONDS)).isEqualTo("loaded");
+        }
+        assertThat(calls).hasValue(1);
+        assertThat(flight.getLoadCount()).isEqualTo(1);
+        assertThat(flight.getCoalescedCount()).isEqualTo(CALLERS - 1);
+    }
+
+    @Test
+    void loaderExceptionReachesEveryWaiter() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>(Duration.ofSeconds(10));
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalArgumentException failure = new IllegalArgumentException("no such post");
+
+        List<Future<String>> results = callConcurrently(flight, () -> {
+            await(release);
+            throw failure;
+        });
+        awaitWaiters(flight);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertThatThrownBy(() -> result.get(10, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .cause().isSameAs(failure);
+        }
+        assertThat(flight.getLoadCount()).isEqualTo(1);
+    }
+
+    @Test
+    void waitersGiveUpAfterTheTimeout() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>(Duration.ofMillis(100));
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<String>> results = callConcurrently(flight, () -> {
+            await(release);
+            return "late";
+        });
+        awaitWaiters(flight);
+
+        // the waiters time out while the loader still runs
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (results.stream().filter(Future::isDone).count() < CALLERS - 1) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.sleep(5);
+        }
+        List<Future<String>> waiters = results.stream().filter(Future::isDone).toList();
+        Future<String> loader = results.stream().filter(result -> !result.isDone()).findFirst().orElseThrow();
+        for (Future<String> waiter : waiters) {
+            assertThatThrownBy(waiter::get)
+                    .isInstanceOf(ExecutionException.class)
+                    .cause()
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("Timed out after 100 ms");
+        }
+
+        release.countDown();
+        assertThat(loader.get(10, TimeUnit.SECONDS)).isEqualTo("late");
+    }
+
+    private List<Future<String>> callConcurrently(SingleFlight<String, String> flight, Supplier<String> loader) {
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(executor.submit(() -> flight.load("post", loader)));
+        }
+        return results;
+    }
+
+    // every caller but the loader has registered as a waiter
+    private static void awaitWaiters(SingleFlight<?, ?> flight) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (flight.getCoalescedCount() < CALLERS - 1) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
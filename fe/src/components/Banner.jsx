@@ -1,9 +1,10 @@
 import React from "react";
-import { useGetImageByTypeQuery } from "../redux/features/image/imageAPI";
+import { useGetSiteBootstrapQuery } from "../redux/features/site/siteAPI";
 import { getImgUrl } from "../util/getImgUrl";
 
 export const Banner = () => {
-  const { data: banner } = useGetImageByTypeQuery("banner");
+  const { data: site } = useGetSiteBootstrapQuery();
+  const banner = site?.images?.banner;
 
   return (
     <div className="overflow-hidden">
@@ -1,6 +1,6 @@
 import React, { useState, useRef, useEffect } from "react";
 import getBaseUrl from "../util/chatBaseUrl";
-import { useGetImageByTypeQuery } from "../redux/features/image/imageAPI";
+import { useGetSiteBootstrapQuery } from "../redux/features/site/siteAPI";
 import { getImgUrl } from "../util/getImgUrl";
 import { Link } from "react-router-dom";
 import { IoChatbubbleEllipsesOutline } from "react-icons/io5";
@@ -16,7 +16,8 @@ export const ChatSimulator = () => {
   const [isLoadingChats, setIsLoadingChats] = useState(true);
   const messagesEndRef = useRef(null);
 
-  const { data: logo } = useGetImageByTypeQuery("logo");
+  const { data: site } = useGetSiteBootstrapQuery();
+  const logo = site?.images?.logo;
   const userId = localStorage.getItem("userId");
 
   // Load danh sách chat khi component mount
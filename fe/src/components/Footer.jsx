@@ -1,9 +1,10 @@
 import React from "react";
 import { FaFacebookSquare, FaTwitter, FaYoutube } from "react-icons/fa";
-import { useGetFootersByStatusQuery } from "../redux/features/footer/footerAPI";
+import { useGetSiteBootstrapQuery } from "../redux/features/site/siteAPI";
 
 const Footer = () => {
-  const { data, isLoading, error } = useGetFootersByStatusQuery(true);
+  const { data: site, isLoading, error } = useGetSiteBootstrapQuery();
+  const data = site?.footers;
 
   if (isLoading) {
     return <p className="text-center py-4">Đang tải footer...</p>;
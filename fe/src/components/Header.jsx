@@ -2,10 +2,9 @@ import React, { useState } from "react";
 import { useForm } from "react-hook-form";
 import { GoHomeFill } from "react-icons/go";
 import { Link, useNavigate } from "react-router-dom";
-import { useGetAllCategoriesQuery } from "../redux/features/categories/categoryAPI";
+import { useGetSiteBootstrapQuery } from "../redux/features/site/siteAPI";
 import { FaAngleDown } from "react-icons/fa";
 import { getImgUrl } from "../util/getImgUrl";
-import { useGetImageByTypeQuery } from "../redux/features/image/imageAPI";
 import useAuth from "../hook/useAuth";
 
 export const Header = () => {
@@ -13,10 +12,12 @@ export const Header = () => {
   const [activeCategory, setActiveCategory] = useState(null);
   const [activeSubCategory, setActiveSubCategory] = useState(null);
   const {
-    data: categories,
+    data: site,
     error,
     isLoading: categoriesLoading,
-  } = useGetAllCategoriesQuery(0);
+  } = useGetSiteBootstrapQuery();
+  const categories = site?.categories;
+  const logo = site?.images?.logo;
   const { isAdmin, isLoading } = useAuth();
 
   const username = localStorage.getItem("username");
@@ -57,8 +58,6 @@ export const Header = () => {
     navigate("/login");
   };
 
-  const { data: logo } = useGetImageByTypeQuery("logo");
-
   const {
     register,
     handleSubmit,
@@ -1,7 +1,7 @@
 import React from "react";
 import { useForm } from "react-hook-form";
 import { Link, useNavigate, useSearchParams } from "react-router-dom";
-import { useSearchPostQuery } from "../redux/features/post/postAPI";
+import { useSearchPostPageQuery } from "../redux/features/post/postAPI";
 import { getImgUrl } from "../util/getImgUrl";
 
 export const SearchList = () => {
@@ -9,14 +9,27 @@ export const SearchList = () => {
   const [searchParams] = useSearchParams();
   const searchQuery = searchParams.get("s") || "";
 
-  const { data, isLoading } = useSearchPostQuery(searchQuery);
+  const [cursor, setCursor] = React.useState(null);
+  const [results, setResults] = React.useState([]);
+  const { data, isLoading, isFetching } = useSearchPostPageQuery({ query: searchQuery, cursor });
   const { register, handleSubmit } = useForm();
 
   React.useEffect(() => {
-    if (!isLoading && data && data.length === 0) {
+    setCursor(null);
+    setResults([]);
+  }, [searchQuery]);
+
+  React.useEffect(() => {
+    if (data) {
+      setResults((prev) => (cursor ? [...prev, ...data.content] : data.content));
+    }
+  }, [data]); // eslint-disable-line react-hooks/exhaustive-deps
+
+  React.useEffect(() => {
+    if (!isLoading && data && !cursor && data.content.length === 0) {
       navigate("/tra-cuu/tat-ca-thong-tin", { replace: true });
     }
-  }, [data, isLoading, navigate]);
+  }, [data, cursor, isLoading, navigate]);
 
 
   const onSubmit = (formData) => {
@@ -38,9 +51,10 @@ export const SearchList = () => {
           />
         </form>
 
-        {Array.isArray(data) && (
+        {data && (
           <span className="block mt-2 text-gray-400">
-            {data.length} kết quả được tìm thấy
+            {data.totalExact === false ? "Hơn " : ""}
+            {data.totalElements} kết quả được tìm thấy
           </span>
         )}
       </div>
@@ -48,34 +62,48 @@ export const SearchList = () => {
       <div className="max-w-[600px] mx-auto">
         {isLoading && <p>Đang tải...</p>}
 
-        {Array.isArray(data) &&
-          data.length > 0 &&
-          data.map((post) => (
-            <div key={post.id} className="flex gap-4 mb-8 bg-gray-50">
-              <Link to={`/tin-tuc/${post.slug}`}>
-                <img
-                  src={
-                    post.thumbnail_url
-                      ? getImgUrl(post.thumbnail_url)
-                      : "https://images.pexels.com/photos/3812757/pexels-photo-3812757.jpeg"
-                  }
-                  alt={post.name}
-                  className="w-28 h-28 rounded-2xl object-cover"
-                />
-              </Link>
+        {results.map((post) => (
+          <div key={post.id} className="flex gap-4 mb-8 bg-gray-50">
+            <Link to={`/tin-tuc/${post.slug}`}>
+              <img
+                src={
+                  post.thumbnail_url
+                    ? getImgUrl(post.thumbnail_url, 224)
+                    : "https://images.pexels.com/photos/3812757/pexels-photo-3812757.jpeg"
+                }
+                alt={post.name}
+                className="w-28 h-28 rounded-2xl object-cover"
+              />
+            </Link>
 
-              <div className="flex flex-col justify-center">
-                <h2 className="text-lg font-medium">
-                  <Link to={`/tin-tuc/${post.slug}`} className="hover:underline">
-                    {post.title}
-                  </Link>
-                </h2>
-                <span className="text-gray-400 text-sm">
-                  {post.authorName}
-                </span>
-              </div>
+            <div className="flex flex-col justify-center">
+              <h2 className="text-lg font-medium">
+                <Link to={`/tin-tuc/${post.slug}`} className="hover:underline">
+                  {post.title}
+                </Link>
+              </h2>
+              <span className="text-gray-400 text-sm">{post.authorName}</span>
+              {post.highlights?.content && (
+                // fragments are cut from the plain text and HTML-escaped by the server, only <em> is markup
+                <p
+                  className="text-gray-500 text-sm"
+                  dangerouslySetInnerHTML={{ __html: post.highlights.content.join(" … ") }}
+                />
+              )}
             </div>
-          ))}
+          </div>
+        ))}
+
+        {data?.hasNext && (
+          <button
+            type="button"
+            disabled={isFetching}
+            onClick={() => setCursor(data.nextCursor)}
+            className="block mx-auto mb-8 px-6 py-2 border rounded-sm"
+          >
+            {isFetching ? "Đang tải..." : "Xem thêm"}
+          </button>
+        )}
       </div>
     </div>
   );
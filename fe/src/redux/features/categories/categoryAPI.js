@@ -19,7 +19,7 @@ const categoriesApi = createApi({
     tagTypes: ['Categories'],
     endpoints: (builder) => ({
         getAllCategories: builder.query({
-            query: (level) => `?level=${level}`,
+            query: (level) => `?level=${level}&include=children,posts`,
             providesTags: ['Categories']
         }),
 
@@ -34,7 +34,7 @@ const categoriesApi = createApi({
         }),
 
         getCategoryBySlug: builder.query({
-            query: (slug) => `/slug/${slug}`,
+            query: (slug) => `/slug/${slug}?include=posts`,
             providesTags: ['Categories']
         }),
 
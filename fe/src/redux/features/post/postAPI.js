@@ -32,6 +32,12 @@ const postApi = createApi({
             query: (query) => `/search-post?query=${query}`,
         }),
 
+        searchPostPage: builder.query({
+            query: ({ query, cursor, size = 20 }) =>
+                `/search-post/page?query=${encodeURIComponent(query)}&size=${size}` +
+                (cursor ? `&cursor=${cursor}` : ""),
+        }),
+
         getPostById: builder.query({
             query: (id) => `/${id}`,
             providesTags: (result, error, id) => [{ type: "Posts", id }],
@@ -122,6 +128,7 @@ export const {
     useGetAllPostsQuery,
     useSearchPostsByTitleIslikeIgnoreCaseQuery,
     useSearchPostQuery,
+    useSearchPostPageQuery,
     useGetPostByIdQuery,
     useGetPostBySlugQuery,
     useGetPostsByCategoryQuery,
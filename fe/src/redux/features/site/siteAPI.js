@@ -0,0 +1,24 @@
+import { createApi, fetchBaseQuery } from "@reduxjs/toolkit/query/react";
+import getBaseUrl from "../../../util/baseUrl";
+
+const baseQuery = fetchBaseQuery({
+    baseUrl: `${getBaseUrl()}/api/site`,
+    credentials: "include",
+});
+
+// footer, logo / banner / favicon and the category menu in one response
+const siteApi = createApi({
+    reducerPath: "siteApi",
+    baseQuery,
+    tagTypes: ["Site"],
+    endpoints: (builder) => ({
+        getSiteBootstrap: builder.query({
+            query: () => `/bootstrap`,
+            providesTags: ["Site"],
+        }),
+    }),
+});
+
+export const { useGetSiteBootstrapQuery } = siteApi;
+
+export default siteApi;
@@ -7,6 +7,7 @@ import { uploadApi } from './features/upload/uploadApi';
 import authApi from './features/auth/authApi';
 import imagesApi from './features/image/imageAPI';
 import footerApi from './features/footer/footerAPI';
+import siteApi from './features/site/siteAPI';
 // import chatApi from './features/chatbot/chatApi';
 
 export const store = configureStore({
@@ -17,6 +18,7 @@ export const store = configureStore({
     [userApi.reducerPath]: userApi.reducer,
     [imagesApi.reducerPath]: imagesApi.reducer,
     [footerApi.reducerPath]: footerApi.reducer,
+    [siteApi.reducerPath]: siteApi.reducer,
     [uploadApi.reducerPath]: uploadApi.reducer,
     // [chatApi.reducerPath]: chatApi.reducer
   },
@@ -28,6 +30,7 @@ export const store = configureStore({
       userApi.middleware,
       imagesApi.middleware,
       footerApi.middleware,
+      siteApi.middleware,
       uploadApi.middleware,
       // chatApi.middleware
     ),
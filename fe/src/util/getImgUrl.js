@@ -1,5 +1,6 @@
-function getImgUrl(link) {
-    return `http://localhost:8080/${link}`;
+function getImgUrl(link, width) {
+    const url = `http://localhost:8080/${link}`;
+    return width ? `${url}?w=${width}` : url;
 }
 
-export {getImgUrl}
\ No newline at end of file
+export {getImgUrl}